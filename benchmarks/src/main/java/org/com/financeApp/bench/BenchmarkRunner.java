@@ -0,0 +1,32 @@
+package org.com.financeApp.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Точка входа профиля benchmarks: принимает обычные аргументы JMH, но по умолчанию пишет
+// результаты в jmh-result.json — файлы разных сборок можно сравнивать
+public final class BenchmarkRunner {
+  public static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  private BenchmarkRunner() {}
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cli = new CommandLineOptions(args);
+    if (cli.shouldHelp()
+        || cli.shouldList()
+        || cli.shouldListWithParams()
+        || cli.shouldListProfilers()
+        || cli.shouldListResultFormats()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+    if (!cli.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+    if (!cli.getResult().hasValue()) options.result(DEFAULT_RESULT_FILE);
+    new Runner(options.build()).run();
+  }
+}
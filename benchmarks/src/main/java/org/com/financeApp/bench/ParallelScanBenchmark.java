@@ -0,0 +1,48 @@
+package org.com.financeApp.bench;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.services.StatsService;
+import org.openjdk.jmh.annotations.*;
+
+// Калибровка StatsService.DEFAULT_PARALLEL_THRESHOLD: суммы по категориям за период внутри одного
+// месяца (весь месяц — крайний, его строки просматриваются) последовательно и параллельно.
+// Порог — число строк в месяце, начиная с которого parallel стабильно быстрее sequential
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ParallelScanBenchmark {
+  // Кошелёк за 5 лет: в месяце примерно size / 60 строк
+  @Param({"100000", "1000000", "4000000", "10000000"})
+  public int size;
+
+  private final StatsService sequential = new StatsService(0);
+  private final StatsService parallel = new StatsService(1);
+  private Wallet wallet;
+  private LocalDate from;
+  private LocalDate to;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    wallet = SyntheticWallets.shared(size);
+    from = SyntheticWallets.START.plusMonths(30).plusDays(3);
+    to = from.plusDays(20);
+  }
+
+  @Benchmark
+  public Map<String, Double> sequential() {
+    return sequential.expenseByCategory(wallet, from, to);
+  }
+
+  @Benchmark
+  public Map<String, Double> parallel() {
+    return parallel.expenseByCategory(wallet, from, to);
+  }
+}
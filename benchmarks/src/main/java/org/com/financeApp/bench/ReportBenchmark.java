@@ -0,0 +1,50 @@
+package org.com.financeApp.bench;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.services.ReportService;
+import org.com.financeApp.services.StatsService;
+import org.openjdk.jmh.annotations.*;
+
+// Построение текстового отчёта: без кэша (агрегация + текст каждый раз) и повторный из кэша
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int size;
+
+  private final ReportService uncached = new ReportService(new StatsService(), 0);
+  private final ReportService cached = new ReportService(new StatsService());
+  private Wallet wallet;
+  private LocalDate from;
+  private LocalDate to;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    wallet = SyntheticWallets.shared(size);
+    from = SyntheticWallets.START.plusDays(100);
+    to = SyntheticWallets.START.plusDays(800);
+  }
+
+  @Benchmark
+  public String buildReport() {
+    return uncached.buildReport(wallet);
+  }
+
+  @Benchmark
+  public String buildReportPeriod() {
+    return uncached.buildReport(wallet, from, to);
+  }
+
+  @Benchmark
+  public String buildReportPeriodCached() {
+    return cached.buildReport(wallet, from, to);
+  }
+}
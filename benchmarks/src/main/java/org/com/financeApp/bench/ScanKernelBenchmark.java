@@ -0,0 +1,67 @@
+package org.com.financeApp.bench;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.services.StatsService;
+import org.openjdk.jmh.annotations.*;
+
+// Суммы расходов по категориям за период внутри месяца (весь месяц — крайний, строки
+// просматриваются): прежняя реализация на Stream (filteredStream по всем операциям) против
+// ScanKernels в скалярном и векторном (jdk.incubator.vector) вариантах.
+// Параллельный просмотр выключен, чтобы сравнивались только ядра
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class ScanKernelBenchmark {
+  @Param({"100000", "1000000", "10000000"})
+  public int size;
+
+  private final StatsService stats = new StatsService(0);
+  private Wallet wallet;
+  private LocalDate from;
+  private LocalDate to;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    wallet = SyntheticWallets.sharedChronological(size);
+    from = SyntheticWallets.START.plusMonths(30).plusDays(3);
+    to = from.plusDays(20);
+  }
+
+  @Benchmark
+  @Fork(
+      value = 1,
+      jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+  public Map<String, Double> filteredStream() {
+    return wallet.getTransactions().stream()
+        .filter(t -> t.getType() == TransactionType.EXPENSE)
+        .filter(t -> !t.getDate().isBefore(from))
+        .filter(t -> !t.getDate().isAfter(to))
+        .collect(
+            Collectors.groupingBy(
+                Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
+  }
+
+  @Benchmark
+  @Fork(
+      value = 1,
+      jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+  public Map<String, Double> scalarKernel() {
+    return stats.expenseByCategory(wallet, from, to);
+  }
+
+  @Benchmark
+  @Fork(
+      value = 1,
+      jvmArgsAppend = {"-Xms2g", "-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+  public Map<String, Double> vectorKernel() {
+    return stats.expenseByCategory(wallet, from, to);
+  }
+}
@@ -0,0 +1,71 @@
+package org.com.financeApp.bench;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.services.StatsService;
+import org.openjdk.jmh.annotations.*;
+
+// Запросы статистики без периода (из агрегатов кошелька) и за период, не выровненный по месяцам
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class StatsBenchmark {
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int size;
+
+  private final StatsService stats = new StatsService();
+  private final List<String> categories = List.of("Еда", "Транспорт");
+  private Wallet wallet;
+  private LocalDate from;
+  private LocalDate to;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    wallet = SyntheticWallets.shared(size);
+    from = SyntheticWallets.START.plusDays(100);
+    to = SyntheticWallets.START.plusDays(800);
+  }
+
+  @Benchmark
+  public double totalIncome() {
+    return stats.totalIncome(wallet);
+  }
+
+  @Benchmark
+  public double totalExpensePeriod() {
+    return stats.totalExpense(wallet, from, to);
+  }
+
+  @Benchmark
+  public double totalExpenseForCategoriesPeriod() {
+    return stats.totalExpense(wallet, from, to, categories);
+  }
+
+  @Benchmark
+  public Map<String, Double> expenseByCategory() {
+    return stats.expenseByCategory(wallet);
+  }
+
+  @Benchmark
+  public Map<String, Double> expenseByCategoryPeriod() {
+    return stats.expenseByCategory(wallet, from, to);
+  }
+
+  @Benchmark
+  public Map<String, StatsService.BudgetStatus> budgetStatus() {
+    return stats.budgetStatus(wallet);
+  }
+
+  @Benchmark
+  public Map<String, StatsService.BudgetStatus> budgetStatusPeriod() {
+    return stats.budgetStatus(wallet, from, to);
+  }
+}
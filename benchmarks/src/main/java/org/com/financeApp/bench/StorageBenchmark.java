@@ -0,0 +1,66 @@
+package org.com.financeApp.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.services.SnapshotFormat;
+import org.com.financeApp.services.WalletFileStorage;
+import org.openjdk.jmh.annotations.*;
+
+// Сохранение и загрузка snapshot кошелька в каждом формате хранения
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class StorageBenchmark {
+  private static final String LOGIN = "bench";
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int size;
+
+  @Param({"json", "binary", "mapped"})
+  public String format;
+
+  private Path dir;
+  private WalletFileStorage storage;
+  private Wallet wallet;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("pfm-jmh-");
+    storage =
+        new WalletFileStorage(
+            dir,
+            SnapshotFormat.parse(format),
+            false,
+            WalletFileStorage.DEFAULT_COMPACTION_THRESHOLD);
+    // Свой кошелёк: в формате mapped сохранение переводит операции кошелька в сегмент файла
+    wallet = SyntheticWallets.generate(size);
+    storage.save(LOGIN, wallet);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+    }
+  }
+
+  @Benchmark
+  public void save() throws IOException {
+    storage.save(LOGIN, wallet);
+  }
+
+  @Benchmark
+  public Wallet loadOrCreate() throws IOException {
+    return storage.loadOrCreate(LOGIN);
+  }
+}
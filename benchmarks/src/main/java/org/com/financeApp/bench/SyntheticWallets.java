@@ -0,0 +1,77 @@
+package org.com.financeApp.bench;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.Wallet;
+
+// Детерминированный генератор кошельков: одинаковый размер — одинаковые операции при каждом
+// запуске, поэтому результаты разных сборок сравнимы
+public final class SyntheticWallets {
+  public static final String[] EXPENSE_CATEGORIES = {
+    "Еда", "Транспорт", "Развлечения", "Коммунальные услуги", "Такси", "Здоровье", "Одежда", "Связь"
+  };
+  public static final String[] INCOME_CATEGORIES = {"Зарплата", "Бонус", "Проценты"};
+  // Операции распределены по ~5 годам
+  public static final LocalDate START = LocalDate.of(2020, 1, 1);
+  public static final int DAYS = 5 * 365;
+
+  private static final long SEED = 20250101L;
+  private static final Map<Integer, Wallet> CACHE = new ConcurrentHashMap<>();
+  private static final Map<Integer, Wallet> CHRONOLOGICAL = new ConcurrentHashMap<>();
+
+  private SyntheticWallets() {}
+
+  // Общий для бенчмарков одного fork кошелёк; изменять его нельзя
+  public static Wallet shared(int size) {
+    return CACHE.computeIfAbsent(size, SyntheticWallets::generate);
+  }
+
+  // Операции по возрастанию дат, как после импорта выписки: строки месяца идут подряд
+  public static Wallet sharedChronological(int size) {
+    return CHRONOLOGICAL.computeIfAbsent(size, s -> generate(s, true));
+  }
+
+  public static Wallet generate(int size) {
+    return generate(size, false);
+  }
+
+  private static Wallet generate(int size, boolean chronological) {
+    SplittableRandom random = new SplittableRandom(SEED);
+    Wallet wallet = new Wallet("bench");
+
+    int[] expenseIds = new int[EXPENSE_CATEGORIES.length];
+    for (int i = 0; i < EXPENSE_CATEGORIES.length; i++) {
+      wallet.addCategory(EXPENSE_CATEGORIES[i]);
+      expenseIds[i] = wallet.registerCategory(EXPENSE_CATEGORIES[i]);
+      // Бюджеты у половины категорий, часть из них будет превышена
+      if (i % 2 == 0) wallet.setBudget(EXPENSE_CATEGORIES[i], 50_000L * (i + 1));
+    }
+    int[] incomeIds = new int[INCOME_CATEGORIES.length];
+    for (int i = 0; i < INCOME_CATEGORIES.length; i++) {
+      wallet.addCategory(INCOME_CATEGORIES[i]);
+      incomeIds[i] = wallet.registerCategory(INCOME_CATEGORIES[i]);
+    }
+
+    int startDay = Math.toIntExact(START.toEpochDay());
+    for (int i = 0; i < size; i++) {
+      boolean income = random.nextInt(10) == 0;
+      int category =
+          income
+              ? incomeIds[random.nextInt(incomeIds.length)]
+              : expenseIds[random.nextInt(expenseIds.length)];
+      long amountMinor =
+          income ? 100_000 + random.nextInt(10_000_000) : 1 + random.nextInt(500_000);
+      String comment = random.nextInt(8) == 0 ? "комментарий " + i : null;
+      wallet.restoreTransaction(
+          income ? TransactionType.INCOME : TransactionType.EXPENSE,
+          category,
+          amountMinor,
+          startDay + (chronological ? (int) ((long) i * DAYS / size) : random.nextInt(DAYS)),
+          comment);
+    }
+    return wallet;
+  }
+}
@@ -0,0 +1,57 @@
+package org.com.financeApp.bench;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.com.financeApp.core.models.User;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.repository.WalletRepository;
+import org.com.financeApp.services.WalletService;
+import org.openjdk.jmh.annotations.*;
+
+// Добавление расхода через WalletService: запись операции, обновление агрегатов и построение
+// предупреждений (бюджет категории, расходы против доходов) на кошельке заданного размера
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class WalletServiceBenchmark {
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int size;
+
+  private final User user = new User("bench", "bench");
+  private WalletService walletService;
+  private LocalDate date;
+
+  // Свой кошелёк на каждую итерацию: операции бенчмарка не накапливаются между итерациями
+  @Setup(Level.Iteration)
+  public void setUp() {
+    Wallet wallet = SyntheticWallets.generate(size);
+    walletService =
+        new WalletService(
+            new WalletRepository() {
+              @Override
+              public Wallet getOrCreate(String login) {
+                return wallet;
+              }
+
+              @Override
+              public void save(Wallet w) {}
+            });
+    date = SyntheticWallets.START.plusDays(SyntheticWallets.DAYS / 2);
+  }
+
+  @Benchmark
+  public List<String> addExpenseWithBudget() {
+    return walletService.addExpense(user, "Еда", 12.5, date, null);
+  }
+
+  @Benchmark
+  public List<String> addExpenseWithoutBudget() {
+    return walletService.addExpense(user, "Транспорт", 12.5, date, null);
+  }
+}
@@ -1,28 +1,209 @@
 package org.com.financeApp;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
 import org.com.financeApp.cli.CommandLoop;
 import org.com.financeApp.core.repository.UserRepository;
 import org.com.financeApp.core.repository.WalletRepository;
-import org.com.financeApp.infra.InMemoryUserRepository;
-import org.com.financeApp.infra.InMemoryWalletRepository;
+import org.com.financeApp.http.ApiServer;
+import org.com.financeApp.infra.BoundedWalletRepository;
+import org.com.financeApp.infra.ConcurrentUserRepository;
+import org.com.financeApp.infra.ConcurrentWalletRepository;
+import org.com.financeApp.metrics.MetricsRegistry;
+import org.com.financeApp.metrics.PrometheusFileExporter;
 import org.com.financeApp.services.*;
 
 public class Main {
-  public static void main(String[] args) {
-    UserRepository userRepo = new InMemoryUserRepository();
-    WalletRepository walletRepo = new InMemoryWalletRepository();
+  public static void main(String[] args) throws IOException {
+    List<String> flags = Arrays.asList(args);
+    boolean journaled = flags.contains("--journal");
+    String formatValue = option(args, "--format", "json|binary|mapped");
+    SnapshotFormat format =
+        formatValue == null ? SnapshotFormat.JSON : SnapshotFormat.parse(formatValue);
+    String portValue = option(args, "--serve", "<port>");
+    Integer port = portValue == null ? null : Integer.parseInt(portValue);
+    String bindValue = option(args, "--bind", "<host>");
+    String intervalValue = option(args, "--flush-interval", "<seconds>");
+    Duration flushInterval =
+        intervalValue == null
+            ? WriteBehindFlusher.DEFAULT_INTERVAL
+            : Duration.ofMillis(Math.round(Double.parseDouble(intervalValue) * 1000));
+    String thresholdValue = option(args, "--flush-threshold", "<changes>");
+    int flushThreshold =
+        thresholdValue == null
+            ? WriteBehindFlusher.DEFAULT_DIRTY_THRESHOLD
+            : Integer.parseInt(thresholdValue);
+
+    String metricsValue = option(args, "--metrics-file", "<path>");
+    Path metricsFile = Path.of(metricsValue == null ? "data/metrics.prom" : metricsValue);
+
+    String jfrValue = option(args, "--jfr", "<file.jfr>");
+    Recording recording = jfrValue == null ? null : startRecording(Path.of(jfrValue));
+
+    String cacheValue = option(args, "--wallet-cache", "<transactions>");
+    String parallelValue = option(args, "--parallel-threshold", "<rows>");
+    int parallelThreshold =
+        parallelValue == null
+            ? StatsService.DEFAULT_PARALLEL_THRESHOLD
+            : Integer.parseInt(parallelValue);
+    String reportCacheValue = option(args, "--report-cache", "<entries>");
+    int reportCacheSize =
+        reportCacheValue == null
+            ? ReportCache.DEFAULT_MAX_ENTRIES
+            : Integer.parseInt(reportCacheValue);
+
+    WalletFileStorage walletStorage =
+        new WalletFileStorage(
+            Path.of("data"), format, journaled, WalletFileStorage.DEFAULT_COMPACTION_THRESHOLD);
+
+    UserRepository userRepo = new ConcurrentUserRepository();
+    // С --wallet-cache в памяти держатся только недавно использованные кошельки
+    BoundedWalletRepository walletCache =
+        cacheValue == null
+            ? null
+            : new BoundedWalletRepository(walletStorage, Long.parseLong(cacheValue));
+    WalletRepository walletRepo =
+        walletCache == null ? new ConcurrentWalletRepository() : walletCache;
 
     AuthorizationService authService = new AuthorizationService(userRepo);
     WalletService walletService = new WalletService(walletRepo);
 
-    StatsService statsService = new StatsService();
-    ReportService reportService = new ReportService(statsService);
+    StatsService statsService = new StatsService(parallelThreshold);
+    ReportService reportService = new ReportService(statsService, reportCacheSize);
+
+    // Журнал сам сохраняет каждое изменение; без него изменения сбрасываются в фоне
+    WriteBehindFlusher flusher = null;
+    if (walletStorage.isJournaled()) {
+      walletService.addListener(walletStorage.getJournal());
+    } else {
+      flusher = new WriteBehindFlusher(walletStorage, flushInterval, flushThreshold);
+      walletService.addListener(flusher);
+    }
+    WriteBehindFlusher backgroundFlusher = flusher;
 
-    WalletFileStorage walletStorage = new WalletFileStorage(); // ./data по умолчанию
+    MetricsRegistry metrics = MetricsRegistry.global();
+    registerGauges(metrics, walletRepo, reportService, flusher);
+    PrometheusFileExporter metricsExporter =
+        new PrometheusFileExporter(metrics, metricsFile, PrometheusFileExporter.DEFAULT_INTERVAL);
+
+    if (port != null) {
+      SessionService sessions = new SessionService(authService, walletRepo, walletStorage);
+      ApiServer server =
+          new ApiServer(
+              sessions, walletService, walletRepo, walletStorage, statsService, reportService);
+      if (bindValue == null) {
+        server.start(port);
+      } else {
+        server.start(bindValue, port);
+      }
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(
+                  () -> {
+                    try {
+                      server.stop();
+                      if (backgroundFlusher != null) backgroundFlusher.close();
+                      // Изменённые кошельки кэша, которые не сохранил фоновый сброс
+                      if (walletCache != null) walletCache.flushAll();
+                      metricsExporter.close();
+                    } catch (IOException e) {
+                      System.err.println("Ошибка сохранения кошельков: " + e.getMessage());
+                    }
+                  }));
+      System.out.println(
+          "HTTP API запущен на "
+              + (bindValue == null ? "127.0.0.1" : bindValue)
+              + ":"
+              + server.getPort());
+      return;
+    }
 
     CommandLoop loop =
-        new CommandLoop(authService, walletService, walletRepo, walletStorage, reportService);
+        new CommandLoop(
+            authService,
+            walletService,
+            walletRepo,
+            walletStorage,
+            statsService,
+            reportService,
+            metricsExporter);
 
     loop.run();
+    if (flusher != null) flusher.close();
+    if (walletCache != null) walletCache.flushAll();
+    metricsExporter.close();
+    // stop() записывает запись в файл; в режиме --serve это делает dumpOnExit при завершении
+    if (recording != null) {
+      recording.stop();
+      recording.close();
+      System.out.println("Запись JFR сохранена в " + jfrValue);
+    }
+  }
+
+  // Непрерывная запись JFR с настройками default (низкие накладные расходы) и событиями
+  // finance.*; хранится не больше часа и 256 МБ, при выходе из JVM сбрасывается в файл
+  private static Recording startRecording(Path file) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) Files.createDirectories(parent);
+
+    Configuration configuration;
+    try {
+      configuration = Configuration.getConfiguration("default");
+    } catch (ParseException e) {
+      throw new IllegalStateException("Не удалось прочитать настройки JFR: " + e.getMessage(), e);
+    }
+    Recording recording = new Recording(configuration);
+    recording.setName("finance_app");
+    recording.setToDisk(true);
+    recording.setMaxAge(Duration.ofHours(1));
+    recording.setMaxSize(256L * 1024 * 1024);
+    recording.setDumpOnExit(true);
+    recording.setDestination(file);
+    recording.start();
+    return recording;
+  }
+
+  // Размеры кошельков в памяти, счётчики кэшей и очередь фонового сохранения
+  private static void registerGauges(
+      MetricsRegistry metrics,
+      WalletRepository walletRepo,
+      ReportService reportService,
+      WriteBehindFlusher flusher) {
+    if (walletRepo instanceof ConcurrentWalletRepository repo) {
+      metrics.gauge("wallets_loaded", repo::size);
+      metrics.gauge("wallet_transactions", repo::transactionCount);
+      metrics.gauge("wallet_transactions_max", repo::largestWalletTransactions);
+    } else if (walletRepo instanceof BoundedWalletRepository cache) {
+      metrics.gauge("wallets_loaded", () -> cache.stats().size());
+      metrics.gauge("wallet_transactions", () -> cache.stats().weight() - cache.stats().size());
+      metrics.gauge("wallet_cache_max_weight", () -> cache.stats().maxWeight());
+      metrics.counter("wallet_cache_hits_total", () -> cache.stats().hits());
+      metrics.counter("wallet_cache_misses_total", () -> cache.stats().misses());
+      metrics.counter("wallet_cache_evictions_total", () -> cache.stats().evictions());
+    }
+
+    metrics.counter("report_cache_hits_total", () -> reportService.getCacheStats().hits());
+    metrics.counter("report_cache_misses_total", () -> reportService.getCacheStats().misses());
+    metrics.gauge("report_cache_entries", () -> reportService.getCacheStats().size());
+    metrics.gauge("report_cache_hit_ratio", () -> reportService.getCacheStats().hitRate());
+
+    if (flusher != null) metrics.gauge("wallets_dirty", flusher::dirtyCount);
+  }
+
+  // Значение флага вида "--name value" или null, если флага нет
+  private static String option(String[] args, String name, String usage) {
+    int idx = Arrays.asList(args).indexOf(name);
+    if (idx < 0) return null;
+    if (idx + 1 >= args.length) {
+      throw new IllegalArgumentException("Использование: " + name + " " + usage);
+    }
+    return args[idx + 1];
   }
 }
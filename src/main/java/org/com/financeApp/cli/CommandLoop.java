@@ -1,12 +1,19 @@
 package org.com.financeApp.cli;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.*;
+import org.com.financeApp.core.models.CategoryDictionary;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.TransactionType;
 import org.com.financeApp.core.models.User;
 import org.com.financeApp.core.models.Wallet;
 import org.com.financeApp.core.repository.WalletRepository;
+import org.com.financeApp.metrics.CommandEvent;
+import org.com.financeApp.metrics.MetricsRegistry;
+import org.com.financeApp.metrics.PrometheusFileExporter;
 import org.com.financeApp.services.*;
 
 public class CommandLoop {
@@ -14,19 +21,70 @@ public class CommandLoop {
   private final WalletService walletService;
   private final WalletRepository walletRepo;
   private final WalletFileStorage walletStorage;
+  private final StatsService statsService;
   private final ReportService reportService;
+  private final CsvImporter csvImporter;
+  private final BatchReportService batchReports;
+  private final PrometheusFileExporter metricsExporter;
+
+  // Виды команд для метрик; остальное считается как unknown
+  private static final Set<String> COMMANDS =
+      Set.of(
+          "help",
+          "register",
+          "login",
+          "logout",
+          "exit",
+          "category",
+          "budget",
+          "income",
+          "expense",
+          "batch",
+          "import",
+          "balance",
+          "stats",
+          "metrics",
+          "snapshot",
+          "report");
+
+  // Прежний конструктор: статистика по умолчанию
+  public CommandLoop(
+      AuthorizationService auth,
+      WalletService walletService,
+      WalletRepository walletRepo,
+      WalletFileStorage walletStorage,
+      ReportService reportService) {
+    this(auth, walletService, walletRepo, walletStorage, new StatsService(), reportService);
+  }
 
   public CommandLoop(
       AuthorizationService auth,
       WalletService walletService,
       WalletRepository walletRepo,
       WalletFileStorage walletStorage,
+      StatsService statsService,
       ReportService reportService) {
+    this(auth, walletService, walletRepo, walletStorage, statsService, reportService, null);
+  }
+
+  // metricsExporter: куда команда metrics дописывает метрики в формате Prometheus (может быть null)
+  public CommandLoop(
+      AuthorizationService auth,
+      WalletService walletService,
+      WalletRepository walletRepo,
+      WalletFileStorage walletStorage,
+      StatsService statsService,
+      ReportService reportService,
+      PrometheusFileExporter metricsExporter) {
+    this.metricsExporter = metricsExporter;
     this.auth = auth;
     this.walletService = walletService;
     this.walletRepo = walletRepo;
     this.walletStorage = walletStorage;
+    this.statsService = statsService;
     this.reportService = reportService;
+    this.csvImporter = new CsvImporter(walletService);
+    this.batchReports = new BatchReportService(walletStorage, walletRepo, reportService);
   }
 
   public void run() {
@@ -53,10 +111,37 @@ public class CommandLoop {
     System.out.println("Пока!");
   }
 
+  // Время каждой команды пишется в гистограмму её вида, в том числе при ошибке; для JFR —
+  // событие с видом команды и логином (логин после login, до logout)
   private boolean handle(String line) throws IOException {
     String[] tokens = split(line);
     String cmd = tokens[0].toLowerCase();
 
+    User before = auth.getCurrentUser();
+    long started = System.nanoTime();
+    CommandEvent event = new CommandEvent();
+    event.begin();
+    boolean succeeded = false;
+    try {
+      boolean exit = execute(tokens, cmd);
+      succeeded = true;
+      return exit;
+    } finally {
+      String type = COMMANDS.contains(cmd) ? cmd : "unknown";
+      MetricsRegistry.global().timer("command_seconds", "command", type).recordSince(started);
+
+      event.end();
+      if (event.shouldCommit()) {
+        User user = auth.getCurrentUser() != null ? auth.getCurrentUser() : before;
+        event.command = type;
+        event.login = user == null ? null : user.getLogin();
+        event.succeeded = succeeded;
+        event.commit();
+      }
+    }
+  }
+
+  private boolean execute(String[] tokens, String cmd) throws IOException {
     switch (cmd) {
       case "help" -> {
         printHelp();
@@ -124,31 +209,33 @@ public class CommandLoop {
         if ("set".equals(sub)) {
           requireArgs(tokens, 4, "budget set <category> <limit>");
           String category = tokens[2];
-          double limit = parsePositiveDouble(tokens[3], "Лимит бюджета должен быть числом >= 0");
+          double limit =
+              InputFormats.parsePositiveAmount(tokens[3], "Лимит бюджета должен быть числом >= 0");
           walletService.setBudget(auth.getCurrentUser(), category, limit);
-          System.out.println("OK: бюджет установлен: " + category + " = " + limit);
+          System.out.println("OK: бюджет установлен: " + category + " = " + Money.of(limit));
         } else if ("show".equals(sub)) {
           Wallet w = currentWallet();
-          Map<String, StatsService.BudgetStatus> st =
-              new org.com.financeApp.services.StatsService().budgetStatus(w);
+          StatsService.ReportData data = reportService.aggregate(w, null, null);
+          CategoryDictionary categories = data.categories();
 
-          if (st.isEmpty()) {
+          if (data.budgetedCategoryIds().findAny().isEmpty()) {
             System.out.println("(бюджеты не заданы)");
           } else {
             System.out.println("Бюджет по категориям:");
-            st.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
+            data.budgetedCategoryIds()
+                .boxed()
+                .sorted(Comparator.comparing(categories::name))
                 .forEach(
-                    e -> {
-                      var bs = e.getValue();
+                    id -> {
+                      var bs = data.budgetStatus(id);
                       System.out.println(
                           "- "
-                              + e.getKey()
+                              + categories.name(id)
                               + ": "
-                              + bs.limit()
+                              + Money.format(bs.limitMinor())
                               + ", Оставшийся бюджет: "
-                              + bs.remaining()
-                              + (bs.remaining() < 0 ? " (ПРЕВЫШЕН)" : ""));
+                              + Money.format(bs.remainingMinor())
+                              + (bs.remainingMinor() < 0 ? " (ПРЕВЫШЕН)" : ""));
                     });
           }
         } else {
@@ -167,30 +254,16 @@ public class CommandLoop {
               cmd + " add <category> <amount> [YYYY-MM-DD] [comment...]");
         }
 
-        requireArgs(tokens, 4, cmd + " add <category> <amount> [YYYY-MM-DD] [comment...]");
-        String category = tokens[2];
-        double amount = parsePositiveDouble(tokens[3], "Сумма должна быть числом > 0");
-
-        LocalDate date = null;
-        String comment = null;
-
-        if (tokens.length >= 5) {
-          LocalDate parsed = tryParseDate(tokens[4]);
-          if (parsed != null) {
-            date = parsed;
-            comment = (tokens.length >= 6) ? joinFrom(tokens, 5) : null;
-          } else {
-            comment = joinFrom(tokens, 4);
-          }
-        }
-
+        WalletService.OperationRequest op = parseOperation(tokens);
         List<String> warnings;
         if ("income".equals(cmd)) {
           warnings =
-              walletService.addIncome(auth.getCurrentUser(), category, amount, date, comment);
+              walletService.addIncome(
+                  auth.getCurrentUser(), op.category(), op.amount(), op.date(), op.comment());
         } else {
           warnings =
-              walletService.addExpense(auth.getCurrentUser(), category, amount, date, comment);
+              walletService.addExpense(
+                  auth.getCurrentUser(), op.category(), op.amount(), op.date(), op.comment());
         }
 
         System.out.println("OK: операция добавлена");
@@ -203,11 +276,108 @@ public class CommandLoop {
         return false;
       }
 
+      case "batch" -> {
+        requireAuth();
+        requireArgs(tokens, 2, "batch <path>");
+
+        Path path = Path.of(joinFrom(tokens, 1));
+        List<WalletService.OperationRequest> ops = new ArrayList<>();
+        int lineNo = 0;
+        for (String raw : Files.readAllLines(path)) {
+          lineNo++;
+          String l = raw.trim();
+          if (l.isEmpty() || l.startsWith("#")) continue;
+          try {
+            ops.add(parseOperation(split(l)));
+          } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Строка " + lineNo + ": " + e.getMessage());
+          }
+        }
+
+        List<String> warnings = walletService.addOperations(auth.getCurrentUser(), ops);
+        System.out.println("OK: добавлено операций: " + ops.size());
+        for (String w : warnings) {
+          System.out.println("⚠ " + w);
+        }
+        return false;
+      }
+
+      case "import" -> {
+        requireAuth();
+        requireArgs(tokens, 3, "import csv <path>");
+        if (!"csv".equalsIgnoreCase(tokens[1])) {
+          throw new IllegalArgumentException("Неизвестный формат импорта: " + tokens[1]);
+        }
+
+        CsvImporter.ImportResult result =
+            csvImporter.importFile(
+                auth.getCurrentUser(),
+                Path.of(joinFrom(tokens, 2)),
+                rows -> System.out.print("\rОбработано строк: " + rows));
+        System.out.println();
+        System.out.println(
+            "OK: импортировано операций: "
+                + result.imported()
+                + ", пропущено строк: "
+                + result.skipped()
+                + " ("
+                + result.rowsPerSecond()
+                + " строк/с)");
+        for (String e : result.errors()) {
+          System.out.println("⚠ " + e);
+        }
+        if (result.skipped() > result.errors().size()) {
+          System.out.println("⚠ ... и ещё " + (result.skipped() - result.errors().size()));
+        }
+        return false;
+      }
+
+      case "balance" -> {
+        requireAuth();
+
+        LocalDate asOf = null;
+        for (int i = 1; i < tokens.length; i++) {
+          if ("--asof".equals(tokens[i]) && i + 1 < tokens.length) {
+            asOf = LocalDate.parse(tokens[++i]);
+          } else {
+            throw new IllegalArgumentException("balance [--asof YYYY-MM-DD]");
+          }
+        }
+
+        Wallet w = currentWallet();
+        if (asOf == null) {
+          System.out.println("Баланс: " + Money.format(Money.toMinor(statsService.balance(w))));
+        } else {
+          System.out.println(
+              "Баланс на "
+                  + asOf
+                  + ": "
+                  + Money.format(Money.toMinor(statsService.balanceAsOf(w, asOf))));
+        }
+        return false;
+      }
+
       case "stats" -> {
         requireAuth();
         requireArgs(tokens, 2, "stats show [--from YYYY-MM-DD] [--to YYYY-MM-DD]");
 
         String sub = tokens[1].toLowerCase();
+        if ("monthly".equals(sub)) {
+          Integer year = null;
+          if (tokens.length == 4 && "--year".equals(tokens[2])) {
+            try {
+              year = Integer.parseInt(tokens[3]);
+            } catch (NumberFormatException e) {
+              throw new IllegalArgumentException("Год должен быть числом");
+            }
+          } else if (tokens.length != 2) {
+            throw new IllegalArgumentException("stats monthly [--year YYYY]");
+          }
+
+          System.out.print(
+              reportService.renderMonthly(statsService.monthly(currentWallet(), year)));
+          return false;
+        }
         if (!"show".equals(sub))
           throw new IllegalArgumentException("stats show [--from YYYY-MM-DD] [--to YYYY-MM-DD]");
 
@@ -234,6 +404,15 @@ public class CommandLoop {
         return false;
       }
 
+      case "metrics" -> {
+        System.out.print(MetricsRegistry.global().renderText());
+        if (metricsExporter != null) {
+          metricsExporter.write();
+          System.out.println("\nOK: метрики записаны в " + metricsExporter.getFile());
+        }
+        return false;
+      }
+
       case "snapshot" -> {
         requireAuth();
         requireArgs(tokens, 3, "snapshot export|import <path>");
@@ -249,7 +428,7 @@ public class CommandLoop {
           User u = auth.getCurrentUser();
           Wallet imported = walletStorage.importSnapshot(Path.of(pathStr), u.getLogin());
 
-          walletRepo.save(imported);
+          walletService.replaceWallet(u, imported);
 
           System.out.println("OK: snapshot загружен и применён для пользователя: " + u.getLogin());
         } else {
@@ -259,11 +438,12 @@ public class CommandLoop {
       }
 
       case "report" -> {
-        requireAuth();
-        requireArgs(tokens, 3, "report file <path> [--from YYYY-MM-DD] [--to YYYY-MM-DD]");
+        requireArgs(tokens, 3, "report file|all <path> [--from YYYY-MM-DD] [--to YYYY-MM-DD]");
 
         String sub = tokens[1].toLowerCase();
-        if (!"file".equals(sub)) throw new IllegalArgumentException("report file <path> ...");
+        if (!"file".equals(sub) && !"all".equals(sub)) {
+          throw new IllegalArgumentException("report file|all <path> ...");
+        }
 
         String pathStr = tokens[2];
         LocalDate from = null;
@@ -276,10 +456,33 @@ public class CommandLoop {
             to = LocalDate.parse(tokens[++i]);
           } else {
             throw new IllegalArgumentException(
-                "report file <path> [--from YYYY-MM-DD] [--to YYYY-MM-DD]");
+                "report " + sub + " <path> [--from YYYY-MM-DD] [--to YYYY-MM-DD]");
+          }
+        }
+
+        // Выписки по всем кошелькам каталога данных (команда администратора, без входа)
+        if ("all".equals(sub)) {
+          BatchReportService.BatchResult result = batchReports.buildAll(Path.of(pathStr), from, to);
+          System.out.println(
+              "OK: отчётов сохранено: "
+                  + result.written()
+                  + " из "
+                  + result.wallets()
+                  + " в "
+                  + pathStr
+                  + " ("
+                  + result.elapsedNanos() / 1_000_000
+                  + " мс)");
+          for (String e : result.errors()) {
+            System.out.println("⚠ " + e);
+          }
+          if (result.failed() > result.errors().size()) {
+            System.out.println("⚠ ... и ещё " + (result.failed() - result.errors().size()));
           }
+          return false;
         }
 
+        requireAuth();
         Wallet w = currentWallet();
         String report =
             (from == null && to == null)
@@ -313,11 +516,19 @@ public class CommandLoop {
 
                   income add <category> <amount> [YYYY-MM-DD] [comment...]
                   expense add <category> <amount> [YYYY-MM-DD] [comment...]
+                  batch <path>             (файл со строками income/expense add ...)
+                  import csv <path>        (type,category,amount[,date[,comment]])
 
+                  balance [--asof YYYY-MM-DD]
                   stats show [--from YYYY-MM-DD] [--to YYYY-MM-DD]
+                  stats monthly [--year YYYY]
                   report file <path> [--from YYYY-MM-DD] [--to YYYY-MM-DD]
+                  report all <dir> [--from YYYY-MM-DD] [--to YYYY-MM-DD]
+                                           (отчёты всех пользователей: <dir>/<login>.txt)
 
-                  snapshot export <path>
+                  metrics                  (задержки команд, хранилища и статистики)
+
+                  snapshot export <path>   (.pfm — бинарный формат, иначе JSON)
                   snapshot import <path>
 
                 Пример:
@@ -331,6 +542,39 @@ public class CommandLoop {
                 """);
   }
 
+  // income|expense add <category> <amount> [YYYY-MM-DD] [comment...]
+  private static WalletService.OperationRequest parseOperation(String[] tokens) {
+    String cmd = tokens[0].toLowerCase();
+    String usage = cmd + " add <category> <amount> [YYYY-MM-DD] [comment...]";
+    TransactionType type =
+        switch (cmd) {
+          case "income" -> TransactionType.INCOME;
+          case "expense" -> TransactionType.EXPENSE;
+          default -> throw new IllegalArgumentException("Ожидается income или expense: " + cmd);
+        };
+    if (tokens.length < 2 || !"add".equalsIgnoreCase(tokens[1])) {
+      throw new IllegalArgumentException(usage);
+    }
+    requireArgs(tokens, 4, usage);
+
+    String category = tokens[2];
+    double amount = InputFormats.parsePositiveAmount(tokens[3], "Сумма должна быть числом > 0");
+
+    LocalDate date = null;
+    String comment = null;
+
+    if (tokens.length >= 5) {
+      LocalDate parsed = InputFormats.tryParseDate(tokens[4]);
+      if (parsed != null) {
+        date = parsed;
+        comment = (tokens.length >= 6) ? joinFrom(tokens, 5) : null;
+      } else {
+        comment = joinFrom(tokens, 4);
+      }
+    }
+    return new WalletService.OperationRequest(type, category, amount, date, comment);
+  }
+
   private void requireAuth() {
     if (!auth.isAuthenticated()) {
       throw new IllegalStateException("Сначала выполните login");
@@ -348,7 +592,7 @@ public class CommandLoop {
     if (u == null) return;
 
     Wallet w = walletRepo.getOrCreate(u.getLogin());
-    walletStorage.save(u.getLogin(), w);
+    walletStorage.checkpoint(u.getLogin(), w);
   }
 
   private static void requireArgs(String[] tokens, int n, String usage) {
@@ -368,22 +612,4 @@ public class CommandLoop {
     }
     return sb.toString().trim();
   }
-
-  private static double parsePositiveDouble(String s, String errMsg) {
-    try {
-      double v = Double.parseDouble(s);
-      if (v <= 0) throw new IllegalArgumentException(errMsg);
-      return v;
-    } catch (NumberFormatException e) {
-      throw new IllegalArgumentException(errMsg);
-    }
-  }
-
-  private static LocalDate tryParseDate(String token) {
-    try {
-      return LocalDate.parse(token);
-    } catch (Exception e) {
-      return null;
-    }
-  }
 }
@@ -0,0 +1,52 @@
+package org.com.financeApp.core.models;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Словарь категорий кошелька: имя <-> плотный int id. Id никогда не переиспользуются,
+// поэтому массивы агрегатов можно индексировать id напрямую.
+// Новые категории редки, поэтому массив имён копируется при добавлении: чтение name(id)
+// безопасно без блокировок, в том числе после того, как отчёт отдан вызывающему.
+public final class CategoryDictionary {
+  // null в ConcurrentHashMap не допускается, поэтому id для имени null хранится отдельно
+  private static final int NO_ID = -1;
+
+  private volatile String[] names = new String[0];
+  private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+  private volatile int nullNameId = NO_ID;
+
+  CategoryDictionary() {}
+
+  public int size() {
+    return names.length;
+  }
+
+  public String name(int id) {
+    return names[id];
+  }
+
+  // -1, если категория неизвестна
+  public int find(String name) {
+    if (name == null) return nullNameId;
+    Integer id = idsByName.get(name);
+    return id == null ? NO_ID : id;
+  }
+
+  synchronized int intern(String name) {
+    int id = find(name);
+    if (id != NO_ID) return id;
+
+    String[] current = names;
+    int newId = current.length;
+    String[] grown = Arrays.copyOf(current, newId + 1);
+    grown[newId] = name;
+    names = grown;
+
+    if (name == null) {
+      nullNameId = newId;
+    } else {
+      idsByName.put(name, newId);
+    }
+    return newId;
+  }
+}
@@ -0,0 +1,88 @@
+package org.com.financeApp.core.models;
+
+// Дерево Фенвика по дням (epoch day): сумма за любой период за O(log n).
+// Окно дней расширяется в обе стороны, поэтому операции задним числом тоже поддерживаются.
+final class DailyTotalsIndex {
+  private static final int INITIAL_CAPACITY = 64;
+
+  private int baseDay;
+  private int capacity;
+  private long[] tree = new long[1];
+
+  void add(int epochDay, long amount) {
+    ensureCovers(epochDay);
+    for (int i = epochDay - baseDay + 1; i <= capacity; i += i & -i) {
+      tree[i] += amount;
+    }
+  }
+
+  // Сумма за дни <= epochDay
+  long prefix(int epochDay) {
+    if (capacity == 0 || epochDay < baseDay) return 0;
+
+    long sum = 0;
+    for (int i = (int) Math.min((long) epochDay - baseDay + 1, capacity); i > 0; i -= i & -i) {
+      sum += tree[i];
+    }
+    return sum;
+  }
+
+  // Сумма за дни из [fromDay; toDay]
+  long range(int fromDay, int toDay) {
+    if (fromDay > toDay) return 0;
+    return prefix(toDay) - (fromDay == Integer.MIN_VALUE ? 0 : prefix(fromDay - 1));
+  }
+
+  void clear() {
+    capacity = 0;
+    tree = new long[1];
+  }
+
+  private void ensureCovers(int epochDay) {
+    if (capacity == 0) {
+      capacity = INITIAL_CAPACITY;
+      baseDay = epochDay - capacity / 2;
+      tree = new long[capacity + 1];
+      return;
+    }
+
+    long lastDay = (long) baseDay + capacity - 1;
+    if (epochDay >= baseDay && epochDay <= lastDay) return;
+
+    long lo = Math.min(baseDay, epochDay);
+    long hi = Math.max(lastDay, epochDay);
+    int newCapacity = capacity;
+    while (newCapacity < hi - lo + 1) {
+      newCapacity *= 2;
+    }
+    // При росте влево оставляем запас слева: даты задним числом обычно идут подряд
+    int newBaseDay = epochDay < baseDay ? (int) (hi - newCapacity + 1) : baseDay;
+
+    long[] daily = toDailyValues();
+    long[] newTree = new long[newCapacity + 1];
+    int shift = baseDay - newBaseDay;
+    System.arraycopy(daily, 1, newTree, 1 + shift, capacity);
+    buildInPlace(newTree, newCapacity);
+
+    baseDay = newBaseDay;
+    capacity = newCapacity;
+    tree = newTree;
+  }
+
+  // Обратное к buildInPlace преобразование за O(n): значения по отдельным дням
+  private long[] toDailyValues() {
+    long[] values = tree.clone();
+    for (int i = capacity; i > 0; i--) {
+      int parent = i + (i & -i);
+      if (parent <= capacity) values[parent] -= values[i];
+    }
+    return values;
+  }
+
+  private static void buildInPlace(long[] values, int n) {
+    for (int i = 1; i <= n; i++) {
+      int parent = i + (i & -i);
+      if (parent <= n) values[parent] += values[i];
+    }
+  }
+}
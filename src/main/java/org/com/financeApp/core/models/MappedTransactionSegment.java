@@ -0,0 +1,88 @@
+package org.com.financeApp.core.models;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Неизменяемый сегмент операций поверх буферов колонок (обычно MappedByteBuffer из .pfm файла):
+// значения читаются напрямую из буферов, в куче остаются только редкие комментарии.
+public final class MappedTransactionSegment {
+  private final int size;
+  private final ByteBuffer types;
+  private final ByteBuffer epochDays;
+  private final ByteBuffer amountsMinor;
+  private final ByteBuffer categoryIds;
+  // Номера строк с комментариями по возрастанию и сами комментарии
+  private final int[] commentRows;
+  private final String[] comments;
+  // Id операций в файле не хранятся: старшие биты общие для сегмента, младшие — номер строки
+  private final long idMostBits;
+
+  public MappedTransactionSegment(
+      int size,
+      ByteBuffer types,
+      ByteBuffer epochDays,
+      ByteBuffer amountsMinor,
+      ByteBuffer categoryIds,
+      int[] commentRows,
+      String[] comments) {
+    if (size < 0) throw new IllegalArgumentException("Размер сегмента не может быть отрицательным");
+    requireCapacity(types, size, 1, "types");
+    requireCapacity(epochDays, size, Integer.BYTES, "epochDays");
+    requireCapacity(amountsMinor, size, Long.BYTES, "amountsMinor");
+    requireCapacity(categoryIds, size, Integer.BYTES, "categoryIds");
+    if (commentRows.length != comments.length) {
+      throw new IllegalArgumentException("Число комментариев не совпадает с числом строк");
+    }
+
+    this.size = size;
+    this.types = types;
+    this.epochDays = epochDays;
+    this.amountsMinor = amountsMinor;
+    this.categoryIds = categoryIds;
+    this.commentRows = commentRows.clone();
+    this.comments = comments.clone();
+    this.idMostBits = (ThreadLocalRandom.current().nextLong() & ~0xF000L) | 0x4000L;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  byte type(int row) {
+    return types.get(row);
+  }
+
+  int epochDay(int row) {
+    return epochDays.getInt(row * Integer.BYTES);
+  }
+
+  long amountMinor(int row) {
+    return amountsMinor.getLong(row * Long.BYTES);
+  }
+
+  int categoryId(int row) {
+    return categoryIds.getInt(row * Integer.BYTES);
+  }
+
+  String comment(int row) {
+    int i = Arrays.binarySearch(commentRows, row);
+    return i < 0 ? null : comments[i];
+  }
+
+  long idMostBits() {
+    return idMostBits;
+  }
+
+  long idLeastBits(int row) {
+    return 0x8000000000000000L | row;
+  }
+
+  private static void requireCapacity(ByteBuffer buffer, int size, int width, String name) {
+    Objects.requireNonNull(buffer, name + " не должен быть null");
+    if (buffer.capacity() < (long) size * width) {
+      throw new IllegalArgumentException("Колонка " + name + " меньше размера сегмента");
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package org.com.financeApp.core.models;
+
+import java.math.BigDecimal;
+
+// Денежная сумма в копейках (минорных единицах). В горячих циклах суммируются сырые long,
+// а Money используется на границах: ввод, вывод, сериализация.
+public record Money(long minor) {
+  public static final int SCALE = 2;
+
+  private static final long MINOR_PER_MAJOR = 100;
+  private static final double MAX_MAJOR = (double) (Long.MAX_VALUE / MINOR_PER_MAJOR);
+
+  public static Money of(double amount) {
+    return new Money(toMinor(amount));
+  }
+
+  public static Money ofMinor(long minor) {
+    return new Money(minor);
+  }
+
+  public static long toMinor(double amount) {
+    if (!Double.isFinite(amount) || Math.abs(amount) >= MAX_MAJOR) {
+      throw new IllegalArgumentException("Сумма вне допустимого диапазона: " + amount);
+    }
+    return Math.round(amount * MINOR_PER_MAJOR);
+  }
+
+  public static double toMajor(long minor) {
+    return minor / (double) MINOR_PER_MAJOR;
+  }
+
+  public static BigDecimal toDecimal(long minor) {
+    return BigDecimal.valueOf(minor, SCALE);
+  }
+
+  public static String format(long minor) {
+    return toDecimal(minor).toPlainString();
+  }
+
+  public double toDouble() {
+    return toMajor(minor);
+  }
+
+  @Override
+  public String toString() {
+    return format(minor);
+  }
+}
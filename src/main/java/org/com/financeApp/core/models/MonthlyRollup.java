@@ -0,0 +1,309 @@
+package org.com.financeApp.core.models;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Суммы по месяцам, типам и категориям (в копейках) плюс номера строк операций каждого месяца.
+// Период, выровненный по границам месяцев, считается из готовых сумм; в крайних неполных месяцах
+// просматриваются только их строки, а не все операции кошелька.
+// Копия для snapshot() — это копия каталога месяцев: после неё живой кошелёк копирует месяц
+// перед первым изменением (copy-on-write), а строки месяца дописываются за пределы копии.
+public final class MonthlyRollup {
+  private static final int INITIAL_ROWS = 16;
+  // Меньше строк на задачу не делится: дороже сложить частичные массивы, чем просмотреть строки
+  private static final int MIN_CHUNK_ROWS = 4096;
+  // Более короткие участки подряд идущих строк просматриваются по одной
+  private static final int MIN_KERNEL_RUN = 32;
+
+  private static final class Month {
+    final int key;
+    final int firstDay;
+    final int lastDay;
+    // Поколение живого rollup, в котором месяц создан или скопирован
+    final long generation;
+    long[] incomeById;
+    long[] expenseById;
+    int[] rows;
+    int rowCount;
+
+    Month(int key, long generation, int categories) {
+      this.key = key;
+      LocalDate first = LocalDate.of(Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1, 1);
+      this.firstDay = Math.toIntExact(first.toEpochDay());
+      this.lastDay = firstDay + first.lengthOfMonth() - 1;
+      this.generation = generation;
+      this.incomeById = new long[categories];
+      this.expenseById = new long[categories];
+      this.rows = new int[INITIAL_ROWS];
+    }
+
+    private Month(Month source, long generation) {
+      this.key = source.key;
+      this.firstDay = source.firstDay;
+      this.lastDay = source.lastDay;
+      this.generation = generation;
+      this.incomeById = source.incomeById.clone();
+      this.expenseById = source.expenseById.clone();
+      this.rows = source.rows;
+      this.rowCount = source.rowCount;
+    }
+
+    long[] totals(TransactionType type) {
+      return type == TransactionType.INCOME ? incomeById : expenseById;
+    }
+  }
+
+  // Месяцы по возрастанию ключа (год * 12 + месяц - 1). Каталог у копии свой, общие — только
+  // объекты Month
+  private int[] keys = new int[0];
+  private Month[] months = new Month[0];
+  private int count;
+
+  private final boolean frozen;
+  private long generation;
+  // Выставляется snapshot(): текущие месяцы видны копии и перед изменением копируются
+  private volatile boolean shared;
+
+  MonthlyRollup() {
+    this.frozen = false;
+  }
+
+  private MonthlyRollup(MonthlyRollup source) {
+    this.frozen = true;
+    this.count = source.count;
+    this.keys = Arrays.copyOf(source.keys, source.count);
+    this.months = Arrays.copyOf(source.months, source.count);
+  }
+
+  // Неизменяемая копия на момент вызова
+  MonthlyRollup snapshot() {
+    shared = true;
+    return new MonthlyRollup(this);
+  }
+
+  void add(TransactionType type, int categoryId, long amount, int epochDay, int row) {
+    if (frozen) throw new IllegalStateException("Snapshot нельзя изменять");
+    if (shared) {
+      generation++;
+      shared = false;
+    }
+
+    Month month = writableMonth(monthKey(epochDay), categoryId + 1);
+    long[] totals = month.totals(type);
+    if (categoryId >= totals.length) {
+      int capacity = Math.max(categoryId + 1, totals.length * 2);
+      month.incomeById = Arrays.copyOf(month.incomeById, capacity);
+      month.expenseById = Arrays.copyOf(month.expenseById, capacity);
+      totals = month.totals(type);
+    }
+    totals[categoryId] += amount;
+
+    if (month.rowCount == month.rows.length) {
+      month.rows = Arrays.copyOf(month.rows, month.rows.length * 2);
+    }
+    month.rows[month.rowCount++] = row;
+  }
+
+  void clear() {
+    if (frozen) throw new IllegalStateException("Snapshot нельзя изменять");
+    keys = new int[0];
+    months = new Month[0];
+    count = 0;
+  }
+
+  public List<YearMonth> months() {
+    List<YearMonth> result = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) result.add(toYearMonth(keys[i]));
+    return result;
+  }
+
+  // Копия сумм месяца по категориям, индекс — id категории (пустой массив, если операций нет)
+  public long[] categoryTotalsMinor(YearMonth month, TransactionType type) {
+    int i = Arrays.binarySearch(keys, 0, count, key(month.getYear(), month.getMonthValue()));
+    return i < 0 ? new long[0] : months[i].totals(type).clone();
+  }
+
+  // Добавляет к incomeById/expenseById суммы операций за дни [fromDay; toDay].
+  // store — хранилище того же состояния кошелька (для строк крайних месяцев).
+  // Крайний месяц, в котором не меньше parallelThreshold строк, просматривается параллельно
+  // в pool (0 — всегда последовательно; пул с одним потоком — тоже). Суммы целочисленные,
+  // поэтому порядок сложения частичных сумм на результат не влияет: он совпадает
+  // с последовательным до бита. Возвращает число просмотренных строк
+  public long accumulate(
+      int fromDay,
+      int toDay,
+      TransactionStore store,
+      long[] incomeById,
+      long[] expenseById,
+      int parallelThreshold,
+      ForkJoinPool pool) {
+    if (fromDay > toDay || count == 0) return 0;
+
+    long scanned = 0;
+    int from = fromDay == Integer.MIN_VALUE ? 0 : lowerBound(monthKey(fromDay));
+    int toKey = toDay == Integer.MAX_VALUE ? Integer.MAX_VALUE : monthKey(toDay);
+    for (int i = from; i < count && keys[i] <= toKey; i++) {
+      Month month = months[i];
+      if (month.firstDay >= fromDay && month.lastDay <= toDay) {
+        addAll(month.incomeById, incomeById);
+        addAll(month.expenseById, expenseById);
+        continue;
+      }
+
+      // Крайний неполный месяц: только его строки
+      scanned += month.rowCount;
+      int workers = pool.getParallelism();
+      if (parallelThreshold > 0 && month.rowCount >= parallelThreshold && workers > 1) {
+        int chunk = Math.max(MIN_CHUNK_ROWS, month.rowCount / (workers * 4));
+        EdgeScan scan =
+            new EdgeScan(
+                month.rows, 0, month.rowCount, chunk, fromDay, toDay, store, incomeById.length);
+        long[][] sums = pool.invoke(scan);
+        addAll(sums[0], incomeById);
+        addAll(sums[1], expenseById);
+      } else {
+        scanRows(month.rows, 0, month.rowCount, fromDay, toDay, store, incomeById, expenseById);
+      }
+    }
+    return scanned;
+  }
+
+  private static void scanRows(
+      int[] rows,
+      int start,
+      int end,
+      int fromDay,
+      int toDay,
+      TransactionStore store,
+      long[] incomeById,
+      long[] expenseById) {
+    int r = start;
+    while (r < end) {
+      // Строки месяца идут по возрастанию; операции, добавленные подряд (импорт, загрузка
+      // snapshot), образуют непрерывные участки — их колонки просматривает ScanKernels
+      int run = r + 1;
+      while (run < end && rows[run] == rows[run - 1] + 1) run++;
+      if (run - r >= MIN_KERNEL_RUN) {
+        store.accumulateRange(rows[r], rows[run - 1] + 1, fromDay, toDay, incomeById, expenseById);
+        r = run;
+        continue;
+      }
+
+      for (; r < run; r++) {
+        int row = rows[r];
+        int day = store.epochDay(row);
+        if (day < fromDay || day > toDay) continue;
+        long[] target = store.type(row) == TransactionType.INCOME ? incomeById : expenseById;
+        target[store.categoryId(row)] += store.amountMinor(row);
+      }
+    }
+  }
+
+  // Строки [start; end) месяца делятся пополам до chunk строк; каждая часть считает свои
+  // суммы по категориям, при возврате они складываются
+  private static final class EdgeScan extends RecursiveTask<long[][]> {
+    private static final long serialVersionUID = 1L;
+
+    private final int[] rows;
+    private final int start;
+    private final int end;
+    private final int chunk;
+    private final int fromDay;
+    private final int toDay;
+    // Задачи не сериализуются: хранилище живёт только в пуле, пока идёт просмотр
+    private final transient TransactionStore store;
+    private final int categories;
+
+    EdgeScan(
+        int[] rows,
+        int start,
+        int end,
+        int chunk,
+        int fromDay,
+        int toDay,
+        TransactionStore store,
+        int categories) {
+      this.rows = rows;
+      this.start = start;
+      this.end = end;
+      this.chunk = chunk;
+      this.fromDay = fromDay;
+      this.toDay = toDay;
+      this.store = store;
+      this.categories = categories;
+    }
+
+    @Override
+    protected long[][] compute() {
+      if (end - start <= chunk) {
+        long[] income = new long[categories];
+        long[] expense = new long[categories];
+        scanRows(rows, start, end, fromDay, toDay, store, income, expense);
+        return new long[][] {income, expense};
+      }
+
+      int mid = (start + end) >>> 1;
+      EdgeScan left = new EdgeScan(rows, start, mid, chunk, fromDay, toDay, store, categories);
+      EdgeScan right = new EdgeScan(rows, mid, end, chunk, fromDay, toDay, store, categories);
+      left.fork();
+      long[][] sums = right.compute();
+      long[][] other = left.join();
+      addAll(other[0], sums[0]);
+      addAll(other[1], sums[1]);
+      return sums;
+    }
+  }
+
+  private Month writableMonth(int key, int categories) {
+    int i = Arrays.binarySearch(keys, 0, count, key);
+    if (i >= 0) {
+      Month month = months[i];
+      if (month.generation != generation) {
+        month = new Month(month, generation);
+        months[i] = month;
+      }
+      return month;
+    }
+
+    // Новые месяцы редки, поэтому вставка со сдвигом
+    int at = -i - 1;
+    if (count == keys.length) {
+      int capacity = Math.max(8, count * 2);
+      keys = Arrays.copyOf(keys, capacity);
+      months = Arrays.copyOf(months, capacity);
+    }
+    System.arraycopy(keys, at, keys, at + 1, count - at);
+    System.arraycopy(months, at, months, at + 1, count - at);
+    Month month = new Month(key, generation, categories);
+    keys[at] = key;
+    months[at] = month;
+    count++;
+    return month;
+  }
+
+  private int lowerBound(int key) {
+    int i = Arrays.binarySearch(keys, 0, count, key);
+    return i >= 0 ? i : -i - 1;
+  }
+
+  private static void addAll(long[] source, long[] target) {
+    int n = Math.min(source.length, target.length);
+    for (int id = 0; id < n; id++) target[id] += source[id];
+  }
+
+  private static int monthKey(int epochDay) {
+    LocalDate date = LocalDate.ofEpochDay(epochDay);
+    return key(date.getYear(), date.getMonthValue());
+  }
+
+  private static int key(int year, int month) {
+    return year * 12 + month - 1;
+  }
+
+  private static YearMonth toYearMonth(int key) {
+    return YearMonth.of(Math.floorDiv(key, 12), Math.floorMod(key, 12) + 1);
+  }
+}
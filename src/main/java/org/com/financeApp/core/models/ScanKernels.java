@@ -0,0 +1,84 @@
+package org.com.financeApp.core.models;
+
+// Ядра просмотра колонок операций: суммы по категориям строк чанка с датой в периоде.
+// Векторная реализация (jdk.incubator.vector) включается, если JVM запущена с
+// --add-modules jdk.incubator.vector; иначе — скалярная. -Dfinance.vector=false выключает
+// векторную реализацию и при наличии модуля. Результаты обеих совпадают до бита
+public final class ScanKernels {
+  static final byte INCOME = (byte) TransactionType.INCOME.ordinal();
+
+  interface Kernel {
+    // Добавляет amounts[i] к incomeById/expenseById[categories[i]] для i из [start; end)
+    // с days[i] в [fromDay; toDay]
+    void accumulate(
+        long[] amounts,
+        int[] days,
+        byte[] types,
+        int[] categories,
+        int start,
+        int end,
+        int fromDay,
+        int toDay,
+        long[] incomeById,
+        long[] expenseById);
+  }
+
+  private static final Kernel KERNEL = load();
+
+  private ScanKernels() {}
+
+  public static boolean isVectorized() {
+    return !(KERNEL instanceof Scalar);
+  }
+
+  static void accumulate(
+      long[] amounts,
+      int[] days,
+      byte[] types,
+      int[] categories,
+      int start,
+      int end,
+      int fromDay,
+      int toDay,
+      long[] incomeById,
+      long[] expenseById) {
+    KERNEL.accumulate(
+        amounts, days, types, categories, start, end, fromDay, toDay, incomeById, expenseById);
+  }
+
+  // Класс с Vector API загружается по имени: без модуля в JVM он не должен даже линковаться
+  private static Kernel load() {
+    if (!Boolean.parseBoolean(System.getProperty("finance.vector", "true"))) return new Scalar();
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return new Scalar();
+    try {
+      return (Kernel)
+          Class.forName(ScanKernels.class.getPackageName() + ".VectorScanKernel")
+              .getDeclaredConstructor()
+              .newInstance();
+    } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+      return new Scalar();
+    }
+  }
+
+  static final class Scalar implements Kernel {
+    @Override
+    public void accumulate(
+        long[] amounts,
+        int[] days,
+        byte[] types,
+        int[] categories,
+        int start,
+        int end,
+        int fromDay,
+        int toDay,
+        long[] incomeById,
+        long[] expenseById) {
+      for (int i = start; i < end; i++) {
+        int day = days[i];
+        if (day < fromDay || day > toDay) continue;
+        long[] target = types[i] == INCOME ? incomeById : expenseById;
+        target[categories[i]] += amounts[i];
+      }
+    }
+  }
+}
@@ -4,23 +4,65 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 public class Transaction {
+  // Поддерживаемые даты операций: индексы по дням держат окно от самой ранней даты кошелька
+  // до самой поздней, поэтому случайный 0001 или 9999 год не должен в него попадать
+  public static final LocalDate MIN_DATE = LocalDate.of(1900, 1, 1);
+  public static final LocalDate MAX_DATE = LocalDate.of(2199, 12, 31);
+
+  private static final int MIN_DAY = Math.toIntExact(MIN_DATE.toEpochDay());
+  private static final int MAX_DAY = Math.toIntExact(MAX_DATE.toEpochDay());
+
   private final UUID id;
   private final TransactionType type;
   private final String category;
-  private final double amount;
+  private final long amountMinor;
   private final LocalDate date;
   private final String comment;
 
   public Transaction(
       TransactionType type, String category, double amount, LocalDate date, String comment) {
-    this.id = UUID.randomUUID();
+    this(UUID.randomUUID(), type, category, Money.of(amount), date, comment);
+  }
+
+  public Transaction(
+      TransactionType type, String category, Money amount, LocalDate date, String comment) {
+    this(UUID.randomUUID(), type, category, amount, date, comment);
+  }
+
+  public Transaction(
+      UUID id,
+      TransactionType type,
+      String category,
+      Money amount,
+      LocalDate date,
+      String comment) {
+    this.id = id;
     this.type = type;
     this.category = category;
-    this.amount = amount;
+    this.amountMinor = amount.minor();
     this.date = date;
     this.comment = comment;
   }
 
+  public static LocalDate requireSupportedDate(LocalDate date) {
+    if (date != null && (date.isBefore(MIN_DATE) || date.isAfter(MAX_DATE))) {
+      throw unsupported(date.toString());
+    }
+    return date;
+  }
+
+  static int requireSupportedDay(int epochDay) {
+    if (epochDay < MIN_DAY || epochDay > MAX_DAY) {
+      throw unsupported(LocalDate.ofEpochDay(epochDay).toString());
+    }
+    return epochDay;
+  }
+
+  private static IllegalArgumentException unsupported(String date) {
+    return new IllegalArgumentException(
+        "Дата операции " + date + " вне допустимого диапазона " + MIN_DATE + " — " + MAX_DATE);
+  }
+
   public UUID getId() {
     return id;
   }
@@ -34,7 +76,15 @@ public class Transaction {
   }
 
   public double getAmount() {
-    return amount;
+    return Money.toMajor(amountMinor);
+  }
+
+  public Money getMoney() {
+    return Money.ofMinor(amountMinor);
+  }
+
+  public long getAmountMinor() {
+    return amountMinor;
   }
 
   public LocalDate getDate() {
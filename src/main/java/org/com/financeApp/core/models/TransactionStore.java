@@ -0,0 +1,290 @@
+package org.com.financeApp.core.models;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Колоночное хранилище операций кошелька: по примитивному массиву на поле вместо объекта на строку.
+// Transaction создаётся только по запросу в get(i).
+// Строки [0; baseSize) могут читаться из отображённого в память сегмента (только чтение),
+// новые операции дописываются в хвост — массивы в куче.
+// Хвост — журнал из чанков по CHUNK_SIZE строк: заполненный чанк больше не меняется, при росте
+// копируется только последний (неполный) чанк и каталог ссылок. Поэтому snapshot() — это
+// копия каталога, а не строк, и читатели snapshot не мешают дальнейшим append.
+public final class TransactionStore {
+  private static final int CHUNK_SHIFT = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int INITIAL_CHUNK_CAPACITY = 16;
+  private static final TransactionType[] TYPES = TransactionType.values();
+
+  // Каталоги чанков, по одному на колонку; длина каталога — число выделенных чанков
+  private long[][] idMostBits = new long[0][];
+  private long[][] idLeastBits = new long[0][];
+  private long[][] amountsMinor = new long[0][];
+  private int[][] epochDays = new int[0][];
+  private int[][] categoryIds = new int[0][];
+  private byte[][] types = new byte[0][];
+  // Комментарии редки, поэтому массив чанка заводится только при первом комментарии в нём
+  private String[][] comments = new String[0][];
+  private int size;
+
+  private MappedTransactionSegment base;
+  private int baseSize;
+
+  private final CategoryDictionary categories;
+  private final boolean frozen;
+
+  TransactionStore(CategoryDictionary categories) {
+    this.categories = categories;
+    this.frozen = false;
+  }
+
+  // Неизменяемая копия на момент вызова: строки не копируются, только каталоги чанков
+  private TransactionStore(TransactionStore source) {
+    this.categories = source.categories;
+    this.frozen = true;
+    this.size = source.size;
+    this.base = source.base;
+    this.baseSize = source.baseSize;
+    this.idMostBits = source.idMostBits.clone();
+    this.idLeastBits = source.idLeastBits.clone();
+    this.amountsMinor = source.amountsMinor.clone();
+    this.epochDays = source.epochDays.clone();
+    this.categoryIds = source.categoryIds.clone();
+    this.types = source.types.clone();
+    this.comments = source.comments.clone();
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public TransactionType type(int row) {
+    if (row < baseSize) return TYPES[base.type(row)];
+    int t = row - baseSize;
+    return TYPES[types[t >>> CHUNK_SHIFT][t & CHUNK_MASK]];
+  }
+
+  public long amountMinor(int row) {
+    if (row < baseSize) return base.amountMinor(row);
+    int t = row - baseSize;
+    return amountsMinor[t >>> CHUNK_SHIFT][t & CHUNK_MASK];
+  }
+
+  public int epochDay(int row) {
+    if (row < baseSize) return base.epochDay(row);
+    int t = row - baseSize;
+    return epochDays[t >>> CHUNK_SHIFT][t & CHUNK_MASK];
+  }
+
+  public int categoryId(int row) {
+    if (row < baseSize) return base.categoryId(row);
+    int t = row - baseSize;
+    return categoryIds[t >>> CHUNK_SHIFT][t & CHUNK_MASK];
+  }
+
+  public String category(int row) {
+    return categories.name(categoryId(row));
+  }
+
+  public String comment(int row) {
+    if (row < baseSize) return base.comment(row);
+    int t = row - baseSize;
+    String[] chunk = comments[t >>> CHUNK_SHIFT];
+    return chunk == null ? null : chunk[t & CHUNK_MASK];
+  }
+
+  public Transaction get(int row) {
+    Objects.checkIndex(row, size);
+    UUID id;
+    if (row < baseSize) {
+      id = new UUID(base.idMostBits(), base.idLeastBits(row));
+    } else {
+      int t = row - baseSize;
+      id =
+          new UUID(
+              idMostBits[t >>> CHUNK_SHIFT][t & CHUNK_MASK],
+              idLeastBits[t >>> CHUNK_SHIFT][t & CHUNK_MASK]);
+    }
+    return new Transaction(
+        id,
+        type(row),
+        category(row),
+        Money.ofMinor(amountMinor(row)),
+        LocalDate.ofEpochDay(epochDay(row)),
+        comment(row));
+  }
+
+  // Суммы по категориям строк [startRow; endRow) с датой в [fromDay; toDay]: строки чанков
+  // обрабатывает ScanKernels, строки отображённого сегмента — по одной
+  void accumulateRange(
+      int startRow, int endRow, int fromDay, int toDay, long[] incomeById, long[] expenseById) {
+    int row = startRow;
+    for (; row < endRow && row < baseSize; row++) {
+      int day = base.epochDay(row);
+      if (day < fromDay || day > toDay) continue;
+      long[] target = base.type(row) == ScanKernels.INCOME ? incomeById : expenseById;
+      target[base.categoryId(row)] += base.amountMinor(row);
+    }
+
+    while (row < endRow) {
+      int t = row - baseSize;
+      int chunk = t >>> CHUNK_SHIFT;
+      int offset = t & CHUNK_MASK;
+      int n = Math.min(endRow - row, CHUNK_SIZE - offset);
+      ScanKernels.accumulate(
+          amountsMinor[chunk],
+          epochDays[chunk],
+          types[chunk],
+          categoryIds[chunk],
+          offset,
+          offset + n,
+          fromDay,
+          toDay,
+          incomeById,
+          expenseById);
+      row += n;
+    }
+  }
+
+  // Число строк, читаемых из отображённого сегмента
+  public int mappedSize() {
+    return baseSize;
+  }
+
+  TransactionStore snapshot() {
+    return frozen ? this : new TransactionStore(this);
+  }
+
+  // Пустое хранилище получает строки сегмента. Непустое заменяет ими свои первые строки
+  // (сегмент должен содержать их в том же порядке, например после записи в файл); строки
+  // сверх сегмента остаются в хвосте
+  void attach(MappedTransactionSegment segment) {
+    requireMutable();
+    int newBaseSize = segment.size();
+    if (size != 0 && (newBaseSize < baseSize || newBaseSize > size)) {
+      throw new IllegalArgumentException(
+          "Сегмент содержит " + newBaseSize + " операций, а хранилище " + size);
+    }
+
+    // Строки, не попавшие в сегмент, переносятся в новые чанки; старые чанки остаются
+    // нетронутыми для уже выданных snapshot
+    TransactionStore old = new TransactionStore(this);
+    int keepFrom = size == 0 ? 0 : newBaseSize;
+    int oldSize = size;
+
+    idMostBits = new long[0][];
+    idLeastBits = new long[0][];
+    amountsMinor = new long[0][];
+    epochDays = new int[0][];
+    categoryIds = new int[0][];
+    types = new byte[0][];
+    comments = new String[0][];
+    base = segment;
+    baseSize = newBaseSize;
+    size = newBaseSize;
+
+    for (int row = keepFrom; row < oldSize; row++) {
+      int t = row - old.baseSize;
+      append(
+          old.idMostBits[t >>> CHUNK_SHIFT][t & CHUNK_MASK],
+          old.idLeastBits[t >>> CHUNK_SHIFT][t & CHUNK_MASK],
+          old.type(row),
+          old.categoryId(row),
+          old.amountMinor(row),
+          old.epochDay(row),
+          old.comment(row));
+    }
+  }
+
+  void append(Transaction tx) {
+    append(
+        tx.getId().getMostSignificantBits(),
+        tx.getId().getLeastSignificantBits(),
+        tx.getType(),
+        categories.intern(tx.getCategory()),
+        tx.getAmountMinor(),
+        Math.toIntExact(tx.getDate().toEpochDay()),
+        tx.getComment());
+  }
+
+  // Строка без объекта Transaction; id генерируется дешёвым ГПСЧ (UUID v4 формата),
+  // т.к. id не сохраняется в файлах и нужен только для идентичности в пределах процесса
+  void append(
+      TransactionType type, int categoryId, long amountMinor, int epochDay, String comment) {
+    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+    long most = (rnd.nextLong() & ~0xF000L) | 0x4000L;
+    long least = (rnd.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    append(most, least, type, categoryId, amountMinor, epochDay, comment);
+  }
+
+  private void append(
+      long idMost,
+      long idLeast,
+      TransactionType type,
+      int categoryId,
+      long amountMinor,
+      int epochDay,
+      String comment) {
+    requireMutable();
+    int t = size - baseSize;
+    int chunk = t >>> CHUNK_SHIFT;
+    int offset = t & CHUNK_MASK;
+    ensureChunk(chunk, offset);
+
+    idMostBits[chunk][offset] = idMost;
+    idLeastBits[chunk][offset] = idLeast;
+    amountsMinor[chunk][offset] = amountMinor;
+    epochDays[chunk][offset] = epochDay;
+    categoryIds[chunk][offset] = categoryId;
+    types[chunk][offset] = (byte) type.ordinal();
+
+    if (comment != null) {
+      if (comments[chunk] == null) comments[chunk] = new String[types[chunk].length];
+      comments[chunk][offset] = comment;
+    }
+
+    size++;
+  }
+
+  // Последний чанк растёт удвоением до CHUNK_SIZE (маленьким кошелькам не нужен целый чанк).
+  // Рост заменяет массив чанка копией: snapshot продолжают видеть прежний массив
+  private void ensureChunk(int chunk, int offset) {
+    if (chunk == types.length) {
+      int chunks = chunk + 1;
+      idMostBits = Arrays.copyOf(idMostBits, chunks);
+      idLeastBits = Arrays.copyOf(idLeastBits, chunks);
+      amountsMinor = Arrays.copyOf(amountsMinor, chunks);
+      epochDays = Arrays.copyOf(epochDays, chunks);
+      categoryIds = Arrays.copyOf(categoryIds, chunks);
+      types = Arrays.copyOf(types, chunks);
+      comments = Arrays.copyOf(comments, chunks);
+
+      int capacity = chunk == 0 ? INITIAL_CHUNK_CAPACITY : CHUNK_SIZE;
+      idMostBits[chunk] = new long[capacity];
+      idLeastBits[chunk] = new long[capacity];
+      amountsMinor[chunk] = new long[capacity];
+      epochDays[chunk] = new int[capacity];
+      categoryIds[chunk] = new int[capacity];
+      types[chunk] = new byte[capacity];
+      return;
+    }
+
+    int capacity = types[chunk].length;
+    if (offset < capacity) return;
+
+    int grown = Math.min(CHUNK_SIZE, capacity * 2);
+    idMostBits[chunk] = Arrays.copyOf(idMostBits[chunk], grown);
+    idLeastBits[chunk] = Arrays.copyOf(idLeastBits[chunk], grown);
+    amountsMinor[chunk] = Arrays.copyOf(amountsMinor[chunk], grown);
+    epochDays[chunk] = Arrays.copyOf(epochDays[chunk], grown);
+    categoryIds[chunk] = Arrays.copyOf(categoryIds[chunk], grown);
+    types[chunk] = Arrays.copyOf(types[chunk], grown);
+    if (comments[chunk] != null) comments[chunk] = Arrays.copyOf(comments[chunk], grown);
+  }
+
+  private void requireMutable() {
+    if (frozen) throw new IllegalStateException("Snapshot операций нельзя изменять");
+  }
+}
@@ -1,6 +1,11 @@
 package org.com.financeApp.core.models;
 
+import java.util.regex.Pattern;
+
 public class User {
+  // Логин становится именем файлов кошелька в data/, поэтому в нём только безопасные символы
+  private static final Pattern LOGIN = Pattern.compile("[A-Za-z0-9_.-]{1,64}");
+
   private final String login;
   private final String password;
 
@@ -15,6 +20,14 @@ public class User {
     this.login = login;
   }
 
+  // Без разделителей пути, «..» и ведущей точки: имя файла не выйдет за каталог хранилища
+  public static boolean isSafeLogin(String login) {
+    return login != null
+        && LOGIN.matcher(login).matches()
+        && !login.startsWith(".")
+        && !login.contains("..");
+  }
+
   public String getPassword() {
     return password;
   }
@@ -0,0 +1,97 @@
+package org.com.financeApp.core.models;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// Векторная реализация ScanKernels: предикаты периода (по дням) и типа (по колонке типов)
+// считаются сразу для целого вектора, из них — маски доходов и расходов; блоки целиком вне
+// периода пропускаются. Если все строки блока одной категории, суммы доходов и расходов
+// складываются маскированными reduce. Иначе сложение по категориям остаётся поэлементным:
+// в Vector API нет scatter со сложением, а одинаковые категории внутри вектора он бы потерял.
+// Поэлементный шаг идёт уже без ветвлений по дате и типу.
+// Загружается только через ScanKernels при наличии модуля jdk.incubator.vector
+final class VectorScanKernel implements ScanKernels.Kernel {
+  private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+  // Столько же дорожек, сколько у LONGS: маски дат и типов переносятся на суммы без перестановок
+  private static final VectorSpecies<Integer> INTS =
+      VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.length() * Integer.SIZE));
+  // Типы читаются по 8 байт (самая узкая форма) и расширяются до INTS; лишние дорожки
+  // отбрасываются
+  private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+
+  VectorScanKernel() {
+    if (LONGS.length() < 2 || LONGS.length() > BYTES.length()) {
+      throw new UnsupportedOperationException("Нет подходящих векторных регистров для long");
+    }
+  }
+
+  @Override
+  public void accumulate(
+      long[] amounts,
+      int[] days,
+      byte[] types,
+      int[] categories,
+      int start,
+      int end,
+      int fromDay,
+      int toDay,
+      long[] incomeById,
+      long[] expenseById) {
+    int lanes = LONGS.length();
+    long[] income = new long[lanes];
+    long[] expense = new long[lanes];
+    int bound = start + LONGS.loopBound(end - start);
+
+    int i = start;
+    for (; i < bound; i += lanes) {
+      IntVector day = IntVector.fromArray(INTS, days, i);
+      VectorMask<Integer> inPeriod =
+          day.compare(VectorOperators.GE, fromDay).and(day.compare(VectorOperators.LE, toDay));
+      if (!inPeriod.anyTrue()) continue;
+
+      VectorMask<Integer> isIncome =
+          types(types, i).compare(VectorOperators.EQ, ScanKernels.INCOME).and(inPeriod);
+      VectorMask<Long> incomeMask = isIncome.cast(LONGS);
+      VectorMask<Long> expenseMask = inPeriod.andNot(isIncome).cast(LONGS);
+      LongVector amount = LongVector.fromArray(LONGS, amounts, i);
+
+      IntVector category = IntVector.fromArray(INTS, categories, i);
+      int first = category.lane(0);
+      if (category.compare(VectorOperators.EQ, first).allTrue()) {
+        incomeById[first] += amount.reduceLanes(VectorOperators.ADD, incomeMask);
+        expenseById[first] += amount.reduceLanes(VectorOperators.ADD, expenseMask);
+        continue;
+      }
+
+      LongVector zero = LongVector.zero(LONGS);
+      zero.blend(amount, incomeMask).intoArray(income, 0);
+      zero.blend(amount, expenseMask).intoArray(expense, 0);
+      for (int lane = 0; lane < lanes; lane++) {
+        int id = categories[i + lane];
+        incomeById[id] += income[lane];
+        expenseById[id] += expense[lane];
+      }
+    }
+
+    for (; i < end; i++) {
+      int d = days[i];
+      if (d < fromDay || d > toDay) continue;
+      long[] target = types[i] == ScanKernels.INCOME ? incomeById : expenseById;
+      target[categories[i]] += amounts[i];
+    }
+  }
+
+  // Типы строк [i; i + lanes) как int-вектор. В конце массива читаются только байты внутри него
+  private static IntVector types(byte[] types, int i) {
+    ByteVector bytes =
+        i + BYTES.length() <= types.length
+            ? ByteVector.fromArray(BYTES, types, i)
+            : ByteVector.fromArray(BYTES, types, i, BYTES.indexInRange(i, types.length));
+    return (IntVector) bytes.castShape(INTS, 0);
+  }
+}
@@ -1,12 +1,50 @@
 package org.com.financeApp.core.models;
 
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
+// Кошелёк безопасен для конкурентного доступа: изменения идут под write lock, чтения —
+// оптимистично (StampedLock) и повторяются под read lock, если во время чтения была запись.
+// Составные чтения (обход getTransactionStore) нужно оборачивать в read(...); долгим читателям
+// (отчёты, экспорт) лучше брать snapshot() — он не держит блокировку во время чтения.
 public class Wallet {
   private final String ownerLogin;
-  private final List<Transaction> transactions = new ArrayList<>();
-  private final Set<String> categories = new HashSet<>();
-  private final Map<String, Double> budgetsByCategory = new HashMap<>();
+  private final StampedLock lock = new StampedLock();
+  private final CategoryDictionary dictionary = new CategoryDictionary();
+  private final TransactionStore transactions = new TransactionStore(dictionary);
+  private final List<Transaction> transactionsView =
+      new AbstractList<>() {
+        @Override
+        public Transaction get(int index) {
+          return read(() -> transactions.get(index));
+        }
+
+        @Override
+        public int size() {
+          return (int) readLong(transactions::size);
+        }
+      };
+
+  // Категории, бюджеты и агрегаты индексируются id из dictionary
+  private final BitSet declaredCategories = new BitSet();
+  private final BitSet budgetedCategories = new BitSet();
+  private long[] budgetsById = new long[0];
+
+  // Агрегаты (в копейках) поддерживаются инкрементально в addTransaction,
+  // чтобы не пересканировать операции; при загрузке пересчитываются одним проходом
+  private long totalIncome;
+  private long totalExpense;
+  private long[] incomeByCategoryId = new long[0];
+  private long[] expenseByCategoryId = new long[0];
+  private final DailyTotalsIndex incomeByDay = new DailyTotalsIndex();
+  private final DailyTotalsIndex expenseByDay = new DailyTotalsIndex();
+  private final MonthlyRollup monthly = new MonthlyRollup();
+
+  // Растёт с каждым изменением содержимого кошелька
+  private long version;
 
   public Wallet(String ownerLogin) {
     this.ownerLogin = ownerLogin;
@@ -16,51 +54,387 @@ public class Wallet {
     return ownerLogin;
   }
 
+  // Чтение без блокировки. Если во время body шла запись (в том числе если body упал на
+  // несогласованном состоянии), body выполняется повторно под read lock.
+  // Внутри body нельзя изменять этот кошелёк.
+  public <T> T read(Supplier<T> body) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        T result = body.get();
+        if (lock.validate(stamp)) return result;
+      } catch (RuntimeException e) {
+        if (lock.validate(stamp)) throw e;
+      }
+    }
+
+    stamp = lock.readLock();
+    try {
+      return body.get();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  public long readLong(LongSupplier body) {
+    long stamp = lock.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        long result = body.getAsLong();
+        if (lock.validate(stamp)) return result;
+      } catch (RuntimeException e) {
+        if (lock.validate(stamp)) throw e;
+      }
+    }
+
+    stamp = lock.readLock();
+    try {
+      return body.getAsLong();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  public long getVersion() {
+    return readLong(() -> version);
+  }
+
+  // Неизменяемый view на текущий момент. Стоимость — O(категорий + чанков операций),
+  // сами операции не копируются, а последующие изменения кошелька в view не видны.
+  // Не через оптимистичный read: monthly.snapshot() помечает месяцы общими, и эта пометка
+  // не должна пересекаться с записью
+  public WalletView snapshot() {
+    long stamp = lock.readLock();
+    try {
+      int categories = dictionary.size();
+      return new WalletView(
+          ownerLogin,
+          version,
+          dictionary,
+          transactions.snapshot(),
+          (BitSet) declaredCategories.clone(),
+          (BitSet) budgetedCategories.clone(),
+          Arrays.copyOf(budgetsById, categories),
+          totalIncome,
+          totalExpense,
+          Arrays.copyOf(incomeByCategoryId, categories),
+          Arrays.copyOf(expenseByCategoryId, categories),
+          monthly.snapshot());
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  // Операции материализуются в Transaction лениво, при обращении к элементу списка
   public List<Transaction> getTransactions() {
-    return Collections.unmodifiableList(transactions);
+    return transactionsView;
+  }
+
+  // Колонки операций без блокировок: обходить только внутри read(...)
+  public TransactionStore getTransactionStore() {
+    return transactions;
+  }
+
+  public CategoryDictionary getCategoryDictionary() {
+    return dictionary;
   }
 
   public Set<String> getCategories() {
-    return Collections.unmodifiableSet(categories);
+    return read(
+        () -> {
+          Set<String> result = new HashSet<>();
+          declaredCategories.stream().forEach(id -> result.add(dictionary.name(id)));
+          return Collections.unmodifiableSet(result);
+        });
   }
 
   public Map<String, Double> getBudgetsByCategory() {
-    return Collections.unmodifiableMap(budgetsByCategory);
+    return read(
+        () -> {
+          Map<String, Double> result = new HashMap<>();
+          budgetedCategories.stream()
+              .forEach(id -> result.put(dictionary.name(id), Money.toMajor(budgetsById[id])));
+          return Collections.unmodifiableMap(result);
+        });
   }
 
   public void addCategory(String name) {
-    categories.add(name);
+    long stamp = lock.writeLock();
+    try {
+      declaredCategories.set(internCategory(name));
+      version++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
   }
 
   public boolean hasCategory(String name) {
-    return categories.contains(name);
+    return read(
+        () -> {
+          int id = dictionary.find(name);
+          return id >= 0 && declaredCategories.get(id);
+        });
   }
 
   public void setBudget(String category, double limit) {
-    budgetsByCategory.put(category, limit);
+    setBudget(category, Money.of(limit));
+  }
+
+  public void setBudget(String category, Money limit) {
+    long stamp = lock.writeLock();
+    try {
+      int id = internCategory(category);
+      budgetsById[id] = limit.minor();
+      budgetedCategories.set(id);
+      version++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
   }
 
   public Double getBudget(String category) {
-    return budgetsByCategory.get(category);
+    Long limit = getBudgetMinor(category);
+    return limit == null ? null : Money.toMajor(limit);
+  }
+
+  public Long getBudgetMinor(String category) {
+    return read(
+        () -> {
+          int id = dictionary.find(category);
+          return id >= 0 && budgetedCategories.get(id) ? budgetsById[id] : null;
+        });
+  }
+
+  public boolean hasBudget(int categoryId) {
+    return read(() -> budgetedCategories.get(categoryId));
+  }
+
+  public long getBudgetMinor(int categoryId) {
+    return readLong(() -> budgetedCategories.get(categoryId) ? budgetsById[categoryId] : 0);
+  }
+
+  public BitSet getBudgetedCategoryIds() {
+    return read(() -> (BitSet) budgetedCategories.clone());
   }
 
   public void addTransaction(Transaction tx) {
-    transactions.add(tx);
+    Transaction.requireSupportedDate(tx.getDate());
+    long stamp = lock.writeLock();
+    try {
+      transactions.append(tx);
+      ensureCategoryCapacity();
+
+      int row = transactions.size() - 1;
+      accumulate(
+          tx.getType(),
+          transactions.categoryId(row),
+          tx.getAmountMinor(),
+          transactions.epochDay(row),
+          row);
+      version++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  // Пакет операций под одной блокировкой записи: агрегаты обновляются по мере добавления,
+  // читатели видят либо весь пакет, либо ничего
+  public void addTransactions(Collection<Transaction> txs) {
+    for (Transaction tx : txs) {
+      Transaction.requireSupportedDate(tx.getDate());
+    }
+    long stamp = lock.writeLock();
+    try {
+      for (Transaction tx : txs) {
+        transactions.append(tx);
+        ensureCategoryCapacity();
+
+        int row = transactions.size() - 1;
+        accumulate(
+            tx.getType(),
+            transactions.categoryId(row),
+            tx.getAmountMinor(),
+            transactions.epochDay(row),
+            row);
+      }
+      version++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  // Добавление операции из загружаемого файла без промежуточного объекта Transaction
+  public void restoreTransaction(
+      TransactionType type, String category, long amountMinor, int epochDay, String comment) {
+    restoreTransaction(type, registerCategory(category), amountMinor, epochDay, comment);
+  }
+
+  // categoryId должен быть получен из registerCategory этого кошелька
+  public void restoreTransaction(
+      TransactionType type, int categoryId, long amountMinor, int epochDay, String comment) {
+    Objects.checkIndex(categoryId, dictionary.size());
+    Transaction.requireSupportedDay(epochDay);
+    long stamp = lock.writeLock();
+    try {
+      transactions.append(type, categoryId, amountMinor, epochDay, comment);
+      accumulate(type, categoryId, amountMinor, epochDay, transactions.size() - 1);
+      version++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  // Id имени в словаре кошелька; в отличие от addCategory категория не объявляется
+  public int registerCategory(String name) {
+    long stamp = lock.writeLock();
+    try {
+      return internCategory(name);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  // Операции читаются из отображённого в память сегмента. Пустой кошелёк получает операции
+  // сегмента (агрегаты пересчитываются); у непустого сегмент должен начинаться с тех же
+  // операций в том же порядке — они перестают занимать кучу, более новые остаются в хвосте
+  public void attachSegment(MappedTransactionSegment segment) {
+    for (int i = 0; i < segment.size(); i++) {
+      Transaction.requireSupportedDay(segment.epochDay(i));
+    }
+    long stamp = lock.writeLock();
+    try {
+      boolean loading = transactions.size() == 0;
+      transactions.attach(segment);
+      if (loading) {
+        rebuildAggregatesLocked();
+        version++;
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  // Массовая загрузка операций (например, из snapshot) с однократным пересчётом агрегатов
+  public void restoreTransactions(Collection<Transaction> txs) {
+    for (Transaction tx : txs) {
+      Transaction.requireSupportedDate(tx.getDate());
+    }
+    long stamp = lock.writeLock();
+    try {
+      for (Transaction tx : txs) {
+        transactions.append(tx);
+      }
+      rebuildAggregatesLocked();
+      version++;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public void rebuildAggregates() {
+    long stamp = lock.writeLock();
+    try {
+      rebuildAggregatesLocked();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public long getTotalMinor(TransactionType type) {
+    return readLong(() -> type == TransactionType.INCOME ? totalIncome : totalExpense);
+  }
+
+  // Сумма операций типа type за период [from; to]; null означает открытую границу
+  public long getTotalMinor(TransactionType type, LocalDate from, LocalDate to) {
+    int fromDay = from == null ? Integer.MIN_VALUE : Math.toIntExact(from.toEpochDay());
+    int toDay = to == null ? Integer.MAX_VALUE : Math.toIntExact(to.toEpochDay());
+    return readLong(() -> dailyIndex(type).range(fromDay, toDay));
+  }
+
+  public long getCategoryTotalMinor(TransactionType type, String category) {
+    return readLong(
+        () -> {
+          int id = dictionary.find(category);
+          return id < 0 ? 0 : totalsByCategoryId(type)[id];
+        });
+  }
+
+  public long getCategoryTotalMinor(TransactionType type, int categoryId) {
+    return readLong(() -> totalsByCategoryId(type)[categoryId]);
+  }
+
+  // Копия агрегатов по категориям, индекс — id категории в dictionary
+  public long[] getCategoryTotalsMinor(TransactionType type) {
+    return read(() -> Arrays.copyOf(totalsByCategoryId(type), dictionary.size()));
   }
 
   public double getBalance() {
-    double income =
-        transactions.stream()
-            .filter(t -> t.getType() == TransactionType.INCOME)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
-
-    double expense =
-        transactions.stream()
-            .filter(t -> t.getType() == TransactionType.EXPENSE)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
-
-    return income - expense;
+    return Money.toMajor(getBalanceMinor());
+  }
+
+  public long getBalanceMinor() {
+    return readLong(() -> totalIncome - totalExpense);
+  }
+
+  // Баланс с учётом операций, датированных не позже date
+  public long getBalanceAsOfMinor(LocalDate date) {
+    int day = Math.toIntExact(date.toEpochDay());
+    return readLong(() -> incomeByDay.prefix(day) - expenseByDay.prefix(day));
+  }
+
+  private void rebuildAggregatesLocked() {
+    ensureCategoryCapacity();
+    totalIncome = 0;
+    totalExpense = 0;
+    incomeByCategoryId = new long[budgetsById.length];
+    expenseByCategoryId = new long[budgetsById.length];
+    incomeByDay.clear();
+    expenseByDay.clear();
+    monthly.clear();
+    for (int i = 0; i < transactions.size(); i++) {
+      accumulate(
+          transactions.type(i),
+          transactions.categoryId(i),
+          transactions.amountMinor(i),
+          transactions.epochDay(i),
+          i);
+    }
+  }
+
+  private int internCategory(String name) {
+    int id = dictionary.intern(name);
+    ensureCategoryCapacity();
+    return id;
+  }
+
+  // Словарь может пополняться и из TransactionStore, поэтому ёмкость сверяется с его размером
+  private void ensureCategoryCapacity() {
+    int required = dictionary.size();
+    if (required <= budgetsById.length) return;
+
+    int capacity = Math.max(required, budgetsById.length * 2);
+    budgetsById = Arrays.copyOf(budgetsById, capacity);
+    incomeByCategoryId = Arrays.copyOf(incomeByCategoryId, capacity);
+    expenseByCategoryId = Arrays.copyOf(expenseByCategoryId, capacity);
+  }
+
+  private void accumulate(
+      TransactionType type, int categoryId, long amount, int epochDay, int row) {
+    if (type == TransactionType.INCOME) {
+      totalIncome += amount;
+    } else {
+      totalExpense += amount;
+    }
+    totalsByCategoryId(type)[categoryId] += amount;
+    dailyIndex(type).add(epochDay, amount);
+    monthly.add(type, categoryId, amount, epochDay, row);
+  }
+
+  private DailyTotalsIndex dailyIndex(TransactionType type) {
+    return type == TransactionType.INCOME ? incomeByDay : expenseByDay;
+  }
+
+  private long[] totalsByCategoryId(TransactionType type) {
+    return type == TransactionType.INCOME ? incomeByCategoryId : expenseByCategoryId;
   }
 }
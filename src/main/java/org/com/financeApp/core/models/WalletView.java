@@ -0,0 +1,127 @@
+package org.com.financeApp.core.models;
+
+import java.util.*;
+
+// Неизменяемое состояние кошелька на момент Wallet.snapshot(). Операции не копируются
+// (см. TransactionStore.snapshot), поэтому долгие отчёты и экспорт читают view без блокировок
+// и не мешают одновременным изменениям кошелька.
+public final class WalletView {
+  private final String ownerLogin;
+  private final long version;
+  private final CategoryDictionary dictionary;
+  private final TransactionStore transactions;
+  private final BitSet declaredCategories;
+  private final BitSet budgetedCategories;
+  private final long[] budgetsById;
+  private final long totalIncome;
+  private final long totalExpense;
+  private final long[] incomeByCategoryId;
+  private final long[] expenseByCategoryId;
+  private final MonthlyRollup monthly;
+  private final List<Transaction> transactionsView;
+
+  WalletView(
+      String ownerLogin,
+      long version,
+      CategoryDictionary dictionary,
+      TransactionStore transactions,
+      BitSet declaredCategories,
+      BitSet budgetedCategories,
+      long[] budgetsById,
+      long totalIncome,
+      long totalExpense,
+      long[] incomeByCategoryId,
+      long[] expenseByCategoryId,
+      MonthlyRollup monthly) {
+    this.ownerLogin = ownerLogin;
+    this.version = version;
+    this.dictionary = dictionary;
+    this.transactions = transactions;
+    this.declaredCategories = declaredCategories;
+    this.budgetedCategories = budgetedCategories;
+    this.budgetsById = budgetsById;
+    this.totalIncome = totalIncome;
+    this.totalExpense = totalExpense;
+    this.incomeByCategoryId = incomeByCategoryId;
+    this.expenseByCategoryId = expenseByCategoryId;
+    this.monthly = monthly;
+    this.transactionsView =
+        new AbstractList<>() {
+          @Override
+          public Transaction get(int index) {
+            return transactions.get(index);
+          }
+
+          @Override
+          public int size() {
+            return transactions.size();
+          }
+        };
+  }
+
+  public String getOwnerLogin() {
+    return ownerLogin;
+  }
+
+  // Номер версии кошелька, с которой снят view (растёт с каждым изменением)
+  public long getVersion() {
+    return version;
+  }
+
+  // Id в dictionary не переиспользуются, поэтому живой словарь корректно называет id из view
+  public CategoryDictionary getCategoryDictionary() {
+    return dictionary;
+  }
+
+  public TransactionStore getTransactionStore() {
+    return transactions;
+  }
+
+  public List<Transaction> getTransactions() {
+    return transactionsView;
+  }
+
+  public Set<String> getCategories() {
+    Set<String> result = new HashSet<>();
+    declaredCategories.stream().forEach(id -> result.add(dictionary.name(id)));
+    return Collections.unmodifiableSet(result);
+  }
+
+  public boolean hasCategory(String name) {
+    int id = dictionary.find(name);
+    return id >= 0 && declaredCategories.get(id);
+  }
+
+  public Map<String, Double> getBudgetsByCategory() {
+    Map<String, Double> result = new HashMap<>();
+    budgetedCategories.stream()
+        .forEach(id -> result.put(dictionary.name(id), Money.toMajor(budgetsById[id])));
+    return Collections.unmodifiableMap(result);
+  }
+
+  public BitSet getBudgetedCategoryIds() {
+    return (BitSet) budgetedCategories.clone();
+  }
+
+  public long getBudgetMinor(int categoryId) {
+    return budgetedCategories.get(categoryId) ? budgetsById[categoryId] : 0;
+  }
+
+  public long getTotalMinor(TransactionType type) {
+    return type == TransactionType.INCOME ? totalIncome : totalExpense;
+  }
+
+  // Копия агрегатов по категориям на момент view, индекс — id категории
+  public long[] getCategoryTotalsMinor(TransactionType type) {
+    return (type == TransactionType.INCOME ? incomeByCategoryId : expenseByCategoryId).clone();
+  }
+
+  // Суммы по месяцам и категориям на момент view
+  public MonthlyRollup getMonthlyRollup() {
+    return monthly;
+  }
+
+  public long getBalanceMinor() {
+    return totalIncome - totalExpense;
+  }
+}
@@ -8,4 +8,11 @@ public interface UserRepository {
   User find(String login);
 
   void save(User user);
+
+  // false, если пользователь с таким логином уже есть; конкурентные реализации делают это атомарно
+  default boolean saveIfAbsent(User user) {
+    if (user != null && exists(user.getLogin())) return false;
+    save(user);
+    return true;
+  }
 }
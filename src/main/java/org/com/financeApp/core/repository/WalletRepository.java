@@ -1,9 +1,22 @@
 package org.com.financeApp.core.repository;
 
+import java.util.concurrent.locks.Lock;
 import org.com.financeApp.core.models.Wallet;
 
 public interface WalletRepository {
   Wallet getOrCreate(String login);
 
   void save(Wallet wallet);
+
+  // Кошелёк, который уже находится в памяти, или null; ничего не загружает и не создаёт
+  default Wallet findLoaded(String login) {
+    return null;
+  }
+
+  // Блокировка, под которой WalletService изменяет кошелёк логина. Репозиторий, который сам
+  // сохраняет и выгружает кошельки, возвращает ту же блокировку, что берёт при выгрузке, чтобы
+  // не выгрузить кошелёк посреди изменения; null — WalletService использует свои блокировки
+  default Lock mutationLock(String login) {
+    return null;
+  }
 }
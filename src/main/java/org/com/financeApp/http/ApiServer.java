@@ -0,0 +1,438 @@
+package org.com.financeApp.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.com.financeApp.core.models.CategoryDictionary;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.User;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.repository.WalletRepository;
+import org.com.financeApp.services.*;
+
+// HTTP/JSON API для многих одновременных пользователей: каждый запрос обрабатывается в своём
+// виртуальном потоке, пользователь определяется по токену сессии (Authorization: Bearer <token>).
+// Эндпоинты повторяют команды CommandLoop
+public class ApiServer {
+  private static final String PREFIX = "/api";
+  private static final int BACKLOG = 1024;
+  // Наибольший размер тела запроса; больше — ответ 413. Snapshot кошелька (PUT /snapshot)
+  // бывает большим, остальные тела — несколько полей JSON
+  static final long MAX_BODY_BYTES = 1L << 20;
+  static final long MAX_SNAPSHOT_BYTES = 256L << 20;
+
+  private final SessionService sessions;
+  private final WalletService walletService;
+  private final WalletRepository walletRepo;
+  private final WalletFileStorage walletStorage;
+  private final StatsService statsService;
+  private final ReportService reportService;
+  private final ObjectMapper mapper =
+      new ObjectMapper()
+          .registerModule(new JavaTimeModule())
+          .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  private HttpServer server;
+  private ExecutorService executor;
+
+  public ApiServer(
+      SessionService sessions,
+      WalletService walletService,
+      WalletRepository walletRepo,
+      WalletFileStorage walletStorage,
+      StatsService statsService,
+      ReportService reportService) {
+    this.sessions = sessions;
+    this.walletService = walletService;
+    this.walletRepo = walletRepo;
+    this.walletStorage = walletStorage;
+    this.statsService = statsService;
+    this.reportService = reportService;
+  }
+
+  // port 0 — любой свободный порт (см. getPort). Только на loopback: наружу API открывается
+  // явно, через start(host, port)
+  public synchronized void start(int port) throws IOException {
+    start(InetAddress.getLoopbackAddress().getHostAddress(), port);
+  }
+
+  // host — адрес интерфейса ("0.0.0.0" — все интерфейсы)
+  public synchronized void start(String host, int port) throws IOException {
+    if (server != null) throw new IllegalStateException("Сервер уже запущен");
+    if (host == null || host.isBlank())
+      throw new IllegalArgumentException("Адрес сервера не должен быть пустым");
+
+    server = HttpServer.create(new InetSocketAddress(host, port), BACKLOG);
+    executor = Executors.newVirtualThreadPerTaskExecutor();
+    server.setExecutor(executor);
+    server.createContext(PREFIX + "/", this::handle);
+    server.start();
+  }
+
+  public synchronized int getPort() {
+    if (server == null) throw new IllegalStateException("Сервер не запущен");
+    return server.getAddress().getPort();
+  }
+
+  // Останавливает приём запросов и сохраняет кошельки открытых сессий
+  public synchronized void stop() throws IOException {
+    if (server == null) return;
+    server.stop(1);
+    executor.close();
+    server = null;
+    sessions.checkpointAll();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      try {
+        route(exchange);
+      } catch (UnauthorizedException e) {
+        sendError(exchange, 401, e.getMessage());
+      } catch (PayloadTooLargeException e) {
+        sendError(exchange, 413, e.getMessage());
+      } catch (NotFoundException e) {
+        sendError(exchange, 404, e.getMessage());
+      } catch (IllegalArgumentException | DateTimeParseException | JsonProcessingException e) {
+        sendError(exchange, 400, e.getMessage());
+      } catch (IllegalStateException e) {
+        sendError(exchange, 409, e.getMessage());
+      } catch (IOException | UncheckedIOException e) {
+        // Ошибка хранилища (сохранение, журнал); если ответ уже начат, обмен просто закрывается
+        sendError(exchange, 500, "Ошибка хранилища: " + e.getMessage());
+      } catch (RuntimeException e) {
+        sendError(exchange, 500, "Внутренняя ошибка: " + e.getMessage());
+      }
+    }
+  }
+
+  private void route(HttpExchange exchange) throws IOException {
+    String method = exchange.getRequestMethod();
+    String path = exchange.getRequestURI().getPath().substring(PREFIX.length());
+    Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+    switch (method + " " + path) {
+      case "POST /register" -> {
+        JsonNode body = readBody(exchange);
+        String token = sessions.register(text(body, "login"), text(body, "password"));
+        sendJson(exchange, 201, Map.of("token", token));
+      }
+      case "POST /login" -> {
+        JsonNode body = readBody(exchange);
+        String token = sessions.login(text(body, "login"), text(body, "password"));
+        sendJson(exchange, 200, Map.of("token", token));
+      }
+      case "POST /logout" -> {
+        user(exchange);
+        sessions.logout(requireToken(exchange));
+        sendJson(exchange, 200, Map.of("status", "ok"));
+      }
+
+      case "GET /categories" -> {
+        Wallet wallet = wallet(user(exchange));
+        sendJson(exchange, 200, wallet.getCategories().stream().sorted().toList());
+      }
+      case "POST /categories" -> {
+        User user = user(exchange);
+        walletService.addCategory(user, text(readBody(exchange), "name"));
+        sendJson(exchange, 201, Map.of("status", "ok"));
+      }
+
+      case "GET /budgets" -> {
+        StatsService.ReportData data = reportService.aggregate(wallet(user(exchange)), null, null);
+        sendJson(exchange, 200, budgets(data));
+      }
+      case "PUT /budgets" -> {
+        User user = user(exchange);
+        JsonNode body = readBody(exchange);
+        walletService.setBudget(user, text(body, "category"), number(body, "limit"));
+        sendJson(exchange, 200, Map.of("status", "ok"));
+      }
+
+      case "POST /operations" -> {
+        User user = user(exchange);
+        WalletService.OperationRequest op = operation(readBody(exchange));
+        List<String> warnings =
+            op.type() == TransactionType.INCOME
+                ? walletService.addIncome(user, op.category(), op.amount(), op.date(), op.comment())
+                : walletService.addExpense(
+                    user, op.category(), op.amount(), op.date(), op.comment());
+        sendJson(exchange, 201, Map.of("warnings", warnings));
+      }
+
+      case "POST /operations/batch" -> {
+        User user = user(exchange);
+        JsonNode items = readBody(exchange).get("operations");
+        if (items == null || !items.isArray()) {
+          throw new IllegalArgumentException("Поле operations должно быть массивом");
+        }
+        List<WalletService.OperationRequest> ops = new ArrayList<>(items.size());
+        for (JsonNode item : items) ops.add(operation(item));
+        List<String> warnings = walletService.addOperations(user, ops);
+        sendJson(exchange, 201, Map.of("added", ops.size(), "warnings", warnings));
+      }
+
+      case "GET /balance" -> {
+        Wallet wallet = wallet(user(exchange));
+        LocalDate asOf = date(query, "asof");
+        double balance =
+            asOf == null ? statsService.balance(wallet) : statsService.balanceAsOf(wallet, asOf);
+        sendJson(exchange, 200, Map.of("balance", balance));
+      }
+      case "GET /stats" -> {
+        Wallet wallet = wallet(user(exchange));
+        StatsService.ReportData data =
+            reportService.aggregate(wallet, date(query, "from"), date(query, "to"));
+        sendJson(exchange, 200, stats(data));
+      }
+      case "GET /report" -> {
+        Wallet wallet = wallet(user(exchange));
+        String report = reportService.buildReport(wallet, date(query, "from"), date(query, "to"));
+        send(exchange, 200, "text/plain; charset=utf-8", report.getBytes(StandardCharsets.UTF_8));
+      }
+
+      case "GET /snapshot" -> {
+        Wallet wallet = wallet(user(exchange));
+        sendJson(exchange, 200, WalletFileStorage.WalletSnapshot.fromWallet(wallet));
+      }
+      case "PUT /snapshot" -> {
+        User user = user(exchange);
+        WalletFileStorage.WalletSnapshot snapshot;
+        try (InputStream in = body(exchange, MAX_SNAPSHOT_BYTES)) {
+          snapshot = mapper.readValue(in, WalletFileStorage.WalletSnapshot.class);
+        }
+        Wallet imported = snapshot.toWallet(user.getLogin());
+        walletService.replaceWallet(user, imported);
+        sendJson(exchange, 200, Map.of("status", "ok"));
+      }
+
+      default -> throw new NotFoundException("Неизвестный запрос: " + method + " " + path);
+    }
+  }
+
+  private static WalletService.OperationRequest operation(JsonNode item) {
+    String type = text(item, "type");
+    TransactionType txType =
+        switch (type.toLowerCase(Locale.ROOT)) {
+          case "income" -> TransactionType.INCOME;
+          case "expense" -> TransactionType.EXPENSE;
+          default ->
+              throw new IllegalArgumentException("type должен быть income или expense: " + type);
+        };
+    LocalDate date = item.hasNonNull("date") ? LocalDate.parse(item.get("date").asText()) : null;
+    String comment = item.hasNonNull("comment") ? item.get("comment").asText() : null;
+    return new WalletService.OperationRequest(
+        txType, text(item, "category"), number(item, "amount"), date, comment);
+  }
+
+  private Map<String, Object> stats(StatsService.ReportData data) {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("from", data.from());
+    result.put("to", data.to());
+    result.put("totalIncome", Money.toDecimal(data.totalIncomeMinor()));
+    result.put("totalExpense", Money.toDecimal(data.totalExpenseMinor()));
+    result.put("incomeByCategory", byCategory(data.incomeByCategory(), data.categories()));
+    result.put("expenseByCategory", byCategory(data.expenseByCategory(), data.categories()));
+    result.put("budgets", budgets(data));
+    result.put("balance", Money.toDecimal(data.balanceMinor()));
+    return result;
+  }
+
+  private static Map<String, Object> byCategory(
+      StatsService.CategoryTotals totals, CategoryDictionary categories) {
+    Map<String, Object> result = new TreeMap<>();
+    totals.ids().forEach(id -> result.put(categories.name(id), Money.toDecimal(totals.get(id))));
+    return result;
+  }
+
+  private static Map<String, Object> budgets(StatsService.ReportData data) {
+    Map<String, Object> result = new TreeMap<>();
+    data.budgetedCategoryIds()
+        .forEach(
+            id -> {
+              StatsService.BudgetStatus bs = data.budgetStatus(id);
+              Map<String, Object> status = new LinkedHashMap<>();
+              status.put("limit", Money.toDecimal(bs.limitMinor()));
+              status.put("spent", Money.toDecimal(bs.spentMinor()));
+              status.put("remaining", Money.toDecimal(bs.remainingMinor()));
+              result.put(data.categories().name(id), status);
+            });
+    return result;
+  }
+
+  private User user(HttpExchange exchange) {
+    User user = sessions.find(requireToken(exchange));
+    if (user == null) throw new UnauthorizedException("Сессия не найдена, выполните login");
+    return user;
+  }
+
+  private Wallet wallet(User user) {
+    return walletRepo.getOrCreate(user.getLogin());
+  }
+
+  private static String requireToken(HttpExchange exchange) {
+    String header = exchange.getRequestHeaders().getFirst("Authorization");
+    if (header == null || !header.startsWith("Bearer ")) {
+      throw new UnauthorizedException("Нужен заголовок Authorization: Bearer <token>");
+    }
+    return header.substring("Bearer ".length()).trim();
+  }
+
+  private JsonNode readBody(HttpExchange exchange) throws IOException {
+    try (InputStream in = body(exchange, MAX_BODY_BYTES)) {
+      JsonNode body = mapper.readTree(in);
+      if (body == null || !body.isObject()) {
+        throw new IllegalArgumentException("Тело запроса должно быть JSON-объектом");
+      }
+      return body;
+    }
+  }
+
+  // Тело запроса не длиннее max байт: заявленная длина проверяется сразу, фактическая — по мере
+  // чтения (тело может прийти без Content-Length)
+  private static InputStream body(HttpExchange exchange, long max) {
+    String length = exchange.getRequestHeaders().getFirst("Content-Length");
+    if (length != null) {
+      long declared;
+      try {
+        declared = Long.parseLong(length.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Некорректный Content-Length: " + length);
+      }
+      if (declared > max) throw new PayloadTooLargeException(max);
+    }
+    return new LimitedInputStream(exchange.getRequestBody(), max);
+  }
+
+  private static String text(JsonNode body, String field) {
+    JsonNode node = body.get(field);
+    if (node == null || node.isNull()) {
+      throw new IllegalArgumentException("Не указано поле " + field);
+    }
+    return node.asText();
+  }
+
+  private static double number(JsonNode body, String field) {
+    JsonNode node = body.get(field);
+    if (node == null || !node.isNumber()) {
+      throw new IllegalArgumentException("Поле " + field + " должно быть числом");
+    }
+    return node.asDouble();
+  }
+
+  private static LocalDate date(Map<String, String> query, String name) {
+    String value = query.get(name);
+    return value == null || value.isEmpty() ? null : LocalDate.parse(value);
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    Map<String, String> result = new HashMap<>();
+    if (rawQuery == null || rawQuery.isEmpty()) return result;
+    for (String pair : rawQuery.split("&")) {
+      int eq = pair.indexOf('=');
+      String key = eq < 0 ? pair : pair.substring(0, eq);
+      String value = eq < 0 ? "" : pair.substring(eq + 1);
+      result.put(
+          URLDecoder.decode(key, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return result;
+  }
+
+  private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+    sendJson(exchange, status, Map.of("error", message == null ? "" : message));
+  }
+
+  private void sendJson(HttpExchange exchange, int status, Object body) throws IOException {
+    send(exchange, status, "application/json; charset=utf-8", mapper.writeValueAsBytes(body));
+  }
+
+  private static void send(HttpExchange exchange, int status, String contentType, byte[] body)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private static final class UnauthorizedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    UnauthorizedException(String message) {
+      super(message);
+    }
+  }
+
+  private static final class PayloadTooLargeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    PayloadTooLargeException(long max) {
+      super("Тело запроса больше " + max + " байт");
+    }
+  }
+
+  private static final class LimitedInputStream extends FilterInputStream {
+    private long remaining;
+    private final long max;
+
+    LimitedInputStream(InputStream in, long max) {
+      super(in);
+      this.remaining = max;
+      this.max = max;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) consumed(1);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+      int n = super.read(buf, off, len);
+      if (n > 0) consumed(n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      consumed(skipped);
+      return skipped;
+    }
+
+    private void consumed(long n) {
+      remaining -= n;
+      if (remaining < 0) throw new PayloadTooLargeException(max);
+    }
+  }
+
+  private static final class NotFoundException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    NotFoundException(String message) {
+      super(message);
+    }
+  }
+}
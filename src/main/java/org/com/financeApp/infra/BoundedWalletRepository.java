@@ -0,0 +1,244 @@
+package org.com.financeApp.infra;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.repository.WalletRepository;
+import org.com.financeApp.services.WalletFileStorage;
+
+// Репозиторий-кэш поверх WalletFileStorage с ограничением суммарного веса кошельков в памяти
+// (вес ≈ число операций). При переполнении вытесняются давно не используемые кошельки (LRU):
+// изменённые перед этим сохраняются, при следующем getOrCreate кошелёк загружается с диска.
+// Так куча ограничена независимо от числа пользователей.
+// Полоса логина — это и блокировка изменений WalletService (mutationLock): кошелёк не
+// сохраняется и не выгружается посреди изменения. Вытеснение пишет на диск в потоке того
+// вызова getOrCreate/save, который переполнил кэш (в худшем случае — одна запись snapshot на
+// вытесненный кошелёк); занятый изменением кошелёк не ждут, а оставляют в кэше до следующего раза
+public class BoundedWalletRepository implements WalletRepository {
+  private static final int LOAD_STRIPES = 64;
+
+  public record CacheStats(
+      long hits, long misses, long evictions, int size, long weight, long maxWeight) {}
+
+  private final WalletFileStorage storage;
+  private final long maxWeight;
+
+  // Порядок доступа: первый элемент — давно не использованный
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final ReentrantLock lock = new ReentrantLock();
+  private long totalWeight;
+
+  // Вытесненные, но ещё не сохранённые кошельки: запрос в это время получает тот же объект,
+  // а не устаревшую копию с диска
+  private final Map<String, Wallet> evicting = new ConcurrentHashMap<>();
+  // Загрузка, изменение и сохранение при вытеснении одного логина не пересекаются
+  private final ReentrantLock[] stripes = new ReentrantLock[LOAD_STRIPES];
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  private static final class Entry {
+    final Wallet wallet;
+    long weight;
+
+    Entry(Wallet wallet, long weight) {
+      this.wallet = wallet;
+      this.weight = weight;
+    }
+  }
+
+  public BoundedWalletRepository(WalletFileStorage storage, long maxWeight) {
+    if (storage == null)
+      throw new IllegalArgumentException("WalletFileStorage не должен быть null");
+    if (maxWeight <= 0) throw new IllegalArgumentException("Размер кэша должен быть больше 0");
+    this.storage = storage;
+    this.maxWeight = maxWeight;
+    for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+  }
+
+  @Override
+  public Wallet getOrCreate(String login) {
+    if (login == null || login.trim().isEmpty()) {
+      throw new IllegalArgumentException("Логин не должен быть пустым");
+    }
+    String key = login.trim();
+
+    Wallet cached = lookup(key);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+
+    Wallet wallet;
+    List<Wallet> victims;
+    ReentrantLock stripe = stripe(key);
+    stripe.lock();
+    try {
+      // Пока ждали, кошелёк мог загрузить другой поток
+      cached = lookup(key);
+      if (cached != null) {
+        hits.increment();
+        return cached;
+      }
+
+      misses.increment();
+      wallet = evicting.get(key);
+      if (wallet == null) wallet = storage.loadOrCreate(key);
+      victims = put(wallet);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Не удалось загрузить кошелёк " + key, e);
+    } finally {
+      stripe.unlock();
+    }
+
+    // Вытеснение берёт полосу жертвы, поэтому идёт после освобождения своей полосы
+    for (Wallet victim : victims) evict(victim);
+    return wallet;
+  }
+
+  // Вызывается WalletService после каждого изменения: заодно пересчитывается вес кошелька
+  @Override
+  public void save(Wallet wallet) {
+    if (wallet == null) {
+      throw new IllegalArgumentException("Wallet не должен быть null");
+    }
+    for (Wallet victim : put(wallet)) evict(victim);
+  }
+
+  // Вытесняемый, но ещё не сохранённый кошелёк тоже считается находящимся в памяти
+  @Override
+  public Wallet findLoaded(String login) {
+    if (login == null) return null;
+    String key = login.trim();
+    Wallet wallet = lookup(key);
+    return wallet != null ? wallet : evicting.get(key);
+  }
+
+  @Override
+  public Lock mutationLock(String login) {
+    return stripe(login.trim());
+  }
+
+  public CacheStats stats() {
+    lock.lock();
+    try {
+      return new CacheStats(
+          hits.sum(), misses.sum(), evictions.sum(), entries.size(), totalWeight, maxWeight);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Сохраняет изменённые кошельки, находящиеся в кэше; вызывается при остановке
+  public void flushAll() throws IOException {
+    List<Wallet> wallets = new ArrayList<>();
+    lock.lock();
+    try {
+      for (Entry entry : entries.values()) wallets.add(entry.wallet);
+    } finally {
+      lock.unlock();
+    }
+    wallets.addAll(evicting.values());
+
+    for (Wallet wallet : wallets) {
+      String login = wallet.getOwnerLogin();
+      ReentrantLock stripe = stripe(login);
+      stripe.lock();
+      try {
+        storage.checkpoint(login, wallet);
+      } finally {
+        stripe.unlock();
+      }
+    }
+  }
+
+  private Wallet lookup(String login) {
+    lock.lock();
+    try {
+      Entry entry = entries.get(login);
+      return entry == null ? null : entry.wallet;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Возвращает вытесненные кошельки, которые вызывающий должен передать в evict
+  private List<Wallet> put(Wallet wallet) {
+    String login = wallet.getOwnerLogin();
+    long weight = weigh(wallet);
+    List<Wallet> victims = new ArrayList<>();
+
+    lock.lock();
+    try {
+      Entry old = entries.put(login, new Entry(wallet, weight));
+      totalWeight += weight - (old == null ? 0 : old.weight);
+
+      // Только что использованный кошелёк остаётся, даже если он один тяжелее лимита
+      Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+      while (totalWeight > maxWeight && entries.size() > 1) {
+        Map.Entry<String, Entry> eldest = it.next();
+        if (eldest.getKey().equals(login)) continue;
+        it.remove();
+        totalWeight -= eldest.getValue().weight;
+        evicting.put(eldest.getKey(), eldest.getValue().wallet);
+        victims.add(eldest.getValue().wallet);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return victims;
+  }
+
+  // Запись на диск идёт вне общей блокировки: остальные кошельки в это время доступны.
+  // Полоса жертвы только пробуется: её держит поток, который сейчас изменяет этот кошелёк (или
+  // кошелёк той же полосы), и ожидание могло бы замкнуться с полосой, которую держит вызывающий
+  private void evict(Wallet wallet) {
+    String login = wallet.getOwnerLogin();
+    ReentrantLock stripe = stripe(login);
+    if (!stripe.tryLock()) {
+      restore(wallet);
+      evicting.remove(login, wallet);
+      return;
+    }
+    try {
+      storage.checkpoint(login, wallet);
+      evictions.increment();
+    } catch (IOException e) {
+      // Несохранённый кошелёк возвращается в кэш, чтобы изменения не потерялись
+      System.err.println(
+          "Не удалось сохранить вытесняемый кошелёк " + login + ": " + e.getMessage());
+      restore(wallet);
+    } finally {
+      evicting.remove(login, wallet);
+      stripe.unlock();
+    }
+  }
+
+  private void restore(Wallet wallet) {
+    String login = wallet.getOwnerLogin();
+    lock.lock();
+    try {
+      if (!entries.containsKey(login)) {
+        long weight = weigh(wallet);
+        entries.put(login, new Entry(wallet, weight));
+        totalWeight += weight;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static long weigh(Wallet wallet) {
+    return 1L + wallet.getTransactions().size();
+  }
+
+  private ReentrantLock stripe(String login) {
+    return stripes[Math.floorMod(login.hashCode(), stripes.length)];
+  }
+}
@@ -0,0 +1,47 @@
+package org.com.financeApp.infra;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.com.financeApp.core.models.User;
+import org.com.financeApp.core.repository.UserRepository;
+
+public class ConcurrentUserRepository implements UserRepository {
+  private final Map<String, User> usersByLogin = new ConcurrentHashMap<>();
+
+  @Override
+  public boolean exists(String login) {
+    if (login == null) {
+      return false;
+    }
+    return usersByLogin.containsKey(login.trim());
+  }
+
+  @Override
+  public User find(String login) {
+    if (login == null) {
+      return null;
+    }
+    return usersByLogin.get(login.trim());
+  }
+
+  @Override
+  public void save(User user) {
+    usersByLogin.put(requireLogin(user), user);
+  }
+
+  @Override
+  public boolean saveIfAbsent(User user) {
+    return usersByLogin.putIfAbsent(requireLogin(user), user) == null;
+  }
+
+  private static String requireLogin(User user) {
+    if (user == null) {
+      throw new IllegalArgumentException("User должен быть не null");
+    }
+    String login = user.getLogin();
+    if (login == null || login.trim().isEmpty()) {
+      throw new IllegalArgumentException("User.login не должен быть пустым");
+    }
+    return login.trim();
+  }
+}
@@ -0,0 +1,50 @@
+package org.com.financeApp.infra;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.repository.WalletRepository;
+
+// Репозиторий для нескольких одновременных сессий: кошелёк логина создаётся ровно один раз,
+// а сам Wallet синхронизирует доступ к своим данным
+public class ConcurrentWalletRepository implements WalletRepository {
+  private final Map<String, Wallet> walletsByLogin = new ConcurrentHashMap<>();
+
+  @Override
+  public Wallet getOrCreate(String login) {
+    if (login == null || login.trim().isEmpty()) {
+      throw new IllegalArgumentException("Логин не должен быть пустым");
+    }
+    String key = login.trim();
+    return walletsByLogin.computeIfAbsent(key, Wallet::new);
+  }
+
+  @Override
+  public void save(Wallet wallet) {
+    if (wallet == null) {
+      throw new IllegalArgumentException("Wallet не должен быть null");
+    }
+    walletsByLogin.put(wallet.getOwnerLogin(), wallet);
+  }
+
+  @Override
+  public Wallet findLoaded(String login) {
+    return login == null ? null : walletsByLogin.get(login.trim());
+  }
+
+  public int size() {
+    return walletsByLogin.size();
+  }
+
+  // Число операций во всех кошельках и в самом большом (для метрик)
+  public long transactionCount() {
+    return walletsByLogin.values().stream().mapToLong(w -> w.getTransactions().size()).sum();
+  }
+
+  public long largestWalletTransactions() {
+    return walletsByLogin.values().stream()
+        .mapToLong(w -> w.getTransactions().size())
+        .max()
+        .orElse(0);
+  }
+}
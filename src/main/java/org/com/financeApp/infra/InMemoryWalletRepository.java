@@ -24,4 +24,9 @@ public class InMemoryWalletRepository implements WalletRepository {
     }
     walletsByLogin.put(wallet.getOwnerLogin(), wallet);
   }
+
+  @Override
+  public Wallet findLoaded(String login) {
+    return login == null ? null : walletsByLogin.get(login.trim());
+  }
 }
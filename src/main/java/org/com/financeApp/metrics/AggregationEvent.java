@@ -0,0 +1,49 @@
+package org.com.financeApp.metrics;
+
+import java.time.LocalDate;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Запрос StatsService: сколько операций в кошельке и сколько из них пришлось просмотреть
+@Name("finance.StatsAggregation")
+@Label("Stats Aggregation")
+@Description("Запрос статистики кошелька")
+@Category({"Finance", "Stats"})
+@StackTrace(false)
+public class AggregationEvent extends jdk.jfr.Event {
+  @Label("Query")
+  public String query;
+
+  @Label("Login")
+  public String login;
+
+  @Label("From")
+  public String from;
+
+  @Label("To")
+  public String to;
+
+  @Label("Transactions")
+  public long transactions;
+
+  @Label("Rows Scanned")
+  public long rowsScanned;
+
+  public void wallet(String login, long transactions) {
+    this.login = login;
+    this.transactions = transactions;
+  }
+
+  // Поля периода заполняются, только если событие будет записано
+  public void finish(String query, LocalDate from, LocalDate to) {
+    end();
+    if (!shouldCommit()) return;
+    this.query = query;
+    this.from = from == null ? null : from.toString();
+    this.to = to == null ? null : to.toString();
+    commit();
+  }
+}
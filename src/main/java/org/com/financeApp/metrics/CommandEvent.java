@@ -0,0 +1,24 @@
+package org.com.financeApp.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Выполнение команды CLI. Аргументы не пишутся: в них бывают пароли
+@Name("finance.Command")
+@Label("Command")
+@Description("Выполнение команды CLI")
+@Category({"Finance", "CLI"})
+@StackTrace(false)
+public class CommandEvent extends jdk.jfr.Event {
+  @Label("Command")
+  public String command;
+
+  @Label("Login")
+  public String login;
+
+  @Label("Succeeded")
+  public boolean succeeded;
+}
@@ -0,0 +1,92 @@
+package org.com.financeApp.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Гистограмма задержек (в наносекундах) без блокировок: счётчики корзин — LongAdder, запись из
+// многих потоков не конкурирует за одну ячейку. Корзины логарифмические с 16 линейными
+// подкорзинами на каждую степень двойки (как в HdrHistogram): погрешность перцентиля до ~6%.
+// Значения больше ~18 минут попадают в последнюю корзину, точный максимум хранится отдельно
+public final class LatencyHistogram {
+  private static final int SUB_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;
+  private static final int MAX_BITS = 40;
+  private static final long MAX_TRACKABLE = (1L << MAX_BITS) - 1;
+  private static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB_BUCKETS;
+
+  public record Snapshot(long count, long sumNanos, long maxNanos, long p50Nanos, long p99Nanos) {
+    public double meanNanos() {
+      return count == 0 ? 0 : (double) sumNanos / count;
+    }
+  }
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) buckets[i] = new LongAdder();
+  }
+
+  public void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+    buckets[index(Math.min(nanos, MAX_TRACKABLE))].increment();
+    count.increment();
+    sum.add(nanos);
+    max.accumulate(nanos);
+  }
+
+  // Время с момента System.nanoTime() == startNanos
+  public void recordSince(long startNanos) {
+    record(System.nanoTime() - startNanos);
+  }
+
+  public void record(long duration, TimeUnit unit) {
+    record(unit.toNanos(duration));
+  }
+
+  // Корзины читаются без остановки записи, поэтому снимок приблизительный, но без блокировок
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+      total += counts[i];
+    }
+    long maxNanos = max.get();
+    return new Snapshot(
+        total,
+        sum.sum(),
+        maxNanos,
+        percentile(counts, total, 0.50, maxNanos),
+        percentile(counts, total, 0.99, maxNanos));
+  }
+
+  // Верхняя граница корзины, в которую попал перцентиль (не больше максимума)
+  private static long percentile(long[] counts, long total, double p, long maxNanos) {
+    if (total == 0) return 0;
+    long rank = Math.max(1, (long) Math.ceil(p * total));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) return Math.min(upperBound(i), maxNanos);
+    }
+    return maxNanos;
+  }
+
+  static int index(long value) {
+    if (value < SUB_BUCKETS) return (int) value;
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS) return index;
+    int shift = index / SUB_BUCKETS - 1;
+    long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lower + (1L << shift) - 1;
+  }
+}
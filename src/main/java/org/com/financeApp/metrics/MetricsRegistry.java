@@ -0,0 +1,253 @@
+package org.com.financeApp.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+// Реестр метрик процесса: гистограммы задержек, счётчики и показатели (gauge), вычисляемые при
+// чтении. Метрика определяется именем и парами меток (label, value); повторный запрос с теми же
+// именем и метками возвращает тот же объект. Горячие пути держат метрики в полях, а не ищут их
+// при каждом вызове. Выгрузка — в текстовом формате Prometheus (имена с префиксом finance_)
+public final class MetricsRegistry {
+  private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+  private static final String PREFIX = "finance_";
+
+  private record Metric<T>(String name, String labels, T value) {}
+
+  // Ключ — имя + метки: при выводе метрики одного имени идут подряд
+  private final Map<String, Metric<LatencyHistogram>> timers = new ConcurrentSkipListMap<>();
+  private final Map<String, Metric<LongSupplier>> counters = new ConcurrentSkipListMap<>();
+  private final Map<String, Metric<DoubleSupplier>> gauges = new ConcurrentSkipListMap<>();
+
+  public static MetricsRegistry global() {
+    return GLOBAL;
+  }
+
+  // Гистограмма задержек; в Prometheus — summary в секундах (p50, p99) и отдельный gauge _max
+  public LatencyHistogram timer(String name, String... labels) {
+    String l = labels(labels);
+    return timers
+        .computeIfAbsent(key(name, l), k -> new Metric<>(name, l, new LatencyHistogram()))
+        .value();
+  }
+
+  public LongAdder counter(String name, String... labels) {
+    String l = labels(labels);
+    Metric<LongSupplier> metric =
+        counters.computeIfAbsent(
+            key(name, l),
+            k -> {
+              LongAdder adder = new LongAdder();
+              return new Metric<>(name, l, new AdderSupplier(adder));
+            });
+    if (!(metric.value() instanceof AdderSupplier(LongAdder adder))) {
+      throw new IllegalStateException("Счётчик " + name + " вычисляется функцией");
+    }
+    return adder;
+  }
+
+  // Счётчик, который уже ведётся в другом месте (например, попадания кэша)
+  public void counter(String name, LongSupplier value, String... labels) {
+    String l = labels(labels);
+    counters.put(key(name, l), new Metric<>(name, l, value));
+  }
+
+  public void gauge(String name, DoubleSupplier value, String... labels) {
+    String l = labels(labels);
+    gauges.put(key(name, l), new Metric<>(name, l, value));
+  }
+
+  // Таблица для консоли: задержки в миллисекундах
+  public String renderText() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(
+        String.format(
+            Locale.ROOT,
+            "%-55s %10s %10s %10s %10s%n",
+            "Задержки (мс)",
+            "count",
+            "p50",
+            "p99",
+            "max"));
+    if (timers.isEmpty()) sb.append("- (нет данных)\n");
+    for (Metric<LatencyHistogram> m : timers.values()) {
+      LatencyHistogram.Snapshot s = m.value().snapshot();
+      sb.append(
+          String.format(
+              Locale.ROOT,
+              "%-55s %10d %10.3f %10.3f %10.3f%n",
+              m.name() + m.labels(),
+              s.count(),
+              s.p50Nanos() / 1e6,
+              s.p99Nanos() / 1e6,
+              s.maxNanos() / 1e6));
+    }
+
+    sb.append("\nСчётчики:\n");
+    if (counters.isEmpty()) sb.append("- (нет данных)\n");
+    for (Metric<LongSupplier> m : counters.values()) {
+      sb.append("- ")
+          .append(m.name())
+          .append(m.labels())
+          .append(": ")
+          .append(m.value().getAsLong())
+          .append('\n');
+    }
+
+    sb.append("\nПоказатели:\n");
+    if (gauges.isEmpty()) sb.append("- (нет данных)\n");
+    for (Metric<DoubleSupplier> m : gauges.values()) {
+      sb.append("- ")
+          .append(m.name())
+          .append(m.labels())
+          .append(": ")
+          .append(number(m.value().getAsDouble()))
+          .append('\n');
+    }
+    return sb.toString();
+  }
+
+  public String renderPrometheus() {
+    StringBuilder sb = new StringBuilder();
+
+    String family = null;
+    StringBuilder maxLines = new StringBuilder();
+    for (Metric<LatencyHistogram> m : timers.values()) {
+      String name = PREFIX + m.name();
+      if (!name.equals(family)) {
+        flushMax(sb, family, maxLines);
+        family = name;
+        sb.append("# TYPE ").append(name).append(" summary\n");
+      }
+      LatencyHistogram.Snapshot s = m.value().snapshot();
+      sb.append(name)
+          .append(withLabel(m.labels(), "quantile", "0.5"))
+          .append(' ')
+          .append(seconds(s.p50Nanos()))
+          .append('\n');
+      sb.append(name)
+          .append(withLabel(m.labels(), "quantile", "0.99"))
+          .append(' ')
+          .append(seconds(s.p99Nanos()))
+          .append('\n');
+      sb.append(name)
+          .append("_sum")
+          .append(m.labels())
+          .append(' ')
+          .append(seconds(s.sumNanos()))
+          .append('\n');
+      sb.append(name)
+          .append("_count")
+          .append(m.labels())
+          .append(' ')
+          .append(s.count())
+          .append('\n');
+      maxLines
+          .append(name)
+          .append("_max")
+          .append(m.labels())
+          .append(' ')
+          .append(seconds(s.maxNanos()))
+          .append('\n');
+    }
+    flushMax(sb, family, maxLines);
+
+    family = null;
+    for (Metric<LongSupplier> m : counters.values()) {
+      String name = PREFIX + m.name();
+      if (!name.equals(family)) {
+        family = name;
+        sb.append("# TYPE ").append(name).append(" counter\n");
+      }
+      sb.append(name).append(m.labels()).append(' ').append(m.value().getAsLong()).append('\n');
+    }
+
+    family = null;
+    for (Metric<DoubleSupplier> m : gauges.values()) {
+      String name = PREFIX + m.name();
+      if (!name.equals(family)) {
+        family = name;
+        sb.append("# TYPE ").append(name).append(" gauge\n");
+      }
+      sb.append(name)
+          .append(m.labels())
+          .append(' ')
+          .append(number(m.value().getAsDouble()))
+          .append('\n');
+    }
+    return sb.toString();
+  }
+
+  // Файл подменяется атомарно: сборщик (например, textfile collector node_exporter)
+  // не прочитает его наполовину записанным
+  public void writePrometheus(Path file) throws IOException {
+    Path dir = file.toAbsolutePath().getParent();
+    Files.createDirectories(dir);
+    Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+    try {
+      Files.writeString(tmp, renderPrometheus());
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static void flushMax(StringBuilder sb, String family, StringBuilder maxLines) {
+    if (family == null) return;
+    sb.append("# TYPE ").append(family).append("_max gauge\n").append(maxLines);
+    maxLines.setLength(0);
+  }
+
+  // '\0' меньше любого символа имени: метрики x и x_y не перемешиваются
+  private static String key(String name, String labels) {
+    return name + '\0' + labels;
+  }
+
+  // {a="1",b="2"} или пустая строка
+  private static String labels(String[] pairs) {
+    if (pairs.length % 2 != 0)
+      throw new IllegalArgumentException("Метки задаются парами: имя, значение");
+    if (pairs.length == 0) return "";
+
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i < pairs.length; i += 2) {
+      if (i > 0) sb.append(',');
+      sb.append(pairs[i]).append("=\"").append(escape(pairs[i + 1])).append('"');
+    }
+    return sb.append('}').toString();
+  }
+
+  private static String withLabel(String labels, String name, String value) {
+    String label = name + "=\"" + value + "\"";
+    return labels.isEmpty()
+        ? "{" + label + "}"
+        : labels.substring(0, labels.length() - 1) + "," + label + "}";
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static String seconds(long nanos) {
+    return number(nanos / 1e9);
+  }
+
+  private static String number(double v) {
+    if (v == Math.rint(v) && Math.abs(v) < 1e15) return Long.toString((long) v);
+    return Double.toString(v);
+  }
+
+  private record AdderSupplier(LongAdder adder) implements LongSupplier {
+    @Override
+    public long getAsLong() {
+      return adder.sum();
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package org.com.financeApp.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Периодически переписывает файл метрик в формате Prometheus; close() записывает последний раз
+public final class PrometheusFileExporter implements AutoCloseable {
+  public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(15);
+
+  private final MetricsRegistry registry;
+  private final Path file;
+  private final ScheduledExecutorService scheduler;
+
+  public PrometheusFileExporter(MetricsRegistry registry, Path file, Duration interval) {
+    if (registry == null) throw new IllegalArgumentException("registry не должен быть null");
+    if (file == null) throw new IllegalArgumentException("file не должен быть null");
+    if (interval == null || interval.isNegative() || interval.isZero())
+      throw new IllegalArgumentException("Интервал записи метрик должен быть больше 0");
+    this.registry = registry;
+    this.file = file;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "metrics-writer");
+              t.setDaemon(true);
+              return t;
+            });
+    long millis = interval.toMillis();
+    scheduler.scheduleWithFixedDelay(this::writeQuietly, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  public void write() throws IOException {
+    registry.writePrometheus(file);
+  }
+
+  @Override
+  public void close() throws IOException {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    write();
+  }
+
+  private void writeQuietly() {
+    try {
+      write();
+    } catch (IOException e) {
+      System.err.println("Не удалось записать метрики в " + file + ": " + e.getMessage());
+    }
+  }
+}
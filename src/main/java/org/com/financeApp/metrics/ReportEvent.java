@@ -0,0 +1,31 @@
+package org.com.financeApp.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Построение текстового отчёта (из кэша отчётов или заново)
+@Name("finance.Report")
+@Label("Report")
+@Description("Построение текстового отчёта")
+@Category({"Finance", "Report"})
+@StackTrace(false)
+public class ReportEvent extends jdk.jfr.Event {
+  @Label("Login")
+  public String login;
+
+  @Label("From")
+  public String from;
+
+  @Label("To")
+  public String to;
+
+  @Label("Cached")
+  @Description("Текст взят из кэша отчётов")
+  public boolean cached;
+
+  @Label("Characters")
+  public long characters;
+}
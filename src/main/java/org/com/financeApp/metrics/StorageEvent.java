@@ -0,0 +1,35 @@
+package org.com.financeApp.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Загрузка, сохранение, экспорт или импорт snapshot кошелька
+@Name("finance.WalletStorage")
+@Label("Wallet Storage")
+@Description("Загрузка, сохранение, экспорт и импорт snapshot кошелька")
+@Category({"Finance", "Storage"})
+@StackTrace(false)
+public class StorageEvent extends jdk.jfr.Event {
+  @Label("Operation")
+  public String operation;
+
+  @Label("Login")
+  public String login;
+
+  @Label("Format")
+  public String format;
+
+  @Label("Path")
+  public String path;
+
+  @Label("Transactions")
+  public long transactions;
+
+  @Label("Bytes")
+  @DataAmount
+  public long bytes;
+}
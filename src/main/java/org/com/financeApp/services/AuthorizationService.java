@@ -15,23 +15,32 @@ public class AuthorizationService {
   }
 
   public User register(String login, String password) {
+    currentUser = createUser(login, password);
+    return currentUser;
+  }
+
+  public User login(String login, String password) {
+    currentUser = authenticate(login, password);
+    return currentUser;
+  }
+
+  // createUser и authenticate не трогают currentUser: ими пользуются сессии HTTP API,
+  // где одновременно работают многие пользователи
+  public User createUser(String login, String password) {
     login = normalize(login);
     password = normalize(password);
 
     validateLogin(login);
     validatePassword(password);
 
-    if (repo.exists(login)) {
+    User user = new User(login, password);
+    if (!repo.saveIfAbsent(user)) {
       throw new IllegalArgumentException("Пользователь с таким логином уже существует " + login);
     }
-
-    User user = new User(login, password);
-    repo.save(user);
-    currentUser = user;
     return user;
   }
 
-  public User login(String login, String password) {
+  public User authenticate(String login, String password) {
     login = normalize(login);
     password = normalize(password);
 
@@ -46,8 +55,6 @@ public class AuthorizationService {
     if (!user.getPassword().equals(password)) {
       throw new IllegalArgumentException("Неверный пароль");
     }
-
-    currentUser = user;
     return user;
   }
 
@@ -68,16 +75,21 @@ public class AuthorizationService {
   }
 
   private static void validateLogin(String login) {
-    if (login.isEmpty() || login == null) {
+    if (login == null || login.isEmpty()) {
       throw new IllegalArgumentException("Логин не должен быть пустым");
     }
     if (login.contains(" ")) {
       throw new IllegalArgumentException("Логин не должен содержать пробелы");
     }
+    if (!User.isSafeLogin(login)) {
+      throw new IllegalArgumentException(
+          "Логин может содержать только латинские буквы, цифры, '_', '-', '.' (до 64 символов)"
+              + " и не должен начинаться с точки или содержать '..'");
+    }
   }
 
   private static void validatePassword(String password) {
-    if (password.isEmpty() || password == null) {
+    if (password == null || password.isEmpty()) {
       throw new IllegalArgumentException("Пароль не должен быть пустым");
     }
   }
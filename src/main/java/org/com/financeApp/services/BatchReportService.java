@@ -0,0 +1,111 @@
+package org.com.financeApp.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.repository.WalletRepository;
+
+// Отчёты по всем кошелькам каталога хранилища в <outDir>/<login>.txt (выписки на конец месяца).
+// Каждый кошелёк загружается, агрегируется и записывается отдельной задачей в пуле из
+// parallelism потоков; в очереди лежат только логины, поэтому в памяти одновременно не больше
+// parallelism загруженных кошельков. Кошелёк, уже открытый в этом процессе, берётся из памяти:
+// в нём могут быть ещё не сохранённые изменения. Ошибка одного кошелька не прерывает остальные
+public class BatchReportService {
+  private static final int MAX_REPORTED_ERRORS = 20;
+
+  public record BatchResult(int wallets, int written, List<String> errors, long elapsedNanos) {
+    public BatchResult {
+      errors = List.copyOf(errors);
+    }
+
+    public int failed() {
+      return wallets - written;
+    }
+  }
+
+  private final WalletFileStorage storage;
+  private final WalletRepository walletRepo;
+  private final ReportService reportService;
+  private final int parallelism;
+
+  public BatchReportService(
+      WalletFileStorage storage, WalletRepository walletRepo, ReportService reportService) {
+    this(storage, walletRepo, reportService, Runtime.getRuntime().availableProcessors());
+  }
+
+  public BatchReportService(
+      WalletFileStorage storage,
+      WalletRepository walletRepo,
+      ReportService reportService,
+      int parallelism) {
+    if (storage == null)
+      throw new IllegalArgumentException("WalletFileStorage не должен быть null");
+    if (walletRepo == null)
+      throw new IllegalArgumentException("WalletRepository не должен быть null");
+    if (reportService == null)
+      throw new IllegalArgumentException("ReportService не должен быть null");
+    if (parallelism <= 0) throw new IllegalArgumentException("Число потоков должно быть больше 0");
+    this.storage = storage;
+    this.walletRepo = walletRepo;
+    this.reportService = reportService;
+    this.parallelism = parallelism;
+  }
+
+  public BatchResult buildAll(Path outDir, LocalDate from, LocalDate to) throws IOException {
+    if (outDir == null) throw new IllegalArgumentException("outDir не должен быть null");
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new IllegalArgumentException("Некорректный период: from позже to");
+    }
+    long started = System.nanoTime();
+
+    List<String> logins = storage.storedLogins();
+    Files.createDirectories(outDir);
+
+    AtomicInteger written = new AtomicInteger();
+    Map<String, String> errors = new ConcurrentSkipListMap<>();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      CompletableFuture<?>[] tasks = new CompletableFuture<?>[logins.size()];
+      for (int i = 0; i < tasks.length; i++) {
+        String login = logins.get(i);
+        tasks[i] =
+            CompletableFuture.runAsync(
+                () -> {
+                  try {
+                    write(login, outDir, from, to);
+                    written.incrementAndGet();
+                  } catch (Exception e) {
+                    errors.put(login, e.getMessage());
+                  }
+                },
+                pool);
+      }
+      CompletableFuture.allOf(tasks).join();
+    } finally {
+      pool.shutdown();
+    }
+
+    List<String> reported = new ArrayList<>();
+    for (var e : errors.entrySet()) {
+      if (reported.size() == MAX_REPORTED_ERRORS) break;
+      reported.add(e.getKey() + ": " + e.getValue());
+    }
+    return new BatchResult(logins.size(), written.get(), reported, System.nanoTime() - started);
+  }
+
+  private void write(String login, Path outDir, LocalDate from, LocalDate to) throws IOException {
+    Wallet resident = walletRepo.findLoaded(login);
+    String report =
+        resident != null
+            ? reportService.buildReport(resident, from, to)
+            : reportService.buildReportUncached(storage.loadDetached(login), from, to);
+    reportService.saveToFile(WalletFileStorage.resolveInside(outDir, login + ".txt"), report);
+  }
+}
@@ -0,0 +1,292 @@
+package org.com.financeApp.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongConsumer;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.User;
+import org.com.financeApp.core.models.Wallet;
+
+// Импорт банковской выписки в CSV: type,category,amount[,date[,comment]] — строка на операцию.
+// Разделитель ',' или ';' (тот, что чаще встречается вне кавычек в первой строке; при ';'
+// допускается десятичная запятая), поля можно брать в кавычки, строка-заголовок пропускается.
+// Конвейер: чтение — файл отображается в память кусками по границам строк; разбор кусков идёт
+// параллельно в ForkJoinPool; запись — единственный поток применяет разобранные куски по порядку
+// пакетами через WalletService.addOperations. Некорректные строки пропускаются с указанием номера.
+// Границы всех кусков находятся до записи, поэтому слишком длинная строка отклоняет файл целиком.
+// Если запись всё же прервётся (ошибка чтения или кошелька), в исключении указано, сколько
+// операций и строк уже добавлено: импорт можно продолжить с файлом без этих строк
+public class CsvImporter {
+  public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+  private static final int MAX_REPORTED_ERRORS = 20;
+
+  public record ImportResult(
+      long rows, long imported, long skipped, List<String> errors, long elapsedNanos) {
+    public ImportResult {
+      errors = List.copyOf(errors);
+    }
+
+    public long rowsPerSecond() {
+      return elapsedNanos == 0 ? rows : rows * 1_000_000_000L / elapsedNanos;
+    }
+  }
+
+  // Разобранная строка: операция или ошибка. line — номер внутри куска (с 0), абсолютный
+  // номер считает стадия записи
+  private record Row(int line, WalletService.OperationRequest op, String error) {}
+
+  private record ParsedChunk(List<Row> rows, int lines) {}
+
+  private final WalletService walletService;
+  private final ForkJoinPool pool;
+  private final int chunkBytes;
+
+  public CsvImporter(WalletService walletService) {
+    this(walletService, ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+  }
+
+  public CsvImporter(WalletService walletService, ForkJoinPool pool, int chunkBytes) {
+    if (walletService == null)
+      throw new IllegalArgumentException("WalletService не должен быть null");
+    if (pool == null) throw new IllegalArgumentException("pool не должен быть null");
+    if (chunkBytes <= 0) throw new IllegalArgumentException("Размер куска должен быть больше 0");
+    this.walletService = walletService;
+    this.pool = pool;
+    this.chunkBytes = chunkBytes;
+  }
+
+  // progress получает число обработанных строк после применения каждого куска
+  public ImportResult importFile(User user, Path file, LongConsumer progress) throws IOException {
+    if (user == null) throw new IllegalStateException("Пользователь не авторизован");
+    if (file == null) throw new IllegalArgumentException("file не должен быть null");
+    long started = System.nanoTime();
+
+    long rows = 0;
+    long imported = 0;
+    long skipped = 0;
+    List<String> errors = new ArrayList<>();
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      char delimiter = detectDelimiter(channel);
+      long[] ends = chunkEnds(channel, size);
+
+      // Не больше 2 кусков на поток в работе: память ограничена при любом размере файла
+      int maxInFlight = Math.max(2, pool.getParallelism() * 2);
+      Deque<CompletableFuture<ParsedChunk>> inFlight = new ArrayDeque<>();
+      int next = 0;
+      long lineBase = 0;
+
+      try {
+        while (next < ends.length || !inFlight.isEmpty()) {
+          while (next < ends.length && inFlight.size() < maxInFlight) {
+            long start = next == 0 ? 0 : ends[next - 1];
+            ByteBuffer chunk =
+                channel.map(FileChannel.MapMode.READ_ONLY, start, ends[next] - start);
+            boolean skipHeader = next == 0;
+            next++;
+            inFlight.add(
+                CompletableFuture.supplyAsync(() -> parse(chunk, delimiter, skipHeader), pool));
+          }
+
+          ParsedChunk parsed = inFlight.poll().join();
+          Wallet wallet = walletService.getWallet(user);
+          List<WalletService.OperationRequest> batch = new ArrayList<>(parsed.rows().size());
+          Set<String> known = new HashSet<>();
+          for (Row row : parsed.rows()) {
+            WalletService.OperationRequest op = row.op();
+            String error = row.error();
+            // Расход в неизвестную категорию отклонил бы весь пакет; такая строка пропускается
+            if (op != null
+                && op.type() == TransactionType.EXPENSE
+                && !known.contains(op.category())
+                && !wallet.hasCategory(op.category())) {
+              error = "Категория не найдена: " + op.category();
+            }
+
+            if (error == null) {
+              known.add(op.category());
+              batch.add(op);
+            } else {
+              skipped++;
+              if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Строка " + (lineBase + row.line() + 1) + ": " + error);
+              }
+            }
+          }
+
+          walletService.addOperations(user, batch);
+          imported += batch.size();
+          rows += parsed.rows().size();
+          lineBase += parsed.lines();
+          if (progress != null) progress.accept(rows);
+        }
+      } catch (IOException | RuntimeException e) {
+        throw new IOException(
+            "Импорт прерван после строки "
+                + lineBase
+                + ", уже добавлено операций: "
+                + imported
+                + ". "
+                + e.getMessage(),
+            e);
+      }
+    }
+
+    return new ImportResult(rows, imported, skipped, errors, System.nanoTime() - started);
+  }
+
+  // Концы кусков: каждый — до последнего перевода строки в пределах chunkBytes (последний —
+  // до конца файла). Просматривается только хвост каждого куска, файл целиком не читается
+  private long[] chunkEnds(FileChannel channel, long size) throws IOException {
+    List<Long> ends = new ArrayList<>();
+    long position = 0;
+    while (position < size) {
+      long length = Math.min(chunkBytes, size - position);
+      if (position + length < size) {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        int end = (int) length;
+        while (end > 0 && buffer.get(end - 1) != '\n') end--;
+        if (end == 0) {
+          throw new IOException(
+              "Строка CSV длиннее " + chunkBytes + " байт (позиция " + position + ")");
+        }
+        length = end;
+      }
+      position += length;
+      ends.add(position);
+    }
+    return ends.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  // Считаются только разделители вне кавычек: запятая в сумме или комментарии в кавычках
+  // не выбирает разделитель
+  private static char detectDelimiter(FileChannel channel) throws IOException {
+    ByteBuffer head = ByteBuffer.allocate((int) Math.min(4096, channel.size()));
+    channel.read(head, 0);
+    head.flip();
+    int commas = 0;
+    int semicolons = 0;
+    boolean quoted = false;
+    while (head.hasRemaining()) {
+      byte b = head.get();
+      if (b == '"') {
+        quoted = !quoted;
+      } else if (!quoted) {
+        if (b == '\n') break;
+        if (b == ',') commas++;
+        if (b == ';') semicolons++;
+      }
+    }
+    return semicolons > commas ? ';' : ',';
+  }
+
+  private static ParsedChunk parse(ByteBuffer chunk, char delimiter, boolean skipHeader) {
+    String text = StandardCharsets.UTF_8.decode(chunk).toString();
+    List<Row> rows = new ArrayList<>();
+    List<String> fields = new ArrayList<>(5);
+
+    int line = 0;
+    // BOM, который добавляют выгрузки из Excel
+    int start = skipHeader && text.startsWith("\uFEFF") ? 1 : 0;
+    int length = text.length();
+    while (start < length) {
+      int end = text.indexOf('\n', start);
+      if (end < 0) end = length;
+      int lineEnd = end > start && text.charAt(end - 1) == '\r' ? end - 1 : end;
+
+      if (lineEnd > start) {
+        split(text, start, lineEnd, delimiter, fields);
+        boolean header = skipHeader && line == 0 && isHeader(fields);
+        if (!header && !(fields.size() == 1 && fields.get(0).isEmpty())) {
+          try {
+            rows.add(new Row(line, toOperation(fields, delimiter), null));
+          } catch (IllegalArgumentException | DateTimeException e) {
+            rows.add(new Row(line, null, e.getMessage()));
+          }
+        }
+      }
+      line++;
+      start = end + 1;
+    }
+
+    return new ParsedChunk(rows, line);
+  }
+
+  private static WalletService.OperationRequest toOperation(List<String> fields, char delimiter) {
+    if (fields.size() < 3) {
+      throw new IllegalArgumentException(
+          "Ожидается type,category,amount[,date[,comment]], получено полей: " + fields.size());
+    }
+    TransactionType type =
+        switch (fields.get(0).toLowerCase()) {
+          case "income", "доход" -> TransactionType.INCOME;
+          case "expense", "расход" -> TransactionType.EXPENSE;
+          default ->
+              throw new IllegalArgumentException("Неизвестный тип операции: " + fields.get(0));
+        };
+
+    String category = fields.get(1);
+    if (category.isEmpty()) throw new IllegalArgumentException("Категория не должна быть пустой");
+
+    String amountText = fields.get(2);
+    if (delimiter == ';') amountText = amountText.replace(',', '.');
+    double amount = InputFormats.parsePositiveAmount(amountText, "Сумма должна быть числом > 0");
+    if (Money.toMinor(amount) <= 0)
+      throw new IllegalArgumentException("Сумма должна быть больше 0");
+
+    LocalDate date =
+        fields.size() > 3 && !fields.get(3).isEmpty()
+            ? Transaction.requireSupportedDate(InputFormats.parseDate(fields.get(3)))
+            : null;
+    String comment = fields.size() > 4 && !fields.get(4).isEmpty() ? fields.get(4) : null;
+
+    return new WalletService.OperationRequest(type, category, amount, date, comment);
+  }
+
+  private static boolean isHeader(List<String> fields) {
+    String first = fields.get(0).toLowerCase();
+    return first.equals("type") || first.equals("тип");
+  }
+
+  // Поля в кавычках могут содержать разделитель и "" (экранированная кавычка)
+  private static void split(String text, int from, int to, char delimiter, List<String> out) {
+    out.clear();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = from; i < to; i++) {
+      char c = text.charAt(i);
+      if (quoted) {
+        if (c == '"') {
+          if (i + 1 < to && text.charAt(i + 1) == '"') {
+            field.append('"');
+            i++;
+          } else {
+            quoted = false;
+          }
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == delimiter) {
+        out.add(field.toString().trim());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    out.add(field.toString().trim());
+  }
+}
@@ -0,0 +1,52 @@
+package org.com.financeApp.services;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+// Разбор дат и сумм из пользовательского ввода: команды CLI, импорт CSV, JSON snapshot
+public final class InputFormats {
+  private InputFormats() {}
+
+  // "YYYY-MM-DD" разбирается без LocalDate.parse (горячий путь при загрузке и импорте),
+  // остальные форматы ISO — через LocalDate.parse
+  public static LocalDate parseDate(String s) {
+    if (isIsoDate(s)) {
+      return LocalDate.of(digits(s, 0, 4), digits(s, 5, 7), digits(s, 8, 10));
+    }
+    return LocalDate.parse(s);
+  }
+
+  // null, если строка не дата
+  public static LocalDate tryParseDate(String s) {
+    try {
+      return parseDate(s);
+    } catch (DateTimeException e) {
+      return null;
+    }
+  }
+
+  public static double parsePositiveAmount(String s, String errMsg) {
+    try {
+      double v = Double.parseDouble(s);
+      if (v <= 0) throw new IllegalArgumentException(errMsg);
+      return v;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(errMsg);
+    }
+  }
+
+  private static boolean isIsoDate(String s) {
+    if (s.length() != 10 || s.charAt(4) != '-' || s.charAt(7) != '-') return false;
+    for (int i = 0; i < 10; i++) {
+      char c = s.charAt(i);
+      if (i != 4 && i != 7 && (c < '0' || c > '9')) return false;
+    }
+    return true;
+  }
+
+  private static int digits(String s, int from, int to) {
+    int v = 0;
+    for (int i = from; i < to; i++) v = v * 10 + (s.charAt(i) - '0');
+    return v;
+  }
+}
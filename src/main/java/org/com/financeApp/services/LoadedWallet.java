@@ -0,0 +1,6 @@
+package org.com.financeApp.services;
+
+import org.com.financeApp.core.models.Wallet;
+
+// Кошелёк, прочитанный из snapshot, и номер последней вошедшей в него записи журнала
+record LoadedWallet(Wallet wallet, long journalSeq) {}
@@ -0,0 +1,108 @@
+package org.com.financeApp.services;
+
+import java.lang.ref.WeakReference;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.com.financeApp.core.models.Wallet;
+
+// Кэш результатов отчёта по ключу (логин, версия кошелька, период). Любое изменение кошелька
+// увеличивает его версию, поэтому записи не инвалидируются явно: устаревшие просто перестают
+// запрашиваться и вытесняются как давно не использованные (LRU, не больше maxEntries).
+// Запись помнит объект кошелька (слабой ссылкой): кошелёк, заменённый импортом или заново
+// загруженный с диска, с той же версией не получит чужой результат
+public class ReportCache {
+  public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+  public record Stats(long hits, long misses, int size) {
+    public double hitRate() {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+  }
+
+  private record Key(String login, long version, LocalDate from, LocalDate to) {}
+
+  static final class Entry {
+    private final WeakReference<Wallet> wallet;
+    private final StatsService.ReportData data;
+    // Текст отчёта строится при первом запросе и переиспользуется
+    private volatile String rendered;
+
+    private Entry(Wallet wallet, StatsService.ReportData data) {
+      this.wallet = new WeakReference<>(wallet);
+      this.data = data;
+    }
+
+    StatsService.ReportData data() {
+      return data;
+    }
+
+    String rendered() {
+      return rendered;
+    }
+
+    void rendered(String text) {
+      rendered = text;
+    }
+  }
+
+  private final int maxEntries;
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  // maxEntries == 0 — кэш выключен
+  public ReportCache(int maxEntries) {
+    if (maxEntries < 0)
+      throw new IllegalArgumentException("Размер кэша отчётов не может быть отрицательным");
+    this.maxEntries = maxEntries;
+  }
+
+  public Stats stats() {
+    lock.lock();
+    try {
+      return new Stats(hits.sum(), misses.sum(), entries.size());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  Entry get(Wallet wallet, long version, LocalDate from, LocalDate to) {
+    Key key = new Key(wallet.getOwnerLogin(), version, from, to);
+    lock.lock();
+    try {
+      Entry entry = entries.get(key);
+      if (entry != null && entry.wallet.get() == wallet) {
+        hits.increment();
+        return entry;
+      }
+      misses.increment();
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  Entry put(
+      Wallet wallet, long version, LocalDate from, LocalDate to, StatsService.ReportData data) {
+    Entry entry = new Entry(wallet, data);
+    if (maxEntries == 0) return entry;
+
+    Key key = new Key(wallet.getOwnerLogin(), version, from, to);
+    lock.lock();
+    try {
+      entries.put(key, entry);
+      if (entries.size() > maxEntries) {
+        var it = entries.entrySet().iterator();
+        it.next();
+        it.remove();
+      }
+      return entry;
+    } finally {
+      lock.unlock();
+    }
+  }
+}
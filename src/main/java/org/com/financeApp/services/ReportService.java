@@ -7,51 +7,111 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.time.LocalDate;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
-import java.util.Map;
+import java.util.stream.IntStream;
+import org.com.financeApp.core.models.CategoryDictionary;
+import org.com.financeApp.core.models.Money;
 import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.models.WalletView;
+import org.com.financeApp.metrics.ReportEvent;
 
 public class ReportService {
   private final StatsService stats;
+  private final ReportCache cache;
 
   public ReportService(StatsService stats) {
+    this(stats, ReportCache.DEFAULT_MAX_ENTRIES);
+  }
+
+  // cacheSize — сколько последних результатов (отчёт за период по версии кошелька) хранить
+  public ReportService(StatsService stats, int cacheSize) {
     if (stats == null) throw new IllegalArgumentException("StatsService не должен быть null");
     this.stats = stats;
+    this.cache = new ReportCache(cacheSize);
   }
 
   public String buildReport(Wallet wallet) {
     return buildReport(wallet, null, null);
   }
 
+  // Пока кошелёк не менялся, повторный отчёт за тот же период берётся из кэша
+  // без агрегации и без построения текста
   public String buildReport(Wallet wallet, LocalDate from, LocalDate to) {
+    ReportEvent event = new ReportEvent();
+    event.begin();
+    ReportCache.Entry entry = cached(wallet, from, to);
+    String report = entry.rendered();
+    boolean cachedText = report != null;
+    if (report == null) {
+      report = render(entry.data());
+      entry.rendered(report);
+    }
+
+    commit(event, wallet, from, to, cachedText, report);
+    return report;
+  }
+
+  // Отчёт мимо кэша — для кошельков, загруженных на один раз (пакетная выгрузка): их записи
+  // только вытеснили бы из кэша отчёты активных пользователей
+  public String buildReportUncached(Wallet wallet, LocalDate from, LocalDate to) {
     if (wallet == null) throw new IllegalArgumentException("Wallet не должен быть null");
+    ReportEvent event = new ReportEvent();
+    event.begin();
+    String report = render(stats.aggregate(wallet.snapshot(), from, to));
+    commit(event, wallet, from, to, false, report);
+    return report;
+  }
 
-    var nf = numberFormat();
+  // То же, что StatsService.aggregate, но через кэш отчётов
+  public StatsService.ReportData aggregate(Wallet wallet, LocalDate from, LocalDate to) {
+    return cached(wallet, from, to).data();
+  }
 
-    double totalIncome =
-        (from == null && to == null)
-            ? stats.totalIncome(wallet)
-            : stats.totalIncome(wallet, from, to);
+  public ReportCache.Stats getCacheStats() {
+    return cache.stats();
+  }
 
-    double totalExpense =
-        (from == null && to == null)
-            ? stats.totalExpense(wallet)
-            : stats.totalExpense(wallet, from, to);
+  private ReportCache.Entry cached(Wallet wallet, LocalDate from, LocalDate to) {
+    if (wallet == null) throw new IllegalArgumentException("Wallet не должен быть null");
 
-    Map<String, Double> incomeByCat =
-        (from == null && to == null)
-            ? stats.incomeByCategory(wallet)
-            : stats.incomeByCategory(wallet, from, to);
+    ReportCache.Entry entry = cache.get(wallet, wallet.getVersion(), from, to);
+    if (entry != null) return entry;
 
-    Map<String, Double> expenseByCat =
-        (from == null && to == null)
-            ? stats.expenseByCategory(wallet)
-            : stats.expenseByCategory(wallet, from, to);
+    // Ключ — версия view, по которому считался отчёт, а не версия на момент проверки
+    WalletView view = wallet.snapshot();
+    return cache.put(wallet, view.getVersion(), from, to, stats.aggregate(view, from, to));
+  }
 
-    Map<String, StatsService.BudgetStatus> budgetStatus =
-        (from == null && to == null)
-            ? stats.budgetStatus(wallet)
-            : stats.budgetStatus(wallet, from, to);
+  private static void commit(
+      ReportEvent event,
+      Wallet wallet,
+      LocalDate from,
+      LocalDate to,
+      boolean cached,
+      String report) {
+    event.end();
+    if (!event.shouldCommit()) return;
+    event.login = wallet.getOwnerLogin();
+    event.from = from == null ? null : from.toString();
+    event.to = to == null ? null : to.toString();
+    event.cached = cached;
+    event.characters = report.length();
+    event.commit();
+  }
+
+  public String render(StatsService.ReportData data) {
+    if (data == null) throw new IllegalArgumentException("ReportData не должен быть null");
+
+    var nf = numberFormat();
+    LocalDate from = data.from();
+    LocalDate to = data.to();
+    long totalIncome = data.totalIncomeMinor();
+    long totalExpense = data.totalExpenseMinor();
+    CategoryDictionary categories = data.categories();
+    List<Integer> incomeIds = sortedByName(data.incomeByCategory().ids(), categories);
+    List<Integer> expenseIds = sortedByName(data.expenseByCategory().ids(), categories);
+    List<Integer> budgetIds = sortedByName(data.budgetedCategoryIds(), categories);
 
     StringBuilder sb = new StringBuilder();
 
@@ -63,76 +123,106 @@ public class ReportService {
           .append("\n\n");
     }
 
-    sb.append("Общий доход: ").append(nf.format(totalIncome)).append("\n");
+    sb.append("Общий доход: ").append(nf.format(Money.toDecimal(totalIncome))).append("\n");
     sb.append("Доходы по категориям:\n");
-    if (incomeByCat.isEmpty()) {
+    if (incomeIds.isEmpty()) {
       sb.append("- (нет данных)\n");
     } else {
-      incomeByCat.entrySet().stream()
-          .sorted(Map.Entry.comparingByKey(Comparator.naturalOrder()))
-          .forEach(
-              e ->
-                  sb.append("- ")
-                      .append(e.getKey())
-                      .append(": ")
-                      .append(nf.format(e.getValue()))
-                      .append("\n"));
+      for (int id : incomeIds) {
+        sb.append("- ")
+            .append(categories.name(id))
+            .append(": ")
+            .append(nf.format(Money.toDecimal(data.incomeByCategory().get(id))))
+            .append("\n");
+      }
     }
 
     sb.append("\n");
-    sb.append("Общие расходы: ").append(nf.format(totalExpense)).append("\n");
+    sb.append("Общие расходы: ").append(nf.format(Money.toDecimal(totalExpense))).append("\n");
     sb.append("Расходы по категориям:\n");
-    if (expenseByCat.isEmpty()) {
+    if (expenseIds.isEmpty()) {
       sb.append("- (нет данных)\n");
     } else {
-      expenseByCat.entrySet().stream()
-          .sorted(Map.Entry.comparingByKey(Comparator.naturalOrder()))
-          .forEach(
-              e ->
-                  sb.append("- ")
-                      .append(e.getKey())
-                      .append(": ")
-                      .append(nf.format(e.getValue()))
-                      .append("\n"));
+      for (int id : expenseIds) {
+        sb.append("- ")
+            .append(categories.name(id))
+            .append(": ")
+            .append(nf.format(Money.toDecimal(data.expenseByCategory().get(id))))
+            .append("\n");
+      }
     }
 
     sb.append("\n");
     sb.append("Бюджет по категориям:\n");
-    if (budgetStatus.isEmpty()) {
+    if (budgetIds.isEmpty()) {
       sb.append("- (бюджеты не заданы)\n");
     } else {
-      budgetStatus.entrySet().stream()
-          .sorted(Map.Entry.comparingByKey(Comparator.naturalOrder()))
-          .forEach(
-              e -> {
-                String category = e.getKey();
-                var st = e.getValue();
-                sb.append("- ")
-                    .append(category)
-                    .append(": ")
-                    .append(nf.format(st.limit()))
-                    .append(", Оставшийся бюджет: ")
-                    .append(nf.format(st.remaining()));
-                if (st.remaining() < 0) sb.append(" (ПРЕВЫШЕН)");
-                sb.append("\n");
-              });
+      for (int id : budgetIds) {
+        var st = data.budgetStatus(id);
+        sb.append("- ")
+            .append(categories.name(id))
+            .append(": ")
+            .append(nf.format(Money.toDecimal(st.limitMinor())))
+            .append(", Оставшийся бюджет: ")
+            .append(nf.format(Money.toDecimal(st.remainingMinor())));
+        if (st.remainingMinor() < 0) sb.append(" (ПРЕВЫШЕН)");
+        sb.append("\n");
+      }
     }
 
     sb.append("\n");
-    sb.append("Баланс: ").append(nf.format(wallet.getBalance())).append("\n");
+    sb.append("Баланс: ").append(nf.format(Money.toDecimal(data.balanceMinor()))).append("\n");
 
     sb.append("\n");
     if (totalExpense > totalIncome) {
       sb.append("ВНИМАНИЕ: расходы превысили доходы (")
-          .append(nf.format(totalExpense))
+          .append(nf.format(Money.toDecimal(totalExpense)))
           .append(" > ")
-          .append(nf.format(totalIncome))
+          .append(nf.format(Money.toDecimal(totalIncome)))
           .append(")\n");
     }
 
     return sb.toString();
   }
 
+  // Таблица по месяцам: итоги доходов/расходов и разбивка по категориям
+  public String renderMonthly(List<StatsService.MonthlyTotals> months) {
+    if (months == null) throw new IllegalArgumentException("months не должен быть null");
+    if (months.isEmpty()) return "Нет операций\n";
+
+    var nf = numberFormat();
+    StringBuilder sb = new StringBuilder();
+    for (StatsService.MonthlyTotals m : months) {
+      long income = m.totalIncomeMinor();
+      long expense = m.totalExpenseMinor();
+      sb.append(m.month())
+          .append(": доход ")
+          .append(nf.format(Money.toDecimal(income)))
+          .append(", расход ")
+          .append(nf.format(Money.toDecimal(expense)))
+          .append(", итог ")
+          .append(nf.format(Money.toDecimal(income - expense)))
+          .append("\n");
+
+      CategoryDictionary categories = m.categories();
+      for (int id : sortedByName(m.incomeByCategory().ids(), categories)) {
+        sb.append("  + ")
+            .append(categories.name(id))
+            .append(": ")
+            .append(nf.format(Money.toDecimal(m.incomeByCategory().get(id))))
+            .append("\n");
+      }
+      for (int id : sortedByName(m.expenseByCategory().ids(), categories)) {
+        sb.append("  - ")
+            .append(categories.name(id))
+            .append(": ")
+            .append(nf.format(Money.toDecimal(m.expenseByCategory().get(id))))
+            .append("\n");
+      }
+    }
+    return sb.toString();
+  }
+
   public void saveToFile(Path path, String report) throws IOException {
     if (path == null) throw new IllegalArgumentException("path не должен быть null");
     if (report == null) throw new IllegalArgumentException("report не должен быть null");
@@ -144,6 +234,10 @@ public class ReportService {
     Files.writeString(path, report);
   }
 
+  private static List<Integer> sortedByName(IntStream ids, CategoryDictionary categories) {
+    return ids.boxed().sorted(Comparator.comparing(categories::name)).toList();
+  }
+
   private static DecimalFormat numberFormat() {
     DecimalFormatSymbols sym = DecimalFormatSymbols.getInstance(Locale.US);
     DecimalFormat df = new DecimalFormat("#,##0.0", sym);
@@ -0,0 +1,172 @@
+package org.com.financeApp.services;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.com.financeApp.core.models.User;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.repository.WalletRepository;
+
+// Сессии по токенам вместо единственного AuthorizationService.currentUser: у каждого клиента
+// HTTP API свой токен, один пользователь может держать несколько сессий одновременно.
+// Сессия, к которой не обращались дольше idleTimeout, больше не действует; такие сессии
+// удаляются (с сохранением кошелька, как при logout) при входе — не реже раза в idleTimeout
+// и всегда, когда открыто maxSessions сессий. Сверх maxSessions новые сессии не открываются
+public class SessionService {
+  private static final int TOKEN_BYTES = 32;
+  public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+  public static final int DEFAULT_MAX_SESSIONS = 10_000;
+
+  private static final class Session {
+    final User user;
+    volatile long lastAccessNanos;
+
+    Session(User user, long now) {
+      this.user = user;
+      this.lastAccessNanos = now;
+    }
+  }
+
+  private final AuthorizationService auth;
+  private final WalletRepository walletRepo;
+  private final WalletFileStorage walletStorage;
+  private final long idleTimeoutNanos;
+  private final int maxSessions;
+  private final SecureRandom random = new SecureRandom();
+  private final Map<String, Session> sessionsByToken = new ConcurrentHashMap<>();
+  private volatile long lastSweepNanos = System.nanoTime();
+  // Кошелёк читается с диска один раз за процесс: повторный вход не должен затирать
+  // изменения, сделанные в других сессиях того же пользователя
+  private final Set<String> loadedLogins = ConcurrentHashMap.newKeySet();
+  private final Map<String, ReentrantLock> walletLocks = new ConcurrentHashMap<>();
+
+  public SessionService(
+      AuthorizationService auth, WalletRepository walletRepo, WalletFileStorage walletStorage) {
+    this(auth, walletRepo, walletStorage, DEFAULT_IDLE_TIMEOUT, DEFAULT_MAX_SESSIONS);
+  }
+
+  public SessionService(
+      AuthorizationService auth,
+      WalletRepository walletRepo,
+      WalletFileStorage walletStorage,
+      Duration idleTimeout,
+      int maxSessions) {
+    if (auth == null)
+      throw new IllegalArgumentException("AuthorizationService не должен быть null");
+    if (walletRepo == null)
+      throw new IllegalArgumentException("WalletRepository не должен быть null");
+    if (walletStorage == null)
+      throw new IllegalArgumentException("WalletFileStorage не должен быть null");
+    if (idleTimeout == null || idleTimeout.isNegative() || idleTimeout.isZero())
+      throw new IllegalArgumentException("Время жизни сессии должно быть больше 0");
+    if (maxSessions <= 0) throw new IllegalArgumentException("Число сессий должно быть больше 0");
+    this.auth = auth;
+    this.walletRepo = walletRepo;
+    this.walletStorage = walletStorage;
+    this.idleTimeoutNanos = idleTimeout.toNanos();
+    this.maxSessions = maxSessions;
+  }
+
+  public String register(String login, String password) throws IOException {
+    return open(auth.createUser(login, password));
+  }
+
+  public String login(String login, String password) throws IOException {
+    return open(auth.authenticate(login, password));
+  }
+
+  // Пользователь сессии или null, если токен неизвестен или сессия истекла.
+  // Обращение продлевает сессию
+  public User find(String token) {
+    Session session = token == null ? null : sessionsByToken.get(token);
+    if (session == null) return null;
+    long now = System.nanoTime();
+    if (now - session.lastAccessNanos > idleTimeoutNanos) return null;
+    session.lastAccessNanos = now;
+    return session.user;
+  }
+
+  public void logout(String token) throws IOException {
+    Session session = token == null ? null : sessionsByToken.remove(token);
+    if (session == null) throw new IllegalStateException("Сессия не найдена");
+    checkpoint(session.user);
+  }
+
+  public int activeSessions() {
+    return sessionsByToken.size();
+  }
+
+  // Удаляет истёкшие сессии и сохраняет их кошельки; возвращает число удалённых
+  public int expireIdle() throws IOException {
+    long now = System.nanoTime();
+    lastSweepNanos = now;
+    int expired = 0;
+    for (var e : sessionsByToken.entrySet()) {
+      Session session = e.getValue();
+      if (now - session.lastAccessNanos <= idleTimeoutNanos) continue;
+      if (!sessionsByToken.remove(e.getKey(), session)) continue;
+      expired++;
+      checkpoint(session.user);
+    }
+    return expired;
+  }
+
+  // Сохранение кошельков всех открытых сессий (остановка сервера)
+  public void checkpointAll() throws IOException {
+    Set<User> users = new HashSet<>();
+    for (Session session : sessionsByToken.values()) users.add(session.user);
+    for (User user : users) checkpoint(user);
+  }
+
+  private String open(User user) throws IOException {
+    long now = System.nanoTime();
+    if (sessionsByToken.size() >= maxSessions || now - lastSweepNanos > idleTimeoutNanos) {
+      expireIdle();
+    }
+    if (sessionsByToken.size() >= maxSessions) {
+      throw new IllegalStateException("Открыто слишком много сессий, попробуйте позже");
+    }
+
+    String login = user.getLogin();
+    if (!loadedLogins.contains(login)) {
+      ReentrantLock lock = lockFor(login);
+      lock.lock();
+      try {
+        if (!loadedLogins.contains(login)) {
+          walletRepo.save(walletStorage.loadOrCreate(login));
+          loadedLogins.add(login);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    byte[] bytes = new byte[TOKEN_BYTES];
+    random.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    sessionsByToken.put(token, new Session(user, System.nanoTime()));
+    return token;
+  }
+
+  private void checkpoint(User user) throws IOException {
+    String login = user.getLogin();
+    ReentrantLock lock = lockFor(login);
+    lock.lock();
+    try {
+      Wallet wallet = walletRepo.getOrCreate(login);
+      walletStorage.checkpoint(login, wallet);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private ReentrantLock lockFor(String login) {
+    return walletLocks.computeIfAbsent(login, l -> new ReentrantLock());
+  }
+}
@@ -0,0 +1,40 @@
+package org.com.financeApp.services;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum SnapshotFormat {
+  JSON(".json"),
+  BINARY(".pfm"),
+  // Тот же .pfm, но колонки операций при загрузке отображаются в память, а не копируются в кучу;
+  // используется только как формат хранения в data/
+  MAPPED(".pfm");
+
+  private final String extension;
+
+  SnapshotFormat(String extension) {
+    this.extension = extension;
+  }
+
+  public String extension() {
+    return extension;
+  }
+
+  // Формат по расширению файла; всё, кроме .pfm, считается JSON
+  public static SnapshotFormat forFile(Path file) {
+    Path name = file.getFileName();
+    return name != null && name.toString().toLowerCase(Locale.ROOT).endsWith(BINARY.extension)
+        ? BINARY
+        : JSON;
+  }
+
+  public static SnapshotFormat parse(String name) {
+    if (name == null) throw new IllegalArgumentException("Формат не должен быть null");
+    return switch (name.trim().toLowerCase(Locale.ROOT)) {
+      case "json" -> JSON;
+      case "binary", "pfm" -> BINARY;
+      case "mapped", "mmap" -> MAPPED;
+      default -> throw new IllegalArgumentException("Неизвестный формат хранения: " + name);
+    };
+  }
+}
@@ -1,15 +1,159 @@
 package org.com.financeApp.services;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import org.com.financeApp.core.models.Transaction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import org.com.financeApp.core.models.CategoryDictionary;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.MonthlyRollup;
 import org.com.financeApp.core.models.TransactionType;
 import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.models.WalletView;
+import org.com.financeApp.metrics.AggregationEvent;
+import org.com.financeApp.metrics.LatencyHistogram;
+import org.com.financeApp.metrics.MetricsRegistry;
 
 public class StatsService {
-  public record BudgetStatus(double limit, double spent, double remaining) {}
+  // Время запросов по видам и число просмотренных операций (0 — ответ из агрегатов)
+  private static final MetricsRegistry METRICS = MetricsRegistry.global();
+  private static final LatencyHistogram TOTAL_TIME =
+      METRICS.timer("stats_query_seconds", "query", "total");
+  private static final LatencyHistogram BY_CATEGORY_TIME =
+      METRICS.timer("stats_query_seconds", "query", "by_category");
+  private static final LatencyHistogram BUDGET_STATUS_TIME =
+      METRICS.timer("stats_query_seconds", "query", "budget_status");
+  private static final LatencyHistogram AGGREGATE_TIME =
+      METRICS.timer("stats_query_seconds", "query", "aggregate");
+  private static final LatencyHistogram MONTHLY_TIME =
+      METRICS.timer("stats_query_seconds", "query", "monthly");
+  private static final LongAdder SCANNED_ROWS = METRICS.counter("stats_scanned_rows_total");
+
+  // С какого числа строк крайний месяц периода просматривается параллельно. Ниже порога
+  // просмотр месяца короче, чем разбудить потоки пула и сложить частичные массивы по
+  // категориям; с 65536 строк месяц делится на 16 частей по 4096 строк (минимальная часть
+  // MonthlyRollup), по несколько на поток. Значение не откалибровано на многоядерной машине:
+  // порог для своей подбирается по ParallelScanBenchmark и задаётся флагом --parallel-threshold
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 65_536;
+
+  private final int parallelThreshold;
+  private final ForkJoinPool pool;
+
+  public StatsService() {
+    this(DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  // parallelThreshold: 0 — всегда последовательно
+  public StatsService(int parallelThreshold) {
+    this(parallelThreshold, ForkJoinPool.commonPool());
+  }
+
+  // pool: в каком пуле просматриваются большие крайние месяцы (по умолчанию общий)
+  public StatsService(int parallelThreshold, ForkJoinPool pool) {
+    if (parallelThreshold < 0)
+      throw new IllegalArgumentException("Порог параллельной агрегации не может быть меньше 0");
+    if (pool == null) throw new IllegalArgumentException("pool не должен быть null");
+    this.parallelThreshold = parallelThreshold;
+    this.pool = pool;
+  }
+
+  public int getParallelThreshold() {
+    return parallelThreshold;
+  }
+
+  public record BudgetStatus(long limitMinor, long spentMinor) {
+    // Прежний конструктор в рублях; остаток всегда вычисляется из лимита и расходов
+    public BudgetStatus(double limit, double spent, double remaining) {
+      this(Money.toMinor(limit), Money.toMinor(spent));
+    }
+
+    public long remainingMinor() {
+      return limitMinor - spentMinor;
+    }
+
+    public double limit() {
+      return Money.toMajor(limitMinor);
+    }
+
+    public double spent() {
+      return Money.toMajor(spentMinor);
+    }
+
+    public double remaining() {
+      return Money.toMajor(remainingMinor());
+    }
+  }
+
+  // Суммы (в копейках) по id категорий кошелька; имена разрешаются только при выводе
+  public static final class CategoryTotals {
+    private final long[] minorById;
+
+    CategoryTotals(long[] minorById) {
+      this.minorById = minorById;
+    }
+
+    public long get(int categoryId) {
+      return categoryId < minorById.length ? minorById[categoryId] : 0;
+    }
+
+    // Категории с ненулевой суммой
+    public IntStream ids() {
+      return IntStream.range(0, minorById.length).filter(id -> minorById[id] != 0);
+    }
+  }
+
+  // Все суммы — в копейках (см. Money)
+  public record ReportData(
+      LocalDate from,
+      LocalDate to,
+      CategoryDictionary categories,
+      long totalIncomeMinor,
+      long totalExpenseMinor,
+      CategoryTotals incomeByCategory,
+      CategoryTotals expenseByCategory,
+      BitSet budgetedCategories,
+      long[] budgetLimitsMinor,
+      long balanceMinor) {
+    public ReportData {
+      budgetedCategories = (BitSet) budgetedCategories.clone();
+      budgetLimitsMinor = budgetLimitsMinor.clone();
+    }
+
+    @Override
+    public BitSet budgetedCategories() {
+      return (BitSet) budgetedCategories.clone();
+    }
+
+    @Override
+    public long[] budgetLimitsMinor() {
+      return budgetLimitsMinor.clone();
+    }
+
+    public IntStream budgetedCategoryIds() {
+      return budgetedCategories.stream();
+    }
+
+    public BudgetStatus budgetStatus(int categoryId) {
+      return new BudgetStatus(budgetLimitsMinor[categoryId], expenseByCategory.get(categoryId));
+    }
+  }
+
+  // Суммы за один месяц по категориям (в копейках)
+  public record MonthlyTotals(
+      YearMonth month,
+      CategoryDictionary categories,
+      CategoryTotals incomeByCategory,
+      CategoryTotals expenseByCategory) {
+    public long totalIncomeMinor() {
+      return incomeByCategory.ids().mapToLong(incomeByCategory::get).sum();
+    }
+
+    public long totalExpenseMinor() {
+      return expenseByCategory.ids().mapToLong(expenseByCategory::get).sum();
+    }
+  }
 
   public double totalIncome(Wallet wallet) {
     return total(wallet, TransactionType.INCOME, null, null, null);
@@ -24,6 +168,12 @@ public class StatsService {
     return wallet.getBalance();
   }
 
+  public double balanceAsOf(Wallet wallet, LocalDate date) {
+    requireWallet(wallet);
+    if (date == null) throw new IllegalArgumentException("Дата не должна быть null");
+    return Money.toMajor(wallet.getBalanceAsOfMinor(date));
+  }
+
   public double totalIncome(Wallet wallet, LocalDate from, LocalDate to) {
     return total(wallet, TransactionType.INCOME, from, to, null);
   }
@@ -69,90 +219,236 @@ public class StatsService {
   }
 
   public Map<String, BudgetStatus> budgetStatus(Wallet wallet, LocalDate from, LocalDate to) {
-    requireWallet(wallet);
-    validateDateRange(from, to);
-
-    Map<String, BudgetStatus> result = new HashMap<>();
-
-    for (Map.Entry<String, Double> e : wallet.getBudgetsByCategory().entrySet()) {
-      String category = e.getKey();
-      double limit = e.getValue() == null ? 0.0 : e.getValue();
+    long started = System.nanoTime();
+    AggregationEvent event = new AggregationEvent();
+    event.begin();
+    try {
+      requireWallet(wallet);
+      validateDateRange(from, to);
+
+      WalletView view = wallet.snapshot();
+      event.wallet(view.getOwnerLogin(), view.getTransactionStore().size());
+      CategoryDictionary dictionary = view.getCategoryDictionary();
+      CategoryTotals spent = categoryTotals(view, TransactionType.EXPENSE, from, to, event);
+
+      Map<String, BudgetStatus> result = new HashMap<>();
+      view.getBudgetedCategoryIds().stream()
+          .forEach(
+              id ->
+                  result.put(
+                      dictionary.name(id),
+                      new BudgetStatus(view.getBudgetMinor(id), spent.get(id))));
+      return result;
+    } finally {
+      BUDGET_STATUS_TIME.recordSince(started);
+      event.finish("budget_status", from, to);
+    }
+  }
 
-      double spent =
-          filteredStream(wallet, TransactionType.EXPENSE, from, to, List.of(category))
-              .mapToDouble(Transaction::getAmount)
-              .sum();
+  // Все показатели отчёта из агрегатов кошелька: без периода — из общих сумм, с периодом —
+  // из помесячных (операции просматриваются только в неполных крайних месяцах).
+  // Отчёт строится по snapshot кошелька: согласован и не блокирует изменения во время прохода
+  public ReportData aggregate(Wallet wallet, LocalDate from, LocalDate to) {
+    requireWallet(wallet);
+    return aggregate(wallet.snapshot(), from, to);
+  }
 
-      result.put(category, new BudgetStatus(limit, spent, limit - spent));
+  public ReportData aggregate(WalletView wallet, LocalDate from, LocalDate to) {
+    long started = System.nanoTime();
+    AggregationEvent event = new AggregationEvent();
+    event.begin();
+    try {
+      if (wallet == null) throw new IllegalArgumentException("Wallet не должен быть null");
+      validateDateRange(from, to);
+      event.wallet(wallet.getOwnerLogin(), wallet.getTransactionStore().size());
+
+      CategoryDictionary dictionary = wallet.getCategoryDictionary();
+      long[] incomeById;
+      long[] expenseById;
+      long totalIncome;
+      long totalExpense;
+
+      if (from == null && to == null) {
+        incomeById = wallet.getCategoryTotalsMinor(TransactionType.INCOME);
+        expenseById = wallet.getCategoryTotalsMinor(TransactionType.EXPENSE);
+        totalIncome = wallet.getTotalMinor(TransactionType.INCOME);
+        totalExpense = wallet.getTotalMinor(TransactionType.EXPENSE);
+      } else {
+        // Полные месяцы — из помесячных сумм, крайние — по строкам этих месяцев
+        incomeById = new long[dictionary.size()];
+        expenseById = new long[dictionary.size()];
+        scan(wallet, from, to, incomeById, expenseById, event);
+        totalIncome = Arrays.stream(incomeById).sum();
+        totalExpense = Arrays.stream(expenseById).sum();
+      }
+
+      long[] budgetLimits = new long[dictionary.size()];
+      BitSet budgeted = wallet.getBudgetedCategoryIds();
+      budgeted.stream().forEach(id -> budgetLimits[id] = wallet.getBudgetMinor(id));
+
+      return new ReportData(
+          from,
+          to,
+          dictionary,
+          totalIncome,
+          totalExpense,
+          new CategoryTotals(incomeById),
+          new CategoryTotals(expenseById),
+          budgeted,
+          budgetLimits,
+          wallet.getBalanceMinor());
+    } finally {
+      AGGREGATE_TIME.recordSince(started);
+      event.finish("aggregate", from, to);
     }
+  }
 
-    return result;
+  // Месяцы с операциями по возрастанию (year == null — все), прямо из помесячных сумм кошелька
+  public List<MonthlyTotals> monthly(Wallet wallet, Integer year) {
+    long started = System.nanoTime();
+    AggregationEvent event = new AggregationEvent();
+    event.begin();
+    try {
+      requireWallet(wallet);
+
+      WalletView view = wallet.snapshot();
+      event.wallet(view.getOwnerLogin(), view.getTransactionStore().size());
+      MonthlyRollup rollup = view.getMonthlyRollup();
+      List<MonthlyTotals> result = new ArrayList<>();
+      for (YearMonth month : rollup.months()) {
+        if (year != null && month.getYear() != year) continue;
+        result.add(
+            new MonthlyTotals(
+                month,
+                view.getCategoryDictionary(),
+                new CategoryTotals(rollup.categoryTotalsMinor(month, TransactionType.INCOME)),
+                new CategoryTotals(rollup.categoryTotalsMinor(month, TransactionType.EXPENSE))));
+      }
+      return result;
+    } finally {
+      MONTHLY_TIME.recordSince(started);
+      event.finish("monthly", null, null);
+    }
   }
 
   private double total(
       Wallet wallet, TransactionType type, LocalDate from, LocalDate to, List<String> categories) {
-
-    requireWallet(wallet);
-    validateDateRange(from, to);
-    validateCategoriesIfProvided(wallet, categories);
-
-    return filteredStream(wallet, type, from, to, categories)
-        .mapToDouble(Transaction::getAmount)
-        .sum();
+    long started = System.nanoTime();
+    AggregationEvent event = new AggregationEvent();
+    event.begin();
+    try {
+      requireWallet(wallet);
+      validateDateRange(from, to);
+      validateCategoriesIfProvided(wallet, categories);
+      event.wallet(wallet.getOwnerLogin(), wallet.getTransactionStore().size());
+
+      long total;
+      if (categories == null || categories.isEmpty()) {
+        total =
+            (from == null && to == null)
+                ? wallet.getTotalMinor(type)
+                : wallet.getTotalMinor(type, from, to);
+      } else {
+        CategoryTotals totals = categoryTotals(wallet.snapshot(), type, from, to, event);
+        total =
+            toCategoryIds(wallet.getCategoryDictionary(), categories).stream()
+                .mapToLong(totals::get)
+                .sum();
+      }
+      return Money.toMajor(total);
+    } finally {
+      TOTAL_TIME.recordSince(started);
+      event.finish("total", from, to);
+    }
   }
 
   private Map<String, Double> byCategory(
       Wallet wallet, TransactionType type, LocalDate from, LocalDate to) {
+    long started = System.nanoTime();
+    AggregationEvent event = new AggregationEvent();
+    event.begin();
+    try {
+      requireWallet(wallet);
+      validateDateRange(from, to);
+
+      WalletView view = wallet.snapshot();
+      event.wallet(view.getOwnerLogin(), view.getTransactionStore().size());
+      CategoryTotals totals = categoryTotals(view, type, from, to, event);
+      CategoryDictionary dictionary = wallet.getCategoryDictionary();
+
+      Map<String, Double> result = new HashMap<>();
+      totals.ids().forEach(id -> result.put(dictionary.name(id), Money.toMajor(totals.get(id))));
+      return result;
+    } finally {
+      BY_CATEGORY_TIME.recordSince(started);
+      event.finish("by_category", from, to);
+    }
+  }
 
-    requireWallet(wallet);
-    validateDateRange(from, to);
+  private CategoryTotals categoryTotals(
+      WalletView view, TransactionType type, LocalDate from, LocalDate to, AggregationEvent event) {
+    if (from == null && to == null) {
+      return new CategoryTotals(view.getCategoryTotalsMinor(type));
+    }
 
-    return filteredStream(wallet, type, from, to, null)
-        .collect(
-            Collectors.groupingBy(
-                Transaction::getCategory, Collectors.summingDouble(Transaction::getAmount)));
+    long[] income = new long[view.getCategoryDictionary().size()];
+    long[] expense = new long[income.length];
+    scan(view, from, to, income, expense, event);
+    return new CategoryTotals(type == TransactionType.INCOME ? income : expense);
   }
 
-  private Stream<Transaction> filteredStream(
-      Wallet wallet, TransactionType type, LocalDate from, LocalDate to, List<String> categories) {
-
-    Stream<Transaction> s = wallet.getTransactions().stream().filter(t -> t.getType() == type);
+  // Суммы за период из помесячных агрегатов; просмотренные строки идут в метрики и событие JFR
+  private void scan(
+      WalletView view,
+      LocalDate from,
+      LocalDate to,
+      long[] incomeById,
+      long[] expenseById,
+      AggregationEvent event) {
+    long scanned =
+        view.getMonthlyRollup()
+            .accumulate(
+                fromDay(from),
+                toDay(to),
+                view.getTransactionStore(),
+                incomeById,
+                expenseById,
+                parallelThreshold,
+                pool);
+    SCANNED_ROWS.add(scanned);
+    event.rowsScanned += scanned;
+  }
 
-    if (from != null) {
-      s = s.filter(t -> !t.getDate().isBefore(from));
-    }
-    if (to != null) {
-      s = s.filter(t -> !t.getDate().isAfter(to));
+  private static BitSet toCategoryIds(CategoryDictionary dictionary, List<String> categories) {
+    BitSet ids = new BitSet();
+    for (String c : categories) {
+      if (c == null) continue;
+      int id = dictionary.find(c.trim());
+      if (id >= 0) ids.set(id);
     }
+    return ids;
+  }
 
-    if (categories != null && !categories.isEmpty()) {
-      Set<String> catSet =
-          categories.stream()
-              .filter(Objects::nonNull)
-              .map(String::trim)
-              .filter(x -> !x.isEmpty())
-              .collect(Collectors.toSet());
-
-      s = s.filter(t -> catSet.contains(t.getCategory()));
-    }
+  private static int fromDay(LocalDate from) {
+    return from == null ? Integer.MIN_VALUE : Math.toIntExact(from.toEpochDay());
+  }
 
-    return s;
+  private static int toDay(LocalDate to) {
+    return to == null ? Integer.MAX_VALUE : Math.toIntExact(to.toEpochDay());
   }
 
   private static void validateCategoriesIfProvided(Wallet wallet, List<String> categories) {
     if (categories == null || categories.isEmpty()) return;
 
-    Set<String> existing = wallet.getCategories();
-    List<String> normalized =
+    List<String> missing =
         categories.stream()
             .filter(Objects::nonNull)
             .map(String::trim)
             .filter(x -> !x.isEmpty())
+            .filter(c -> !wallet.hasCategory(c))
+            .distinct()
             .toList();
 
-    List<String> missing =
-        normalized.stream().filter(c -> !existing.contains(c)).distinct().toList();
-
     if (!missing.isEmpty()) {
       throw new IllegalArgumentException("Категории не найдены: " + String.join(", ", missing));
     }
@@ -0,0 +1,382 @@
+package org.com.financeApp.services;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import org.com.financeApp.core.models.CategoryDictionary;
+import org.com.financeApp.core.models.MappedTransactionSegment;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.TransactionStore;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.models.WalletView;
+
+// Бинарный колоночный snapshot кошелька (.pfm).
+// Файл: magic, версия, затем блоки в фиксированном порядке. Блок: тег (1 байт), длина (int),
+// данные, CRC32 данных (int). Колонки операций пишутся целиком, по блоку на поле TransactionStore.
+final class WalletBinaryFormat {
+  static final int MAGIC = 0x50464D57; // "PFMW"
+  static final int VERSION = 1;
+
+  private static final byte HEADER = 1;
+  private static final byte DICTIONARY = 2;
+  private static final byte BUDGETS = 3;
+  private static final byte TYPES = 4;
+  private static final byte EPOCH_DAYS = 5;
+  private static final byte AMOUNTS = 6;
+  private static final byte CATEGORY_IDS = 7;
+  private static final byte COMMENTS = 8;
+  private static final byte[] BLOCK_ORDER = {
+    HEADER, DICTIONARY, BUDGETS, TYPES, EPOCH_DAYS, AMOUNTS, CATEGORY_IDS, COMMENTS
+  };
+
+  private static final byte DECLARED = 1;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final TransactionType[] TX_TYPES = TransactionType.values();
+
+  // Блоки собираются по snapshot кошелька: файл согласован, а изменения кошелька
+  // во время записи не блокируются
+  void write(Path file, WalletView wallet, long journalSeq) throws IOException {
+    byte[][] blocks = encode(wallet, journalSeq);
+
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      for (int i = 0; i < BLOCK_ORDER.length; i++) {
+        writeBlock(out, BLOCK_ORDER[i], blocks[i]);
+      }
+    }
+  }
+
+  private static byte[][] encode(WalletView wallet, long journalSeq) {
+    TransactionStore store = wallet.getTransactionStore();
+    CategoryDictionary dictionary = wallet.getCategoryDictionary();
+    int rows = store.size();
+    int categories = dictionary.size();
+
+    try {
+      byte[] header = ByteBuffer.allocate(12).putLong(journalSeq).putInt(rows).array();
+
+      ByteArrayOutputStream dictBytes = new ByteArrayOutputStream();
+      DataOutputStream dict = new DataOutputStream(dictBytes);
+      dict.writeInt(categories);
+      for (int id = 0; id < categories; id++) {
+        String name = dictionary.name(id);
+        dict.writeByte(wallet.hasCategory(name) ? DECLARED : 0);
+        writeString(dict, name);
+      }
+
+      int[] budgeted = wallet.getBudgetedCategoryIds().stream().toArray();
+      ByteBuffer budgets = ByteBuffer.allocate(4 + budgeted.length * 12).putInt(budgeted.length);
+      for (int id : budgeted) budgets.putInt(id).putLong(wallet.getBudgetMinor(id));
+
+      ByteBuffer types = ByteBuffer.allocate(rows);
+      ByteBuffer days = ByteBuffer.allocate(rows * 4);
+      ByteBuffer amounts = ByteBuffer.allocate(rows * 8);
+      ByteBuffer categoryIds = ByteBuffer.allocate(rows * 4);
+      for (int i = 0; i < rows; i++) {
+        types.put((byte) store.type(i).ordinal());
+        days.putInt(store.epochDay(i));
+        amounts.putLong(store.amountMinor(i));
+        categoryIds.putInt(store.categoryId(i));
+      }
+
+      // Комментарии редки: пишутся только строки, где они есть, парами (номер строки, текст)
+      ByteArrayOutputStream commentBytes = new ByteArrayOutputStream();
+      DataOutputStream comments = new DataOutputStream(commentBytes);
+      int commented = 0;
+      for (int i = 0; i < rows; i++) {
+        if (store.comment(i) != null) commented++;
+      }
+      comments.writeInt(commented);
+      for (int i = 0; i < rows; i++) {
+        String comment = store.comment(i);
+        if (comment == null) continue;
+        comments.writeInt(i);
+        writeString(comments, comment);
+      }
+
+      return new byte[][] {
+        header,
+        dictBytes.toByteArray(),
+        budgets.array(),
+        types.array(),
+        days.array(),
+        amounts.array(),
+        categoryIds.array(),
+        commentBytes.toByteArray()
+      };
+    } catch (IOException e) {
+      // ByteArrayOutputStream не бросает IOException
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  LoadedWallet read(Path file, String login) throws IOException {
+    Contents contents = parse(file, false);
+    Wallet wallet = newWallet(contents, login);
+
+    int rows = contents.rows;
+    int[] walletIds = contents.walletIds;
+    int nextComment = 0;
+    for (int i = 0; i < rows; i++) {
+      String comment = null;
+      if (nextComment < contents.commentRows.length && contents.commentRows[nextComment] == i) {
+        comment = contents.comments[nextComment++];
+      }
+
+      // Блоки прошли CRC, но значения в них могут быть любыми: выход за границы — тоже
+      // повреждение файла, а не ArrayIndexOutOfBoundsException
+      int type = contents.types.get(i);
+      int categoryId = contents.categoryIds.getInt(i * 4);
+      if (type < 0 || type >= TX_TYPES.length) {
+        throw new IOException("Повреждён бинарный snapshot: неверный тип операции " + i);
+      }
+      if (categoryId < 0 || categoryId >= walletIds.length) {
+        throw new IOException("Повреждён бинарный snapshot: неверная категория операции " + i);
+      }
+      wallet.restoreTransaction(
+          TX_TYPES[type],
+          walletIds[categoryId],
+          contents.amounts.getLong(i * 8),
+          contents.days.getInt(i * 4),
+          comment);
+    }
+    return new LoadedWallet(wallet, contents.journalSeq);
+  }
+
+  // Колонки операций не копируются в кучу, а отображаются в память (FileChannel.map):
+  // сканирования идут через page cache
+  LoadedWallet readMapped(Path file, String login) throws IOException {
+    Contents contents = parse(file, true);
+    Wallet wallet = newWallet(contents, login);
+    // Сегмент читает id категорий из файла как есть, поэтому они должны совпасть с id кошелька
+    for (int id = 0; id < contents.walletIds.length; id++) {
+      if (contents.walletIds[id] != id) {
+        throw new IOException("Повреждён бинарный snapshot: повторяющиеся категории в словаре");
+      }
+    }
+    try {
+      wallet.attachSegment(segment(contents));
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Повреждён бинарный snapshot: " + file, e);
+    }
+    return new LoadedWallet(wallet, contents.journalSeq);
+  }
+
+  // Сегмент операций только что записанного файла; id категорий в нём те же, что у кошелька
+  MappedTransactionSegment mapSegment(Path file) throws IOException {
+    return segment(parse(file, true));
+  }
+
+  private static MappedTransactionSegment segment(Contents contents) {
+    return new MappedTransactionSegment(
+        contents.rows,
+        contents.types,
+        contents.days,
+        contents.amounts,
+        contents.categoryIds,
+        contents.commentRows,
+        contents.comments);
+  }
+
+  private static Wallet newWallet(Contents contents, String login) {
+    Wallet wallet = new Wallet(login);
+    int[] walletIds = contents.walletIds;
+    for (int id = 0; id < walletIds.length; id++) {
+      walletIds[id] = wallet.registerCategory(contents.names[id]);
+      if (contents.declared.get(id)) wallet.addCategory(contents.names[id]);
+    }
+    for (int i = 0; i < contents.budgetIds.length; i++) {
+      wallet.setBudget(contents.names[contents.budgetIds[i]], Money.ofMinor(contents.budgets[i]));
+    }
+    return wallet;
+  }
+
+  private static Contents parse(Path file, boolean mapColumns) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      BlockReader in = new BlockReader(channel, file);
+      ByteBuffer prefix = in.readFully(8);
+      if (prefix.getInt() != MAGIC) {
+        throw new IOException("Файл не является бинарным snapshot кошелька: " + file);
+      }
+      int version = prefix.getInt();
+      if (version != VERSION) {
+        throw new IOException("Неподдерживаемая версия бинарного snapshot: " + version);
+      }
+
+      try {
+        return parseBlocks(in, mapColumns);
+      } catch (BufferUnderflowException
+          | IndexOutOfBoundsException
+          | NegativeArraySizeException e) {
+        throw new IOException("Повреждён бинарный snapshot: " + file, e);
+      }
+    }
+  }
+
+  private static Contents parseBlocks(BlockReader in, boolean mapColumns) throws IOException {
+    Contents c = new Contents();
+
+    ByteBuffer header = in.block(HEADER, false);
+    c.journalSeq = header.getLong();
+    c.rows = header.getInt();
+
+    ByteBuffer dict = in.block(DICTIONARY, false);
+    int categories = dict.getInt();
+    c.names = new String[categories];
+    c.walletIds = new int[categories];
+    c.declared = new BitSet(categories);
+    for (int id = 0; id < categories; id++) {
+      if ((dict.get() & DECLARED) != 0) c.declared.set(id);
+      c.names[id] = readString(dict);
+    }
+
+    ByteBuffer budgets = in.block(BUDGETS, false);
+    int budgetCount = budgets.getInt();
+    c.budgetIds = new int[budgetCount];
+    c.budgets = new long[budgetCount];
+    for (int i = 0; i < budgetCount; i++) {
+      c.budgetIds[i] = Objects.checkIndex(budgets.getInt(), categories);
+      c.budgets[i] = budgets.getLong();
+    }
+
+    c.types = in.column(TYPES, c.rows, 1, mapColumns);
+    c.days = in.column(EPOCH_DAYS, c.rows, 4, mapColumns);
+    c.amounts = in.column(AMOUNTS, c.rows, 8, mapColumns);
+    c.categoryIds = in.column(CATEGORY_IDS, c.rows, 4, mapColumns);
+
+    ByteBuffer comments = in.block(COMMENTS, false);
+    int commented = comments.getInt();
+    c.commentRows = new int[commented];
+    c.comments = new String[commented];
+    for (int i = 0; i < commented; i++) {
+      int row = comments.getInt();
+      if (row >= c.rows || (i > 0 && row <= c.commentRows[i - 1])) {
+        throw new IOException("Повреждён бинарный snapshot: комментарий к несуществующей операции");
+      }
+      c.commentRows[i] = row;
+      c.comments[i] = readString(comments);
+    }
+    return c;
+  }
+
+  // Разобранный файл; колонки — буферы в куче или отображённые в память
+  private static final class Contents {
+    long journalSeq;
+    int rows;
+    String[] names;
+    int[] walletIds;
+    BitSet declared;
+    int[] budgetIds;
+    long[] budgets;
+    ByteBuffer types;
+    ByteBuffer days;
+    ByteBuffer amounts;
+    ByteBuffer categoryIds;
+    int[] commentRows;
+    String[] comments;
+  }
+
+  private static final class BlockReader {
+    private final FileChannel channel;
+    private final Path file;
+    private long position;
+
+    BlockReader(FileChannel channel, Path file) {
+      this.channel = channel;
+      this.file = file;
+    }
+
+    ByteBuffer block(byte tag, boolean map) throws IOException {
+      ByteBuffer head = readFully(5);
+      byte actual = head.get();
+      if (actual != tag) {
+        throw new IOException(
+            "Повреждён бинарный snapshot: ожидался блок " + tag + ", получен " + actual);
+      }
+
+      int length = head.getInt();
+      if (length < 0 || position + length + 4 > channel.size()) {
+        throw new IOException("Повреждён бинарный snapshot: блок " + tag + " обрезан");
+      }
+
+      ByteBuffer data;
+      if (map) {
+        data = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        position += length;
+      } else {
+        data = readFully(length);
+      }
+
+      CRC32 crc = new CRC32();
+      crc.update(data.duplicate());
+      if (readFully(4).getInt() != (int) crc.getValue()) {
+        throw new IOException(
+            "Повреждён бинарный snapshot: неверная контрольная сумма блока " + tag);
+      }
+      return data;
+    }
+
+    ByteBuffer column(byte tag, int rows, int width, boolean map) throws IOException {
+      ByteBuffer column = block(tag, map);
+      if (column.remaining() != (long) rows * width) {
+        throw new IOException("Повреждён бинарный snapshot: размер колонки " + tag);
+      }
+      return column;
+    }
+
+    ByteBuffer readFully(int length) throws IOException {
+      ByteBuffer buf = ByteBuffer.allocate(length);
+      while (buf.hasRemaining()) {
+        int n = channel.read(buf, position + buf.position());
+        if (n < 0) throw new IOException("Повреждён бинарный snapshot: файл обрезан " + file);
+      }
+      position += length;
+      return buf.flip();
+    }
+  }
+
+  private static void writeBlock(DataOutputStream out, byte tag, byte[] data) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(data);
+
+    out.writeByte(tag);
+    out.writeInt(data.length);
+    out.write(data);
+    out.writeInt((int) crc.getValue());
+  }
+
+  // Длина -1 означает null
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buf) {
+    int length = buf.getInt();
+    if (length < 0) return null;
+
+    String s = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+    buf.position(buf.position() + length);
+    return s;
+  }
+}
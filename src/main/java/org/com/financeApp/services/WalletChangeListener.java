@@ -0,0 +1,23 @@
+package org.com.financeApp.services;
+
+import java.util.List;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.Wallet;
+
+// Уведомления об изменениях кошелька через WalletService; вызываются после применения изменения
+public interface WalletChangeListener {
+  default void categoryAdded(Wallet wallet, String category) {}
+
+  default void budgetSet(Wallet wallet, String category, Money limit) {}
+
+  default void transactionAdded(Wallet wallet, Transaction tx) {}
+
+  // Пакет из WalletService.addOperations; слушатель может обработать его целиком
+  default void transactionsAdded(Wallet wallet, List<Transaction> txs) {
+    for (Transaction tx : txs) transactionAdded(wallet, tx);
+  }
+
+  // Кошелёк логина заменён целиком (WalletService.replaceWallet)
+  default void walletReplaced(Wallet wallet) {}
+}
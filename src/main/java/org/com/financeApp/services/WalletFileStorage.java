@@ -1,45 +1,162 @@
 package org.com.financeApp.services;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.com.financeApp.core.models.Money;
 import org.com.financeApp.core.models.Transaction;
 import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.User;
 import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.models.WalletView;
+import org.com.financeApp.metrics.MetricsRegistry;
+import org.com.financeApp.metrics.StorageEvent;
+
+public final class WalletFileStorage {
+  public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+  // Время загрузки и сохранения snapshot по форматам, объём записанного
+  private static final MetricsRegistry METRICS = MetricsRegistry.global();
 
-public class WalletFileStorage {
   private final Path baseDir;
+  private final SnapshotFormat format;
   private final ObjectMapper mapper;
+  private final WalletJournal journal;
+  private final WalletJsonReader jsonReader;
+  private final WalletJsonWriter jsonWriter;
+  private final WalletBinaryFormat binaryFormat = new WalletBinaryFormat();
+  // Какой кошелёк и какой его версии лежит в файле логина: неизменённый кошелёк не переписывается
+  private final Map<String, SavedState> savedByLogin = new ConcurrentHashMap<>();
+  // Сохранения одного логина (фоновый flush, logout, компактизация) не пересекаются
+  private final Map<String, ReentrantLock> saveLocks = new ConcurrentHashMap<>();
+
+  private record SavedState(Wallet wallet, long version) {}
 
   public WalletFileStorage(Path baseDir) {
+    this(baseDir, false);
+  }
+
+  public WalletFileStorage(Path baseDir, boolean journaled) {
+    this(baseDir, journaled, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  // journaled: изменения дописываются в <login>.journal, snapshot переписывается только
+  // при компактизации (после compactionThreshold записей или явного save)
+  public WalletFileStorage(Path baseDir, boolean journaled, int compactionThreshold) {
+    this(baseDir, SnapshotFormat.JSON, journaled, compactionThreshold);
+  }
+
+  // format: в каком виде хранятся snapshot в baseDir (<login>.json или <login>.pfm)
+  public WalletFileStorage(
+      Path baseDir, SnapshotFormat format, boolean journaled, int compactionThreshold) {
     this.baseDir = Objects.requireNonNull(baseDir, "baseDir не должен быть null");
+    this.format = Objects.requireNonNull(format, "format не должен быть null");
     this.mapper =
         new ObjectMapper()
             .registerModule(new JavaTimeModule())
             .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    this.jsonReader = new WalletJsonReader(mapper.getFactory());
+    this.jsonWriter = new WalletJsonWriter(mapper.getFactory());
+    // Журнал получает ссылку на хранилище последним, когда остальные поля уже заданы
+    this.journal = journaled ? new WalletJournal(baseDir, mapper, this, compactionThreshold) : null;
   }
 
   public WalletFileStorage() {
     this(Path.of("data"));
   }
 
+  public SnapshotFormat getFormat() {
+    return format;
+  }
+
+  public boolean isJournaled() {
+    return journal != null;
+  }
+
+  // Слушатель для WalletService; null, если журнал выключен
+  public WalletJournal getJournal() {
+    return journal;
+  }
+
+  // Полная запись snapshot; в журнальном режиме это и есть компактизация журнала. Номер
+  // последней записи журнала и состояние кошелька снимаются вместе, пока журнал логина не
+  // дописывается, а удаляются только вошедшие в snapshot записи. Кошелёк и его журнал
+  // согласованы под блокировкой полосы WalletService, поэтому в журнальном режиме save
+  // вызывается оттуда (компактизация из журнала, WalletService.replaceWallet)
   public void save(String login, Wallet wallet) throws IOException {
     login = normalizeLogin(login);
     if (wallet == null) throw new IllegalArgumentException("wallet не должен быть null");
 
-    Files.createDirectories(baseDir);
+    ReentrantLock lock = saveLocks.computeIfAbsent(login, l -> new ReentrantLock());
+    lock.lock();
+    long started = System.nanoTime();
+    StorageEvent event = new StorageEvent();
+    event.begin();
+    try {
+      Files.createDirectories(baseDir);
+
+      WalletView view;
+      long journalSeq = 0;
+      if (journal == null) {
+        view = wallet.snapshot();
+      } else {
+        ReentrantLock journalLock = journal.fileLock(login);
+        journalLock.lock();
+        try {
+          journalSeq = journal.lastSeq(login);
+          view = wallet.snapshot();
+        } finally {
+          journalLock.unlock();
+        }
+      }
+      Path file = filePath(login, format);
+      long bytes = write(file, format, view, journalSeq);
+      if (format == SnapshotFormat.MAPPED) wallet.attachSegment(binaryFormat.mapSegment(file));
+      // Snapshot в другом формате (до смены настройки) устарел и не должен подхватиться при
+      // загрузке
+      Files.deleteIfExists(filePath(login, otherFormat()));
+
+      if (journal != null) journal.truncate(login, journalSeq);
+      // Версия снята вместе с snapshot: изменения во время записи оставят кошелёк «грязным»
+      savedByLogin.put(login, new SavedState(wallet, view.getVersion()));
+      commit(event, "save", login, format, file, wallet, bytes);
+    } finally {
+      METRICS.timer("storage_save_seconds", "format", label(format)).recordSince(started);
+      lock.unlock();
+    }
+  }
+
+  // Запись snapshot, только если кошелёк изменился с последней загрузки или сохранения;
+  // false — файл уже актуален
+  public boolean saveIfChanged(String login, Wallet wallet) throws IOException {
+    login = normalizeLogin(login);
+    if (wallet == null) throw new IllegalArgumentException("wallet не должен быть null");
 
-    Path file = filePath(login);
-    WalletSnapshot snapshot = WalletSnapshot.fromWallet(wallet);
+    SavedState saved = savedByLogin.get(login);
+    if (saved != null && saved.wallet() == wallet && saved.version() == wallet.getVersion()) {
+      return false;
+    }
+    save(login, wallet);
+    return true;
+  }
 
-    mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), snapshot);
+  // Сохранение при logout/exit: в журнальном режиме изменения уже на диске, стоимость O(1);
+  // неизменённый кошелёк не переписывается
+  public void checkpoint(String login, Wallet wallet) throws IOException {
+    if (journal == null) saveIfChanged(login, wallet);
   }
 
   public void exportSnapshot(Path file, Wallet wallet) throws IOException {
@@ -49,40 +166,175 @@ public class WalletFileStorage {
     Path parent = file.getParent();
     if (parent != null) Files.createDirectories(parent);
 
-    WalletSnapshot snapshot = WalletSnapshot.fromWallet(wallet);
-    mapper.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), snapshot);
+    StorageEvent event = new StorageEvent();
+    event.begin();
+    SnapshotFormat fileFormat = SnapshotFormat.forFile(file);
+    long bytes = write(file, fileFormat, wallet.snapshot(), 0);
+    commit(event, "export", wallet.getOwnerLogin(), fileFormat, file, wallet, bytes);
   }
 
   public Wallet importSnapshot(Path file, String login) throws IOException {
     if (file == null) throw new IllegalArgumentException("file не должен быть null");
-    if (login == null || login.trim().isEmpty())
-      throw new IllegalArgumentException("login не должен быть пустым");
+    login = normalizeLogin(login);
 
-    WalletSnapshot snapshot = mapper.readValue(file.toFile(), WalletSnapshot.class);
-    return snapshot.toWallet(login.trim());
+    StorageEvent event = new StorageEvent();
+    event.begin();
+    SnapshotFormat fileFormat = SnapshotFormat.forFile(file);
+    Wallet wallet = read(file, fileFormat, login).wallet();
+    commit(event, "import", login, fileFormat, file, wallet, Files.size(file));
+    return wallet;
   }
 
   public Wallet loadOrCreate(String login) throws IOException {
     login = normalizeLogin(login);
+    Wallet wallet = load(login, true);
+    savedByLogin.put(login, new SavedState(wallet, wallet.getVersion()));
+    return wallet;
+  }
 
-    Path file = filePath(login);
+  // Загрузка только для чтения (пакетные отчёты): кошелёк не запоминается как сохранённый,
+  // состояние журнала логина не меняется, поэтому после использования он сразу уходит в мусор
+  public Wallet loadDetached(String login) throws IOException {
+    return load(normalizeLogin(login), false);
+  }
+
+  // Логины, для которых в каталоге есть snapshot (или журнал в журнальном режиме), по алфавиту
+  public List<String> storedLogins() throws IOException {
+    if (!Files.isDirectory(baseDir)) return List.of();
+
+    List<String> extensions =
+        journal == null ? List.of(".json", ".pfm") : List.of(".json", ".pfm", ".journal");
+    Set<String> logins = new TreeSet<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(baseDir)) {
+      for (Path file : files) {
+        if (!Files.isRegularFile(file)) continue;
+        String name = file.getFileName().toString();
+        for (String extension : extensions) {
+          if (!name.endsWith(extension)) continue;
+          String login = name.substring(0, name.length() - extension.length());
+          if (User.isSafeLogin(login)) logins.add(login);
+        }
+      }
+    }
+    return new ArrayList<>(logins);
+  }
+
+  private Wallet load(String login, boolean track) throws IOException {
+    // Если snapshot есть только в другом формате (настройка сменилась), читается он;
+    // следующий save перепишет его в текущем формате
+    Path file = filePath(login, format);
+    SnapshotFormat fileFormat = format;
     if (!Files.exists(file)) {
-      return new Wallet(login);
+      file = filePath(login, otherFormat());
+      fileFormat = otherFormat();
+    }
+
+    Wallet wallet;
+    long journalSeq = 0;
+    if (Files.exists(file)) {
+      long started = System.nanoTime();
+      StorageEvent event = new StorageEvent();
+      event.begin();
+      LoadedWallet loaded = read(file, fileFormat, login);
+      METRICS.timer("storage_load_seconds", "format", label(fileFormat)).recordSince(started);
+      wallet = loaded.wallet();
+      journalSeq = loaded.journalSeq();
+      commit(event, "load", login, fileFormat, file, wallet, Files.size(file));
+    } else {
+      wallet = new Wallet(login);
+    }
+
+    if (journal != null) journal.replay(login, wallet, journalSeq, track);
+    return wallet;
+  }
+
+  // Файл пишется рядом во временный и подменяет прежний атомарным переименованием: сбой во время
+  // записи оставляет старый snapshot целым. Для MAPPED это ещё и нужно потому, что старый файл
+  // может быть отображён в память этим же кошельком; после подмены save переводит операции
+  // кошелька (и хвост в куче) на отображение нового файла. Возвращает размер записанного файла
+  private long write(Path file, SnapshotFormat fileFormat, WalletView wallet, long journalSeq)
+      throws IOException {
+    Path dir = file.toAbsolutePath().getParent();
+    Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+    long bytes;
+    try {
+      if (fileFormat == SnapshotFormat.JSON) {
+        jsonWriter.write(tmp, wallet, journalSeq);
+      } else {
+        binaryFormat.write(tmp, wallet, journalSeq);
+      }
+      // Данные на диске до переименования: после сбоя питания не останется пустого файла
+      try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+      bytes = Files.size(tmp);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      METRICS.counter("storage_written_bytes_total", "format", label(fileFormat)).add(bytes);
+    } finally {
+      Files.deleteIfExists(tmp);
     }
+    return bytes;
+  }
+
+  // Поля события заполняются, только если JFR его запишет
+  private static void commit(
+      StorageEvent event,
+      String operation,
+      String login,
+      SnapshotFormat fileFormat,
+      Path file,
+      Wallet wallet,
+      long bytes) {
+    event.end();
+    if (!event.shouldCommit()) return;
+    event.operation = operation;
+    event.login = login;
+    event.format = label(fileFormat);
+    event.path = file.toString();
+    event.transactions = wallet.getTransactionStore().size();
+    event.bytes = bytes;
+    event.commit();
+  }
 
-    WalletSnapshot snapshot = mapper.readValue(file.toFile(), WalletSnapshot.class);
-    return snapshot.toWallet(login);
+  // JSON разбирается потоково: без промежуточного WalletSnapshot со списком всех операций
+  private LoadedWallet read(Path file, SnapshotFormat fileFormat, String login) throws IOException {
+    return switch (fileFormat) {
+      case JSON -> jsonReader.read(file, login);
+      case BINARY -> binaryFormat.read(file, login);
+      case MAPPED -> binaryFormat.readMapped(file, login);
+    };
   }
 
-  private Path filePath(String login) {
-    return baseDir.resolve(login + ".json");
+  private SnapshotFormat otherFormat() {
+    return format == SnapshotFormat.JSON ? SnapshotFormat.BINARY : SnapshotFormat.JSON;
+  }
+
+  private Path filePath(String login, SnapshotFormat fileFormat) {
+    return resolveInside(baseDir, login + fileFormat.extension());
+  }
+
+  // Файл логина в каталоге dir; имя, выводящее за пределы каталога, отклоняется
+  static Path resolveInside(Path dir, String fileName) {
+    Path root = dir.toAbsolutePath().normalize();
+    Path file = root.resolve(fileName).normalize();
+    if (!file.startsWith(root) || file.equals(root)) {
+      throw new IllegalArgumentException("Недопустимое имя файла: " + fileName);
+    }
+    return file;
+  }
+
+  private static String label(SnapshotFormat format) {
+    return format.name().toLowerCase(Locale.ROOT);
   }
 
   private static String normalizeLogin(String login) {
     if (login == null || login.trim().isEmpty()) {
       throw new IllegalArgumentException("login не должен быть пустым");
     }
-    return login.trim();
+    login = login.trim();
+    if (!User.isSafeLogin(login))
+      throw new IllegalArgumentException("Недопустимый логин: " + login);
+    return login;
   }
 
   public static class WalletSnapshot {
@@ -91,13 +343,27 @@ public class WalletFileStorage {
     public final Map<String, Double> budgetsByCategory;
     public final List<TransactionSnapshot> transactions;
 
+    // Номер последней записи журнала, вошедшей в snapshot (0 — журнал не использовался)
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public final long journalSeq;
+
+    public WalletSnapshot(
+        String ownerLogin,
+        List<String> categories,
+        Map<String, Double> budgetsByCategory,
+        List<TransactionSnapshot> transactions) {
+      this(ownerLogin, categories, budgetsByCategory, transactions, 0);
+    }
+
     @JsonCreator
     public WalletSnapshot(
         @JsonProperty("ownerLogin") String ownerLogin,
         @JsonProperty("categories") List<String> categories,
         @JsonProperty("budgetsByCategory") Map<String, Double> budgetsByCategory,
-        @JsonProperty("transactions") List<TransactionSnapshot> transactions) {
+        @JsonProperty("transactions") List<TransactionSnapshot> transactions,
+        @JsonProperty("journalSeq") long journalSeq) {
       this.ownerLogin = ownerLogin;
+      this.journalSeq = journalSeq;
       this.categories = categories == null ? new ArrayList<>() : new ArrayList<>(categories);
       this.budgetsByCategory =
           budgetsByCategory == null ? new HashMap<>() : new HashMap<>(budgetsByCategory);
@@ -105,11 +371,20 @@ public class WalletFileStorage {
     }
 
     public static WalletSnapshot fromWallet(Wallet wallet) {
+      return fromWallet(wallet, 0);
+    }
+
+    public static WalletSnapshot fromWallet(Wallet wallet, long journalSeq) {
+      return fromView(wallet.snapshot(), journalSeq);
+    }
+
+    public static WalletSnapshot fromView(WalletView wallet, long journalSeq) {
       return new WalletSnapshot(
           wallet.getOwnerLogin(),
           new ArrayList<>(wallet.getCategories()),
           new HashMap<>(wallet.getBudgetsByCategory()),
-          wallet.getTransactions().stream().map(TransactionSnapshot::fromTx).toList());
+          wallet.getTransactions().stream().map(TransactionSnapshot::fromTx).toList(),
+          journalSeq);
     }
 
     public Wallet toWallet(String login) {
@@ -127,9 +402,7 @@ public class WalletFileStorage {
         }
       }
 
-      for (TransactionSnapshot ts : transactions) {
-        wallet.addTransaction(ts.toTx());
-      }
+      wallet.restoreTransactions(transactions.stream().map(TransactionSnapshot::toTx).toList());
 
       return wallet;
     }
@@ -156,13 +429,19 @@ public class WalletFileStorage {
       this.comment = comment;
     }
 
+    // В JSON сумма остаётся десятичным числом (совместимость со старыми файлами),
+    // в памяти — копейки
     public static TransactionSnapshot fromTx(Transaction tx) {
       return new TransactionSnapshot(
-          tx.getType(), tx.getCategory(), tx.getAmount(), tx.getDate(), tx.getComment());
+          tx.getType(),
+          tx.getCategory(),
+          Money.toMajor(tx.getAmountMinor()),
+          tx.getDate(),
+          tx.getComment());
     }
 
     public Transaction toTx() {
-      return new Transaction(type, category, amount, date, comment);
+      return new Transaction(type, category, Money.of(amount), date, comment);
     }
   }
 }
@@ -0,0 +1,305 @@
+package org.com.financeApp.services;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.Wallet;
+
+// Журнал изменений кошелька: каждое изменение дописывается строкой JSON в <login>.journal.
+// Записи нумеруются; snapshot хранит номер последней вошедшей в него записи, поэтому
+// повторное применение журнала после сбоя во время компактизации безопасно.
+// Записи логина приходят из WalletService под блокировкой полосы кошелька; компактизация
+// (WalletFileStorage.save) берёт номер и состояние кошелька под той же блокировкой.
+public class WalletJournal implements WalletChangeListener {
+  private final Path baseDir;
+  private final ObjectMapper mapper;
+  private final WalletFileStorage storage;
+  private final int compactionThreshold;
+
+  private final Map<String, Long> lastSeqByLogin = new ConcurrentHashMap<>();
+  private final Map<String, Integer> pendingByLogin = new ConcurrentHashMap<>();
+  // Дописывание в файл логина и его компактизация не пересекаются
+  private final Map<String, ReentrantLock> fileLocks = new ConcurrentHashMap<>();
+
+  WalletJournal(
+      Path baseDir, ObjectMapper mapper, WalletFileStorage storage, int compactionThreshold) {
+    if (compactionThreshold <= 0)
+      throw new IllegalArgumentException("Порог компактизации должен быть больше 0");
+    this.baseDir = baseDir;
+    this.mapper = mapper;
+    this.storage = storage;
+    this.compactionThreshold = compactionThreshold;
+  }
+
+  @Override
+  public void categoryAdded(Wallet wallet, String category) {
+    append(wallet, List.of(new JournalRecord(0, Op.CATEGORY, category, null, null)));
+  }
+
+  @Override
+  public void budgetSet(Wallet wallet, String category, Money limit) {
+    append(wallet, List.of(new JournalRecord(0, Op.BUDGET, category, limit.toDouble(), null)));
+  }
+
+  @Override
+  public void transactionAdded(Wallet wallet, Transaction tx) {
+    append(wallet, List.of(transactionRecord(tx)));
+  }
+
+  // Пакет дописывается одной записью в файл
+  @Override
+  public void transactionsAdded(Wallet wallet, List<Transaction> txs) {
+    if (txs.isEmpty()) return;
+    append(wallet, txs.stream().map(WalletJournal::transactionRecord).toList());
+  }
+
+  // Журнал пишется относительно snapshot, поэтому заменённый кошелёк сразу компактизируется
+  @Override
+  public void walletReplaced(Wallet wallet) {
+    try {
+      storage.save(wallet.getOwnerLogin(), wallet);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Не удалось сохранить кошелёк " + wallet.getOwnerLogin(), e);
+    }
+  }
+
+  long lastSeq(String login) {
+    return lastSeqByLogin.getOrDefault(login, 0L);
+  }
+
+  ReentrantLock fileLock(String login) {
+    return fileLocks.computeIfAbsent(login, l -> new ReentrantLock());
+  }
+
+  // Применяет к wallet записи журнала с номером больше snapshotSeq
+  void replay(String login, Wallet wallet, long snapshotSeq) throws IOException {
+    replay(login, wallet, snapshotSeq, true);
+  }
+
+  // track == false: кошелёк загружен только для чтения (пакетные отчёты), номера записей и
+  // счётчик до компактизации логина не трогаются
+  void replay(String login, Wallet wallet, long snapshotSeq, boolean track) throws IOException {
+    long lastSeq = snapshotSeq;
+    int pending = 0;
+
+    Path file = filePath(login);
+    String broken = null;
+    if (Files.exists(file)) {
+      try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.isBlank()) continue;
+          if (broken != null) {
+            throw new IOException("Повреждён журнал " + file + ": " + broken);
+          }
+
+          JournalRecord record;
+          try {
+            record = mapper.readValue(line, JournalRecord.class);
+          } catch (JsonProcessingException e) {
+            // Недописанная последняя строка (сбой во время записи) пропускается
+            broken = e.getOriginalMessage();
+            continue;
+          }
+
+          if (record.seq <= lastSeq) continue;
+          apply(wallet, record);
+          lastSeq = record.seq;
+          pending++;
+        }
+      }
+    }
+
+    if (!track) return;
+    // Обрывок отрезается до первой новой записи: иначе она склеится с ним в одну строку,
+    // а её номер (следующий после lastSeq) совпадёт с номером обрывка
+    if (broken != null) cutTornTail(login, file);
+    lastSeqByLogin.put(login, lastSeq);
+    pendingByLogin.put(login, pending);
+  }
+
+  // Удаляет записи, вошедшие в snapshot (seq <= snapshotSeq); записи, дописанные после
+  // снятия snapshot, остаются в журнале
+  void truncate(String login, long snapshotSeq) throws IOException {
+    ReentrantLock lock = fileLock(login);
+    lock.lock();
+    try {
+      Path file = filePath(login);
+      if (snapshotSeq >= lastSeq(login)) {
+        Files.deleteIfExists(file);
+        pendingByLogin.put(login, 0);
+        return;
+      }
+
+      StringBuilder kept = new StringBuilder();
+      int pending = 0;
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        if (line.isBlank()) continue;
+        JournalRecord record;
+        try {
+          record = mapper.readValue(line, JournalRecord.class);
+        } catch (JsonProcessingException e) {
+          continue;
+        }
+        if (record.seq <= snapshotSeq) continue;
+        kept.append(line).append('\n');
+        pending++;
+      }
+      Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), login, ".tmp");
+      try {
+        Files.writeString(tmp, kept, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+      pendingByLogin.put(login, pending);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Отрезает последнюю непустую строку журнала (недописанную запись) вместе с пробельными
+  // символами после неё; файл заканчивается переводом строки последней целой записи
+  private void cutTornTail(String login, Path file) throws IOException {
+    ReentrantLock lock = fileLock(login);
+    lock.lock();
+    try (FileChannel channel =
+        FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long end = channel.size();
+      boolean inLine = false;
+      ByteBuffer block = ByteBuffer.allocate(8192);
+      while (end > 0) {
+        int n = (int) Math.min(block.capacity(), end);
+        block.clear().limit(n);
+        channel.read(block, end - n);
+        int i = n - 1;
+        for (; i >= 0; i--) {
+          byte b = block.get(i);
+          if (b == '\n' && inLine) break;
+          if (!Character.isWhitespace(b)) inLine = true;
+        }
+        if (i >= 0) {
+          end = end - n + i + 1;
+          break;
+        }
+        end -= n;
+      }
+      channel.truncate(end);
+      channel.force(true);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void append(Wallet wallet, List<JournalRecord> records) {
+    String login = wallet.getOwnerLogin();
+    ReentrantLock lock = fileLock(login);
+    lock.lock();
+    int pending;
+    try {
+      pending = write(login, records);
+    } finally {
+      lock.unlock();
+    }
+
+    if (pending >= compactionThreshold) {
+      try {
+        storage.save(login, wallet);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Не удалось компактизировать журнал для " + login, e);
+      }
+    }
+  }
+
+  // Возвращает число записей журнала, накопившихся с последней компактизации
+  private int write(String login, List<JournalRecord> records) {
+    long seq = lastSeqByLogin.getOrDefault(login, 0L);
+    try {
+      Files.createDirectories(baseDir);
+      StringBuilder lines = new StringBuilder();
+      for (JournalRecord record : records) {
+        lines
+            .append(
+                mapper.writeValueAsString(
+                    new JournalRecord(
+                        ++seq, record.op, record.category, record.limit, record.transaction)))
+            .append('\n');
+      }
+      Files.writeString(
+          filePath(login),
+          lines,
+          StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE,
+          StandardOpenOption.APPEND);
+      // Номер продвигается только после записи: snapshot не сошлётся на недописанные записи
+      lastSeqByLogin.put(login, seq);
+      return pendingByLogin.merge(login, records.size(), Integer::sum);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Не удалось записать журнал для " + login, e);
+    }
+  }
+
+  private static JournalRecord transactionRecord(Transaction tx) {
+    return new JournalRecord(
+        0, Op.TRANSACTION, null, null, WalletFileStorage.TransactionSnapshot.fromTx(tx));
+  }
+
+  private static void apply(Wallet wallet, JournalRecord record) {
+    switch (record.op) {
+      case CATEGORY -> wallet.addCategory(record.category);
+      case BUDGET -> wallet.setBudget(record.category, record.limit);
+      case TRANSACTION -> wallet.addTransaction(record.transaction.toTx());
+    }
+  }
+
+  private Path filePath(String login) {
+    return WalletFileStorage.resolveInside(baseDir, login + ".journal");
+  }
+
+  enum Op {
+    CATEGORY,
+    BUDGET,
+    TRANSACTION,
+  }
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  static class JournalRecord {
+    public final long seq;
+    public final Op op;
+    public final String category;
+    public final Double limit;
+    public final WalletFileStorage.TransactionSnapshot transaction;
+
+    @JsonCreator
+    JournalRecord(
+        @JsonProperty("seq") long seq,
+        @JsonProperty("op") Op op,
+        @JsonProperty("category") String category,
+        @JsonProperty("limit") Double limit,
+        @JsonProperty("transaction") WalletFileStorage.TransactionSnapshot transaction) {
+      this.seq = seq;
+      this.op = op;
+      this.category = category;
+      this.limit = limit;
+      this.transaction = transaction;
+    }
+  }
+}
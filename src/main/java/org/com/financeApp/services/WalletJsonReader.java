@@ -0,0 +1,132 @@
+package org.com.financeApp.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.Wallet;
+
+// Потоковая загрузка WalletSnapshot JSON: кошелёк строится по токенам JsonParser,
+// без промежуточных WalletSnapshot/TransactionSnapshot и списков.
+final class WalletJsonReader {
+  private final JsonFactory factory;
+
+  WalletJsonReader(JsonFactory factory) {
+    this.factory = factory;
+  }
+
+  LoadedWallet read(Path file, String login) throws IOException {
+    try (InputStream in = Files.newInputStream(file);
+        JsonParser p = factory.createParser(in)) {
+      Wallet wallet = new Wallet(login);
+      long journalSeq = 0;
+
+      expect(p, p.nextToken(), JsonToken.START_OBJECT);
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String field = p.currentName();
+        JsonToken value = p.nextToken();
+        if (value == JsonToken.VALUE_NULL) continue;
+
+        switch (field) {
+          case "categories" -> readCategories(p, wallet);
+          case "budgetsByCategory" -> readBudgets(p, wallet);
+          case "transactions" -> readTransactions(p, wallet);
+          case "journalSeq" -> journalSeq = p.getLongValue();
+          default -> p.skipChildren();
+        }
+      }
+      return new LoadedWallet(wallet, journalSeq);
+    }
+  }
+
+  private static void readCategories(JsonParser p, Wallet wallet) throws IOException {
+    expect(p, p.currentToken(), JsonToken.START_ARRAY);
+    while (p.nextToken() != JsonToken.END_ARRAY) {
+      String c = p.getValueAsString();
+      if (c != null && !c.trim().isEmpty()) wallet.addCategory(c.trim());
+    }
+  }
+
+  private static void readBudgets(JsonParser p, Wallet wallet) throws IOException {
+    expect(p, p.currentToken(), JsonToken.START_OBJECT);
+    while (p.nextToken() == JsonToken.FIELD_NAME) {
+      String cat = p.currentName();
+      JsonToken value = p.nextToken();
+      if (value != JsonToken.VALUE_NULL && !cat.trim().isEmpty()) {
+        wallet.setBudget(cat.trim(), Money.of(p.getValueAsDouble()));
+      }
+    }
+  }
+
+  private static void readTransactions(JsonParser p, Wallet wallet) throws IOException {
+    expect(p, p.currentToken(), JsonToken.START_ARRAY);
+    while (p.nextToken() == JsonToken.START_OBJECT) {
+      TransactionType type = null;
+      String category = null;
+      long amountMinor = 0;
+      int epochDay = 0;
+      boolean hasDate = false;
+      String comment = null;
+
+      while (p.nextToken() == JsonToken.FIELD_NAME) {
+        String field = p.currentName();
+        JsonToken value = p.nextToken();
+        if (value == JsonToken.VALUE_NULL) continue;
+
+        switch (field) {
+          case "type" -> type = TransactionType.valueOf(p.getText());
+          case "category" -> category = p.getText();
+          case "amount" -> amountMinor = Money.toMinor(p.getValueAsDouble());
+          case "date" -> {
+            epochDay = readEpochDay(p);
+            hasDate = true;
+          }
+          case "comment" -> comment = p.getText();
+          default -> p.skipChildren();
+        }
+      }
+
+      // Операция без типа (старые файлы) не входила ни в одну сумму и пропускается;
+      // без даты её не поместить в индексы по дням
+      if (type == null) continue;
+      if (!hasDate) throw new IOException("Некорректная операция в snapshot: нет date");
+      wallet.restoreTransaction(type, category, amountMinor, epochDay, comment);
+    }
+    expect(p, p.currentToken(), JsonToken.END_ARRAY);
+  }
+
+  // Дата пишется JavaTimeModule как "YYYY-MM-DD" (см. InputFormats.parseDate)
+  private static int readEpochDay(JsonParser p) throws IOException {
+    if (p.currentToken() == JsonToken.START_ARRAY) {
+      p.nextToken();
+      int year = p.getIntValue();
+      p.nextToken();
+      int month = p.getIntValue();
+      p.nextToken();
+      int day = p.getIntValue();
+      expect(p, p.nextToken(), JsonToken.END_ARRAY);
+      return Math.toIntExact(LocalDate.of(year, month, day).toEpochDay());
+    }
+
+    return Math.toIntExact(InputFormats.parseDate(p.getText()).toEpochDay());
+  }
+
+  private static void expect(JsonParser p, JsonToken actual, JsonToken expected)
+      throws IOException {
+    if (actual != expected) {
+      throw new IOException(
+          "Некорректный snapshot: ожидалось "
+              + expected
+              + ", получено "
+              + actual
+              + " в "
+              + p.currentLocation());
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package org.com.financeApp.services;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.BitSet;
+import org.com.financeApp.core.models.CategoryDictionary;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.TransactionStore;
+import org.com.financeApp.core.models.WalletView;
+
+// Потоковая запись WalletSnapshot JSON: строки операций пишутся прямо из колонок
+// TransactionStore, без промежуточных Transaction/TransactionSnapshot и списков.
+// Формат тот же, что у WalletSnapshot (его читает и WalletJsonReader, и Jackson)
+final class WalletJsonWriter {
+  private final JsonFactory factory;
+
+  WalletJsonWriter(JsonFactory factory) {
+    this.factory = factory;
+  }
+
+  void write(Path file, WalletView wallet, long journalSeq) throws IOException {
+    TransactionStore store = wallet.getTransactionStore();
+    CategoryDictionary dictionary = wallet.getCategoryDictionary();
+
+    try (OutputStream out = Files.newOutputStream(file);
+        JsonGenerator g = factory.createGenerator(out)) {
+      g.useDefaultPrettyPrinter();
+      g.writeStartObject();
+      g.writeStringField("ownerLogin", wallet.getOwnerLogin());
+
+      g.writeArrayFieldStart("categories");
+      for (int id = 0; id < dictionary.size(); id++) {
+        String name = dictionary.name(id);
+        if (wallet.hasCategory(name)) g.writeString(name);
+      }
+      g.writeEndArray();
+
+      g.writeObjectFieldStart("budgetsByCategory");
+      BitSet budgeted = wallet.getBudgetedCategoryIds();
+      for (int id = budgeted.nextSetBit(0); id >= 0; id = budgeted.nextSetBit(id + 1)) {
+        g.writeNumberField(dictionary.name(id), Money.toMajor(wallet.getBudgetMinor(id)));
+      }
+      g.writeEndObject();
+
+      g.writeArrayFieldStart("transactions");
+      for (int i = 0; i < store.size(); i++) {
+        g.writeStartObject();
+        g.writeStringField("type", store.type(i).name());
+        g.writeStringField("category", dictionary.name(store.categoryId(i)));
+        // Сумма — десятичное число, как у TransactionSnapshot
+        g.writeNumberField("amount", Money.toMajor(store.amountMinor(i)));
+        g.writeStringField("date", LocalDate.ofEpochDay(store.epochDay(i)).toString());
+        g.writeStringField("comment", store.comment(i));
+        g.writeEndObject();
+      }
+      g.writeEndArray();
+
+      if (journalSeq != 0) g.writeNumberField("journalSeq", journalSeq);
+      g.writeEndObject();
+    }
+  }
+}
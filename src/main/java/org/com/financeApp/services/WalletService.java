@@ -2,7 +2,14 @@ package org.com.financeApp.services;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import org.com.financeApp.core.models.Money;
 import org.com.financeApp.core.models.Transaction;
 import org.com.financeApp.core.models.TransactionType;
 import org.com.financeApp.core.models.User;
@@ -10,12 +17,29 @@ import org.com.financeApp.core.models.Wallet;
 import org.com.financeApp.core.repository.WalletRepository;
 
 public class WalletService {
+  private static final int LOCK_STRIPES = 64;
+
+  // Операция для addOperations; date == null — сегодня
+  public record OperationRequest(
+      TransactionType type, String category, double amount, LocalDate date, String comment) {}
+
   private final WalletRepository walletRepo;
+  private final List<WalletChangeListener> listeners = new CopyOnWriteArrayList<>();
+  // Изменение кошелька и уведомление слушателей идут под блокировкой полосы его логина, чтобы
+  // слушатели (журнал) получали изменения одного кошелька в порядке применения.
+  // ReentrantLock, а не synchronized: не закрепляет виртуальные потоки
+  private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
 
   public WalletService(WalletRepository walletRepo) {
     if (walletRepo == null)
       throw new IllegalArgumentException("WalletRepository не должен быть null");
     this.walletRepo = walletRepo;
+    for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+  }
+
+  public void addListener(WalletChangeListener listener) {
+    if (listener == null) throw new IllegalArgumentException("listener не должен быть null");
+    listeners.add(listener);
   }
 
   public Wallet getWallet(User user) {
@@ -28,9 +52,16 @@ public class WalletService {
     category = normalize(category);
     if (category.isEmpty()) throw new IllegalArgumentException("Категория не должна быть пустой");
 
-    Wallet wallet = getWallet(user);
-    wallet.addCategory(category);
-    walletRepo.save(wallet);
+    String name = category;
+    mutate(
+        user,
+        wallet -> {
+          wallet.addCategory(name);
+          walletRepo.save(wallet);
+
+          for (WalletChangeListener l : listeners) l.categoryAdded(wallet, name);
+          return null;
+        });
   }
 
   public void setBudget(User user, String category, double limit) {
@@ -40,13 +71,21 @@ public class WalletService {
     if (category.isEmpty()) throw new IllegalArgumentException("Категория не должна быть пустой");
     if (limit < 0) throw new IllegalArgumentException("Лимит бюджета не может быть отрицательным");
 
-    Wallet wallet = getWallet(user);
-    if (!wallet.hasCategory(category)) {
-      throw new IllegalArgumentException("Категория не найдена: " + category);
-    }
+    String name = category;
+    Money money = Money.of(limit);
+    mutate(
+        user,
+        wallet -> {
+          if (!wallet.hasCategory(name)) {
+            throw new IllegalArgumentException("Категория не найдена: " + name);
+          }
+
+          wallet.setBudget(name, money);
+          walletRepo.save(wallet);
 
-    wallet.setBudget(category, limit);
-    walletRepo.save(wallet);
+          for (WalletChangeListener l : listeners) l.budgetSet(wallet, name, money);
+          return null;
+        });
   }
 
   public List<String> addIncome(
@@ -68,77 +107,178 @@ public class WalletService {
       String comment) {
     requireUser(user);
 
-    category = normalize(category);
-    comment = comment == null ? null : comment.trim();
-    if (category.isEmpty()) throw new IllegalArgumentException("Категория не должна быть пустой");
-    if (amount <= 0) throw new IllegalArgumentException("Сумма должна быть больше 0");
-    if (date == null) date = LocalDate.now();
-
-    Wallet wallet = getWallet(user);
-    if (!wallet.hasCategory(category)) {
-      if (type == TransactionType.INCOME) {
-        wallet.addCategory(category);
-        walletRepo.save(wallet);
-      } else {
-        throw new IllegalArgumentException("Категория не найдена: " + category);
+    Transaction tx = toTransaction(new OperationRequest(type, category, amount, date, comment));
+    String name = tx.getCategory();
+    return mutate(
+        user,
+        wallet -> {
+          if (!wallet.hasCategory(name)) {
+            if (type == TransactionType.INCOME) {
+              wallet.addCategory(name);
+              walletRepo.save(wallet);
+
+              for (WalletChangeListener l : listeners) l.categoryAdded(wallet, name);
+            } else {
+              throw new IllegalArgumentException("Категория не найдена: " + name);
+            }
+          }
+
+          wallet.addTransaction(tx);
+          walletRepo.save(wallet);
+
+          for (WalletChangeListener l : listeners) l.transactionAdded(wallet, tx);
+
+          return wallet.read(() -> buildWarnings(wallet, name));
+        });
+  }
+
+  // Кошелёк пользователя заменяется целиком (snapshot import). Под блокировкой полосы: изменения,
+  // начатые до замены, применяются к старому кошельку и попадают в журнал до компактизации нового
+  public void replaceWallet(User user, Wallet wallet) {
+    requireUser(user);
+    if (wallet == null) throw new IllegalArgumentException("wallet не должен быть null");
+    if (!wallet.getOwnerLogin().equals(user.getLogin()))
+      throw new IllegalArgumentException("Кошелёк принадлежит другому пользователю");
+
+    Lock lock = stripe(user.getLogin());
+    lock.lock();
+    try {
+      walletRepo.save(wallet);
+      for (WalletChangeListener l : listeners) l.walletReplaced(wallet);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Пакетное добавление (например, выписка банка): все операции проверяются до изменений,
+  // добавляются одним пакетом с однократным save и уведомлением слушателей.
+  // Ошибка в любой операции отменяет весь пакет. Возвращает оповещения без повторов
+  // по затронутым категориям после применения пакета
+  public List<String> addOperations(User user, List<OperationRequest> operations) {
+    requireUser(user);
+    if (operations == null)
+      throw new IllegalArgumentException("Список операций не должен быть null");
+
+    List<Transaction> txs = new ArrayList<>(operations.size());
+    for (int i = 0; i < operations.size(); i++) {
+      OperationRequest op = operations.get(i);
+      try {
+        if (op == null) throw new IllegalArgumentException("Операция не должна быть null");
+        txs.add(toTransaction(op));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Операция #" + (i + 1) + ": " + e.getMessage(), e);
       }
     }
+    if (txs.isEmpty()) return List.of();
+
+    return mutate(
+        user,
+        wallet -> {
+          // Доходы заводят недостающие категории (как addIncome), расходы требуют существующую
+          Set<String> newCategories = new LinkedHashSet<>();
+          for (int i = 0; i < txs.size(); i++) {
+            Transaction tx = txs.get(i);
+            String name = tx.getCategory();
+            if (wallet.hasCategory(name) || newCategories.contains(name)) continue;
+            if (tx.getType() == TransactionType.INCOME) {
+              newCategories.add(name);
+            } else {
+              throw new IllegalArgumentException(
+                  "Операция #" + (i + 1) + ": Категория не найдена: " + name);
+            }
+          }
 
-    Transaction tx = new Transaction(type, category, amount, date, comment);
-    wallet.addTransaction(tx);
-    walletRepo.save(wallet);
+          for (String name : newCategories) {
+            wallet.addCategory(name);
+            for (WalletChangeListener l : listeners) l.categoryAdded(wallet, name);
+          }
 
-    return buildWarnings(wallet, category);
+          wallet.addTransactions(txs);
+          walletRepo.save(wallet);
+
+          for (WalletChangeListener l : listeners) l.transactionsAdded(wallet, txs);
+
+          Set<String> touched = new LinkedHashSet<>();
+          for (Transaction tx : txs) touched.add(tx.getCategory());
+          return wallet.read(
+              () -> {
+                Set<String> warnings = new LinkedHashSet<>();
+                for (String name : touched) warnings.addAll(buildWarnings(wallet, name));
+                return List.copyOf(warnings);
+              });
+        });
+  }
+
+  private static Transaction toTransaction(OperationRequest op) {
+    String category = normalize(op.category());
+    String comment = op.comment() == null ? null : op.comment().trim();
+    if (op.type() == null) throw new IllegalArgumentException("Тип операции не указан");
+    if (category.isEmpty()) throw new IllegalArgumentException("Категория не должна быть пустой");
+    if (op.amount() <= 0 || Money.toMinor(op.amount()) <= 0)
+      throw new IllegalArgumentException("Сумма должна быть больше 0");
+    LocalDate date =
+        op.date() == null ? LocalDate.now() : Transaction.requireSupportedDate(op.date());
+
+    return new Transaction(op.type(), category, Money.of(op.amount()), date, comment);
+  }
+
+  // Кошелёк берётся уже под блокировкой: заменённый (replaceWallet) кошелёк не изменяется
+  private <T> T mutate(User user, Function<Wallet, T> body) {
+    Lock lock = stripe(user.getLogin());
+    lock.lock();
+    try {
+      return body.apply(getWallet(user));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Lock stripe(String login) {
+    Lock lock = walletRepo.mutationLock(login);
+    return lock != null ? lock : stripes[Math.floorMod(login.hashCode(), stripes.length)];
   }
 
   private List<String> buildWarnings(Wallet wallet, String changedCategory) {
     List<String> warnings = new ArrayList<>();
 
-    Double budget = wallet.getBudget(changedCategory);
+    Long budget = wallet.getBudgetMinor(changedCategory);
     if (budget != null) {
-      double spent =
-          wallet.getTransactions().stream()
-              .filter(t -> t.getType() == TransactionType.EXPENSE)
-              .filter(t -> t.getCategory().equals(changedCategory))
-              .mapToDouble(Transaction::getAmount)
-              .sum();
+      long spent = wallet.getCategoryTotalMinor(TransactionType.EXPENSE, changedCategory);
 
-      double remaining = budget - spent;
+      long remaining = budget - spent;
 
       // 80% warning (только если бюджет задан и ещё не превышен)
       if (budget > 0) {
-        double threshold = budget * 0.8;
-        if (spent >= threshold && spent < budget) {
+        if (spent * 5 >= budget * 4 && spent < budget) {
           warnings.add(
               "Вы израсходовали "
-                  + Math.round((spent / budget) * 100)
+                  + Math.round(spent * 100.0 / budget)
                   + "% бюджета по категории '"
                   + changedCategory
                   + "'. Осталось: "
-                  + remaining);
+                  + Money.format(remaining));
         }
       }
 
       if (remaining < 0) {
         warnings.add(
-            "Превышен лимит бюджета по категории '" + changedCategory + "' на " + (-remaining));
+            "Превышен лимит бюджета по категории '"
+                + changedCategory
+                + "' на "
+                + Money.format(-remaining));
       }
     }
 
-    double totalIncome =
-        wallet.getTransactions().stream()
-            .filter(t -> t.getType() == TransactionType.INCOME)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
-
-    double totalExpense =
-        wallet.getTransactions().stream()
-            .filter(t -> t.getType() == TransactionType.EXPENSE)
-            .mapToDouble(Transaction::getAmount)
-            .sum();
+    long totalIncome = wallet.getTotalMinor(TransactionType.INCOME);
+    long totalExpense = wallet.getTotalMinor(TransactionType.EXPENSE);
 
     if (totalExpense > totalIncome) {
-      warnings.add("Расходы превысили доходы (" + totalExpense + " > " + totalIncome + ")");
+      warnings.add(
+          "Расходы превысили доходы ("
+              + Money.format(totalExpense)
+              + " > "
+              + Money.format(totalIncome)
+              + ")");
     }
 
     return warnings;
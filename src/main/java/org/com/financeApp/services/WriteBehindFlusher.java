@@ -0,0 +1,141 @@
+package org.com.financeApp.services;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.Wallet;
+
+// Отложенное сохранение: WalletService помечает изменённые кошельки, фоновый поток сохраняет их
+// раз в interval или сразу после dirtyThreshold изменений. Несколько изменений кошелька между
+// сбросами дают одну запись файла, а команды не ждут диска.
+// Для журнального режима не нужен: там каждое изменение и так дописывается в журнал
+public final class WriteBehindFlusher implements WalletChangeListener, AutoCloseable {
+  public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(2);
+  public static final int DEFAULT_DIRTY_THRESHOLD = 500;
+
+  private final WalletFileStorage storage;
+  private final int dirtyThreshold;
+  private final ScheduledExecutorService scheduler;
+  private final Map<String, Wallet> dirty = new ConcurrentHashMap<>();
+  private final AtomicInteger pendingChanges = new AtomicInteger();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+  public WriteBehindFlusher(WalletFileStorage storage) {
+    this(storage, DEFAULT_INTERVAL, DEFAULT_DIRTY_THRESHOLD);
+  }
+
+  public WriteBehindFlusher(WalletFileStorage storage, Duration interval, int dirtyThreshold) {
+    if (storage == null)
+      throw new IllegalArgumentException("WalletFileStorage не должен быть null");
+    if (interval == null || interval.isNegative() || interval.isZero())
+      throw new IllegalArgumentException("Интервал сохранения должен быть больше 0");
+    if (dirtyThreshold <= 0)
+      throw new IllegalArgumentException("Порог изменений должен быть больше 0");
+    this.storage = storage;
+    this.dirtyThreshold = dirtyThreshold;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "wallet-flusher");
+              t.setDaemon(true);
+              return t;
+            });
+    long millis = interval.toMillis();
+    scheduler.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void categoryAdded(Wallet wallet, String category) {
+    markDirty(wallet, 1);
+  }
+
+  @Override
+  public void budgetSet(Wallet wallet, String category, Money limit) {
+    markDirty(wallet, 1);
+  }
+
+  @Override
+  public void transactionAdded(Wallet wallet, Transaction tx) {
+    markDirty(wallet, 1);
+  }
+
+  @Override
+  public void transactionsAdded(Wallet wallet, List<Transaction> txs) {
+    markDirty(wallet, txs.size());
+  }
+
+  // Кошелёк заменён целиком (snapshot import): сохраняется новый объект
+  @Override
+  public void walletReplaced(Wallet wallet) {
+    markDirty(wallet, 1);
+  }
+
+  public int dirtyCount() {
+    return dirty.size();
+  }
+
+  // Сохраняет все помеченные кошельки в вызывающем потоке; возвращает число записанных файлов.
+  // Кошелёк снимается с пометки до записи: изменения во время записи пометят его снова
+  public int flush() throws IOException {
+    flushRequested.set(false);
+    pendingChanges.set(0);
+
+    int written = 0;
+    IOException failure = null;
+    for (String login : List.copyOf(dirty.keySet())) {
+      Wallet wallet = dirty.remove(login);
+      if (wallet == null) continue;
+      try {
+        if (storage.saveIfChanged(login, wallet)) written++;
+      } catch (IOException | RuntimeException e) {
+        // Не сохранённый кошелёк остаётся помеченным до следующей попытки
+        dirty.putIfAbsent(login, wallet);
+        if (failure == null) failure = new IOException("Не удалось сохранить кошелёк " + login, e);
+      }
+    }
+    if (failure != null) throw failure;
+    return written;
+  }
+
+  // Останавливает фоновый поток и сохраняет оставшиеся изменения
+  @Override
+  public void close() throws IOException {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  private void markDirty(Wallet wallet, int changes) {
+    dirty.put(wallet.getOwnerLogin(), wallet);
+    if (pendingChanges.addAndGet(changes) >= dirtyThreshold
+        && flushRequested.compareAndSet(false, true)) {
+      try {
+        scheduler.execute(this::flushQuietly);
+      } catch (RejectedExecutionException e) {
+        // поток уже остановлен: оставшееся сохранит close()
+      }
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (IOException e) {
+      System.err.println("Ошибка фонового сохранения: " + e.getMessage());
+    }
+  }
+}
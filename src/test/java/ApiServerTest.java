@@ -0,0 +1,220 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.com.financeApp.core.repository.WalletRepository;
+import org.com.financeApp.http.ApiServer;
+import org.com.financeApp.infra.ConcurrentUserRepository;
+import org.com.financeApp.infra.ConcurrentWalletRepository;
+import org.com.financeApp.services.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ApiServerTest {
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @TempDir Path dir;
+
+  private ApiServer server;
+  private SessionService sessions;
+  private String baseUrl;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    WalletRepository walletRepo = new ConcurrentWalletRepository();
+    WalletFileStorage storage = new WalletFileStorage(dir);
+    StatsService stats = new StatsService();
+    sessions =
+        new SessionService(
+            new AuthorizationService(new ConcurrentUserRepository()), walletRepo, storage);
+    server =
+        new ApiServer(
+            sessions,
+            new WalletService(walletRepo),
+            walletRepo,
+            storage,
+            stats,
+            new ReportService(stats));
+    server.start(0);
+    baseUrl = "http://127.0.0.1:" + server.getPort() + "/api";
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  void sessionFlow_shouldMapOntoServices() throws Exception {
+    String token =
+        send("POST", "/register", null, "{\"login\":\"ivan\",\"password\":\"1234\"}")
+            .get("token")
+            .asText();
+
+    send("POST", "/categories", token, "{\"name\":\"Еда\"}");
+    send("PUT", "/budgets", token, "{\"category\":\"Еда\",\"limit\":1000}");
+    send(
+        "POST",
+        "/operations",
+        token,
+        "{\"type\":\"income\",\"category\":\"Зарплата\",\"amount\":5000,\"date\":\"2025-12-01\"}");
+    JsonNode added =
+        send(
+            "POST",
+            "/operations",
+            token,
+            "{\"type\":\"expense\",\"category\":\"Еда\",\"amount\":900,\"date\":\"2025-12-02\"}");
+    assertEquals(1, added.get("warnings").size());
+    JsonNode batch =
+        send(
+            "POST",
+            "/operations/batch",
+            token,
+            "{\"operations\":[{\"type\":\"expense\",\"category\":\"Еда\",\"amount\":50,"
+                + "\"date\":\"2025-12-03\"},{\"type\":\"expense\",\"category\":\"Еда\","
+                + "\"amount\":50,\"date\":\"2025-12-04\"}]}");
+    assertEquals(2, batch.get("added").asInt());
+
+    JsonNode stats = send("GET", "/stats?from=2025-12-01&to=2025-12-31", token, null);
+    assertEquals(5000.0, stats.get("totalIncome").asDouble());
+    assertEquals(1000.0, stats.get("expenseByCategory").get("Еда").asDouble());
+    assertEquals(0.0, stats.get("budgets").get("Еда").get("remaining").asDouble());
+    assertEquals(4000.0, send("GET", "/balance", token, null).get("balance").asDouble());
+
+    send("POST", "/logout", token, null);
+    assertTrue(Files.exists(dir.resolve("ivan.json")));
+    assertEquals(401, status("GET", "/balance", token));
+  }
+
+  @Test
+  void errors_shouldMapToStatusCodes() throws Exception {
+    assertEquals(401, status("GET", "/stats", null));
+    assertEquals(401, status("GET", "/stats", "unknown"));
+    assertEquals(400, status("POST", "/login", null));
+
+    String token =
+        send("POST", "/register", null, "{\"login\":\"ivan\",\"password\":\"1234\"}")
+            .get("token")
+            .asText();
+    assertEquals(404, status("GET", "/unknown", token));
+    assertEquals(400, status("GET", "/stats?from=2025-13-01", token));
+
+    // Ошибка хранилища (на месте каталога данных — файл) отдаётся ответом 500
+    send("POST", "/categories", token, "{\"name\":\"Еда\"}");
+    Files.delete(dir);
+    Files.writeString(dir, "not a directory");
+    HttpResponse<String> failed = exchange("POST", "/logout", token, null);
+    assertEquals(500, failed.statusCode());
+    assertTrue(failed.body().contains("Ошибка хранилища"), failed.body());
+    Files.delete(dir);
+    Files.createDirectory(dir);
+  }
+
+  @Test
+  void oversizedBody_shouldBeRejectedWith413() throws Exception {
+    String padding = "x".repeat(2 << 20);
+    HttpResponse<String> response =
+        exchange("POST", "/login", null, "{\"login\":\"ivan\",\"pad\":\"" + padding + "\"}");
+    assertEquals(413, response.statusCode());
+  }
+
+  @Test
+  void sessions_shouldExpireWhenIdleAndBeCapped() throws Exception {
+    WalletRepository walletRepo = new ConcurrentWalletRepository();
+    WalletFileStorage storage = new WalletFileStorage(dir);
+    WalletService wallets = new WalletService(walletRepo);
+    SessionService limited =
+        new SessionService(
+            new AuthorizationService(new ConcurrentUserRepository()),
+            walletRepo,
+            storage,
+            Duration.ofMillis(200),
+            2);
+
+    String ivan = limited.register("ivan", "1234");
+    limited.register("petr", "1234");
+    wallets.addCategory(limited.find(ivan), "Еда");
+    assertThrows(IllegalStateException.class, () -> limited.register("anna", "1234"));
+
+    Thread.sleep(400);
+    assertNull(limited.find(ivan));
+    // Новая сессия вытесняет истёкшие; кошелёк истёкшей сессии сохраняется, как при logout
+    // Пользователь anna уже создан: отказ касался только сессии
+    limited.login("anna", "1234");
+    assertEquals(1, limited.activeSessions());
+    assertTrue(storage.loadOrCreate("ivan").hasCategory("Еда"));
+  }
+
+  @Test
+  void concurrentSessions_shouldKeepUsersIsolated() throws Exception {
+    int users = 50;
+    int opsPerUser = 20;
+    List<Future<?>> futures = new ArrayList<>();
+    try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int u = 0; u < users; u++) {
+        String login = "user" + u;
+        futures.add(
+            pool.submit(
+                () -> {
+                  String token =
+                      send(
+                              "POST",
+                              "/register",
+                              null,
+                              "{\"login\":\"" + login + "\",\"password\":\"pwd\"}")
+                          .get("token")
+                          .asText();
+                  for (int i = 0; i < opsPerUser; i++) {
+                    send(
+                        "POST",
+                        "/operations",
+                        token,
+                        "{\"type\":\"income\",\"category\":\"Зарплата\",\"amount\":10}");
+                  }
+                  return send("GET", "/balance", token, null).get("balance").asDouble();
+                }));
+      }
+      for (Future<?> f : futures) assertEquals(opsPerUser * 10.0, f.get(60, TimeUnit.SECONDS));
+    }
+    assertEquals(users, sessions.activeSessions());
+  }
+
+  private JsonNode send(String method, String path, String token, String body) throws Exception {
+    HttpResponse<String> response = exchange(method, path, token, body);
+    assertTrue(response.statusCode() < 300, response.statusCode() + ": " + response.body());
+    return mapper.readTree(response.body());
+  }
+
+  private int status(String method, String path, String token) throws Exception {
+    return exchange(method, path, token, null).statusCode();
+  }
+
+  private HttpResponse<String> exchange(String method, String path, String token, String body)
+      throws Exception {
+    HttpRequest.Builder request =
+        HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .method(
+                method,
+                body == null
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofString(body));
+    if (token != null) request.header("Authorization", "Bearer " + token);
+    return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+}
@@ -1,5 +1,6 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
 import org.com.financeApp.core.models.User;
 import org.com.financeApp.core.repository.UserRepository;
 import org.com.financeApp.infra.InMemoryUserRepository;
@@ -102,4 +103,14 @@ public class AuthorizationServiceTest {
         assertThrows(IllegalArgumentException.class, () -> auth.register("iv an", "1234"));
     assertTrue(ex.getMessage().toLowerCase().contains("пробел"));
   }
+
+  @Test
+  void register_loginLeavingDataDirectory_shouldThrow() {
+    for (String login : List.of("../evil", "/tmp/evil", "a/b", "..", ".hidden", "a\\b")) {
+      IllegalArgumentException ex =
+          assertThrows(IllegalArgumentException.class, () -> auth.register(login, "1234"), login);
+      assertTrue(ex.getMessage().toLowerCase().contains("логин"), login);
+    }
+    assertEquals("ivan.petrov-1", auth.register("ivan.petrov-1", "1234").getLogin());
+  }
 }
@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.infra.ConcurrentWalletRepository;
+import org.com.financeApp.services.BatchReportService;
+import org.com.financeApp.services.ReportService;
+import org.com.financeApp.services.StatsService;
+import org.com.financeApp.services.WalletFileStorage;
+import org.junit.jupiter.api.Test;
+
+class BatchReportServiceTest {
+
+  @Test
+  void buildAll_shouldWriteReportPerStoredWallet() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-data-");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+    ConcurrentWalletRepository repo = new ConcurrentWalletRepository();
+    ReportService reports = new ReportService(new StatsService());
+
+    for (String login : List.of("anna", "ivan", "petr")) {
+      storage.save(login, wallet(login, login.length() * 100));
+    }
+    // Открытый кошелёк с несохранёнными изменениями берётся из памяти
+    Wallet ivan = storage.loadOrCreate("ivan");
+    ivan.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 77, LocalDate.of(2025, 12, 5), ""));
+    repo.save(ivan);
+    Files.writeString(dir.resolve("broken.json"), "{\"ownerLogin\": ");
+    Files.writeString(dir.resolve("metrics.prom"), "finance_wallets_loaded 1\n");
+
+    assertEquals(List.of("anna", "broken", "ivan", "petr"), storage.storedLogins());
+
+    Path out = dir.resolve("reports");
+    LocalDate from = LocalDate.of(2025, 12, 1);
+    LocalDate to = LocalDate.of(2025, 12, 31);
+    BatchReportService.BatchResult result =
+        new BatchReportService(storage, repo, reports, 2).buildAll(out, from, to);
+
+    assertEquals(4, result.wallets());
+    assertEquals(3, result.written());
+    assertEquals(1, result.failed());
+    assertTrue(result.errors().get(0).startsWith("broken: "));
+    assertFalse(Files.exists(out.resolve("broken.txt")));
+
+    for (String login : List.of("anna", "petr")) {
+      Wallet stored = storage.loadOrCreate(login);
+      assertEquals(
+          reports.buildReportUncached(stored, from, to),
+          Files.readString(out.resolve(login + ".txt")));
+    }
+    assertEquals(reports.buildReport(ivan, from, to), Files.readString(out.resolve("ivan.txt")));
+    assertTrue(Files.readString(out.resolve("ivan.txt")).contains("77"));
+  }
+
+  @Test
+  void buildAll_shouldRejectInvertedPeriod() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-data-");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+    BatchReportService batch =
+        new BatchReportService(
+            storage, new ConcurrentWalletRepository(), new ReportService(new StatsService()));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> batch.buildAll(dir, LocalDate.of(2025, 12, 31), LocalDate.of(2025, 12, 1)));
+  }
+
+  private static Wallet wallet(String login, double expense) {
+    Wallet w = new Wallet(login);
+    w.addCategory("Еда");
+    w.addCategory("Зарплата");
+    w.setBudget("Еда", 4000);
+    w.addTransaction(
+        new Transaction(TransactionType.INCOME, "Зарплата", 20000, LocalDate.of(2025, 12, 1), ""));
+    w.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", expense, LocalDate.of(2025, 12, 2), ""));
+    w.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 999, LocalDate.of(2026, 1, 2), ""));
+    return w;
+  }
+}
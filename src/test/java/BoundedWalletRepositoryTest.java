@@ -0,0 +1,135 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.User;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.infra.BoundedWalletRepository;
+import org.com.financeApp.services.WalletFileStorage;
+import org.com.financeApp.services.WalletService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BoundedWalletRepositoryTest {
+  @TempDir Path dir;
+
+  private WalletFileStorage storage;
+
+  @BeforeEach
+  void setUp() {
+    storage = new WalletFileStorage(dir);
+  }
+
+  @Test
+  void overflow_shouldEvictLeastRecentlyUsedAndReloadOnMiss() {
+    BoundedWalletRepository repo = new BoundedWalletRepository(storage, 10);
+    WalletService service = new WalletService(repo);
+    User ivan = new User("ivan", "1234");
+    User anna = new User("anna", "abcd");
+
+    for (int i = 0; i < 5; i++) {
+      service.addIncome(ivan, "Зарплата", 100, LocalDate.of(2025, 12, 1), null);
+    }
+    Wallet ivanWallet = repo.getOrCreate("ivan");
+    for (int i = 0; i < 6; i++) {
+      service.addIncome(anna, "Зарплата", 10, LocalDate.of(2025, 12, 1), null);
+    }
+
+    // ivan (вес 6) вытеснен, когда суммарный вес превысил 10: изменения сохранены на диск
+    BoundedWalletRepository.CacheStats stats = repo.stats();
+    assertEquals(1, stats.evictions());
+    assertEquals(1, stats.size());
+    assertTrue(stats.weight() <= 10);
+    assertTrue(Files.exists(dir.resolve("ivan.json")));
+
+    Wallet reloaded = repo.getOrCreate("ivan");
+    assertNotSame(ivanWallet, reloaded);
+    assertEquals(5, reloaded.getTransactions().size());
+    assertEquals(50_000, reloaded.getTotalMinor(TransactionType.INCOME));
+    assertTrue(repo.stats().misses() >= 2);
+  }
+
+  @Test
+  void hit_shouldRefreshRecencyAndReturnSameWallet() {
+    BoundedWalletRepository repo = new BoundedWalletRepository(storage, 2);
+
+    Wallet a = repo.getOrCreate("a");
+    repo.getOrCreate("b");
+    assertSame(a, repo.getOrCreate("a"));
+    repo.getOrCreate("c");
+
+    // b использован давнее всех и вытеснен, a остался
+    assertSame(a, repo.getOrCreate("a"));
+    assertEquals(1, repo.stats().evictions());
+    assertEquals(2, repo.stats().hits());
+  }
+
+  @Test
+  void singleWalletHeavierThanLimit_shouldStayCached() {
+    BoundedWalletRepository repo = new BoundedWalletRepository(storage, 2);
+    Wallet w = repo.getOrCreate("ivan");
+    for (int i = 0; i < 5; i++) {
+      w.addTransaction(
+          new Transaction(TransactionType.INCOME, "Зарплата", 1, LocalDate.of(2025, 1, 1), null));
+    }
+    repo.save(w);
+
+    assertSame(w, repo.getOrCreate("ivan"));
+    assertEquals(0, repo.stats().evictions());
+  }
+
+  @Test
+  void walletBeingMutated_shouldNotBeEvictedUntilMutationEnds() throws Exception {
+    BoundedWalletRepository repo = new BoundedWalletRepository(storage, 2);
+    Wallet ivan = repo.getOrCreate("ivan");
+
+    // Другой поток держит блокировку изменений ivan (как WalletService.mutate)
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread mutator =
+        new Thread(
+            () -> {
+              Lock lock = repo.mutationLock("ivan");
+              lock.lock();
+              try {
+                locked.countDown();
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              } finally {
+                lock.unlock();
+              }
+            });
+    mutator.start();
+    locked.await();
+
+    repo.getOrCreate("anna");
+    repo.getOrCreate("petr");
+    assertEquals(0, repo.stats().evictions());
+    assertSame(ivan, repo.findLoaded("ivan"));
+
+    release.countDown();
+    mutator.join();
+    repo.getOrCreate("olga");
+    assertTrue(repo.stats().evictions() >= 1);
+  }
+
+  @Test
+  void flushAll_shouldSaveChangedCachedWallets() throws Exception {
+    BoundedWalletRepository repo = new BoundedWalletRepository(storage, 100);
+    WalletService service = new WalletService(repo);
+    User ivan = new User("ivan", "1234");
+    service.addIncome(ivan, "Зарплата", 100, LocalDate.of(2025, 12, 1), null);
+    assertFalse(Files.exists(dir.resolve("ivan.json")));
+
+    repo.flushAll();
+
+    assertEquals(1, new WalletFileStorage(dir).loadOrCreate("ivan").getTransactions().size());
+  }
+}
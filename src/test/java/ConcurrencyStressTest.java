@@ -0,0 +1,166 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.User;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.infra.ConcurrentUserRepository;
+import org.com.financeApp.infra.ConcurrentWalletRepository;
+import org.com.financeApp.services.AuthorizationService;
+import org.com.financeApp.services.StatsService;
+import org.com.financeApp.services.WalletService;
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyStressTest {
+  private static final LocalDate START = LocalDate.of(2025, 1, 1);
+
+  @Test
+  void concurrentWritersAndReaders_shouldKeepWalletConsistent() throws Exception {
+    WalletService service = new WalletService(new ConcurrentWalletRepository());
+    StatsService stats = new StatsService();
+    User ivan = new User("ivan", "1234");
+    service.addCategory(ivan, "Еда");
+    service.setBudget(ivan, "Еда", 1_000_000);
+    Wallet wallet = service.getWallet(ivan);
+
+    int writers = 4;
+    int opsPerWriter = 5_000;
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicInteger inconsistentReports = new AtomicInteger();
+    ExecutorService pool = Executors.newFixedThreadPool(writers + 2);
+    CountDownLatch start = new CountDownLatch(1);
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (int w = 0; w < writers; w++) {
+      int writer = w;
+      futures.add(
+          pool.submit(
+              () -> {
+                start.await();
+                for (int i = 0; i < opsPerWriter; i++) {
+                  LocalDate date = START.plusDays(i % 365);
+                  service.addIncome(ivan, "Зарплата-" + writer, 2, date, null);
+                  service.addExpense(ivan, "Еда", 1, date, i % 10 == 0 ? "кофе" : null);
+                }
+                return null;
+              }));
+    }
+    for (int r = 0; r < 2; r++) {
+      futures.add(
+          pool.submit(
+              () -> {
+                start.await();
+                while (!done.get()) {
+                  var report = stats.aggregate(wallet, null, null);
+                  long byCategory =
+                      report
+                          .incomeByCategory()
+                          .ids()
+                          .mapToLong(report.incomeByCategory()::get)
+                          .sum();
+                  var period = stats.aggregate(wallet, START, START.plusDays(400));
+                  if (report.totalIncomeMinor() - report.totalExpenseMinor()
+                          != report.balanceMinor()
+                      || byCategory != report.totalIncomeMinor()
+                      || period.totalExpenseMinor() * 2 > period.totalIncomeMinor()) {
+                    inconsistentReports.incrementAndGet();
+                  }
+                }
+                return null;
+              }));
+    }
+
+    start.countDown();
+    for (int i = 0; i < writers; i++) futures.get(i).get(60, TimeUnit.SECONDS);
+    done.set(true);
+    for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+    pool.shutdown();
+
+    long ops = (long) writers * opsPerWriter;
+    assertEquals(0, inconsistentReports.get());
+    assertEquals(2 * ops, wallet.getTransactions().size());
+    assertEquals(ops * 200, wallet.getTotalMinor(TransactionType.INCOME));
+    assertEquals(ops * 100, wallet.getTotalMinor(TransactionType.EXPENSE));
+    assertEquals(ops * 100, wallet.getCategoryTotalMinor(TransactionType.EXPENSE, "Еда"));
+    assertEquals(writers + 1, wallet.getCategories().size());
+  }
+
+  @Test
+  void concurrentRegistration_shouldCreateUserOnce() throws Exception {
+    ConcurrentUserRepository users = new ConcurrentUserRepository();
+    int threads = 8;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger registered = new AtomicInteger();
+
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(
+          pool.submit(
+              () -> {
+                start.await();
+                try {
+                  new AuthorizationService(users).register("ivan", "1234");
+                  registered.incrementAndGet();
+                } catch (IllegalArgumentException expected) {
+                  // логин уже занят другим потоком
+                }
+                return null;
+              }));
+    }
+    start.countDown();
+    for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+    pool.shutdown();
+
+    assertEquals(1, registered.get());
+  }
+
+  // Пропускная способность по числу потоков: у каждого потока свой пользователь, как у
+  // независимых сессий. Числа выводятся для сравнения; рост не проверяется, т.к. зависит от машины
+  @Test
+  void throughput_shouldScaleWithThreadsForIndependentWallets() throws Exception {
+    int cores = Runtime.getRuntime().availableProcessors();
+    int opsPerThread = 20_000;
+
+    for (int threads = 1; threads <= cores; threads *= 2) {
+      WalletService service = new WalletService(new ConcurrentWalletRepository());
+      StatsService stats = new StatsService();
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      CountDownLatch start = new CountDownLatch(1);
+
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        User user = new User("user" + t, "pwd");
+        futures.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  for (int i = 0; i < opsPerThread; i++) {
+                    service.addIncome(user, "Зарплата", 10, START.plusDays(i % 365), null);
+                    if (i % 100 == 0) stats.aggregate(service.getWallet(user), null, null);
+                  }
+                  return null;
+                }));
+      }
+
+      long begin = System.nanoTime();
+      start.countDown();
+      for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+      long elapsed = System.nanoTime() - begin;
+      pool.shutdown();
+
+      long opsPerSecond = (long) threads * opsPerThread * 1_000_000_000L / elapsed;
+      System.out.printf("threads=%d: %,d ops/s%n", threads, opsPerSecond);
+      assertTrue(opsPerSecond > 0);
+    }
+  }
+}
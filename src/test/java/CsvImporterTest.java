@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.User;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.infra.ConcurrentWalletRepository;
+import org.com.financeApp.services.CsvImporter;
+import org.com.financeApp.services.WalletService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CsvImporterTest {
+  @TempDir Path dir;
+
+  private WalletService service;
+  private User ivan;
+
+  @BeforeEach
+  void setUp() {
+    service = new WalletService(new ConcurrentWalletRepository());
+    ivan = new User("ivan", "1234");
+    service.addCategory(ivan, "Еда");
+  }
+
+  @Test
+  void importFile_shouldParseHeaderQuotesAndSkipInvalidRows() throws Exception {
+    Path csv = dir.resolve("bank.csv");
+    Files.writeString(
+        csv,
+        "﻿type,category,amount,date,comment\r\n"
+            + "income,Зарплата,1000,2025-12-01,\r\n"
+            + "expense,Еда,120.50,2025-12-02,\"кофе, булка\"\r\n"
+            + "expense,Такси,300,2025-12-03\r\n"
+            + "\r\n"
+            + "expense,Еда,-5,2025-12-04\r\n"
+            + "expense,Еда,10,2025-13-01\r\n");
+
+    CsvImporter.ImportResult result = new CsvImporter(service).importFile(ivan, csv, null);
+
+    assertEquals(5, result.rows());
+    assertEquals(2, result.imported());
+    assertEquals(3, result.skipped());
+    assertTrue(result.errors().get(0).startsWith("Строка 4:"));
+    assertTrue(result.errors().get(1).startsWith("Строка 6:"));
+    assertTrue(result.errors().get(2).startsWith("Строка 7:"));
+
+    Wallet w = service.getWallet(ivan);
+    Transaction coffee = w.getTransactions().get(1);
+    assertEquals("кофе, булка", coffee.getComment());
+    assertEquals(12_050, w.getCategoryTotalMinor(TransactionType.EXPENSE, "Еда"));
+  }
+
+  @Test
+  void importFile_semicolonDelimiter_shouldAcceptDecimalComma() throws Exception {
+    Path csv = dir.resolve("bank.csv");
+    Files.writeString(csv, "expense;Еда;99,90;2025-12-02;обед\n");
+
+    new CsvImporter(service).importFile(ivan, csv, null);
+
+    assertEquals(9_990, service.getWallet(ivan).getTotalMinor(TransactionType.EXPENSE));
+  }
+
+  @Test
+  void importFile_quotedSemicolons_shouldNotChangeDelimiter() throws Exception {
+    Path csv = dir.resolve("bank.csv");
+    Files.writeString(
+        csv, "expense,Еда,10,2025-12-01,\"суп; хлеб; чай\"\n" + "expense;Еда;\"1,5\";2025-12-02\n");
+
+    CsvImporter.ImportResult result = new CsvImporter(service).importFile(ivan, csv, null);
+
+    assertEquals(1, result.imported());
+    assertEquals("суп; хлеб; чай", service.getWallet(ivan).getTransactions().get(0).getComment());
+  }
+
+  @Test
+  void importFile_tooLongLineAnywhere_shouldRejectBeforeApplyingRows() throws Exception {
+    Path csv = dir.resolve("bank.csv");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 20; i++) sb.append("expense,Еда,1,2025-12-01\n");
+    sb.append("expense,Еда,1,2025-12-01,").append("x".repeat(500)).append('\n');
+    Files.writeString(csv, sb);
+
+    CsvImporter importer = new CsvImporter(service, new ForkJoinPool(2), 128);
+    IOException ex = assertThrows(IOException.class, () -> importer.importFile(ivan, csv, null));
+
+    assertTrue(ex.getMessage().contains("длиннее"), ex.getMessage());
+    assertTrue(service.getWallet(ivan).getTransactions().isEmpty());
+  }
+
+  @Test
+  void importFile_manySmallChunks_shouldKeepOrderAndLineNumbers() throws Exception {
+    int rows = 5_000;
+    StringBuilder sb = new StringBuilder("type,category,amount,date\n");
+    for (int i = 0; i < rows; i++) {
+      String category = i == 4_321 ? "Нет" : "Еда";
+      sb.append("expense,")
+          .append(category)
+          .append(',')
+          .append(i + 1)
+          .append(',')
+          .append(LocalDate.of(2025, 1, 1).plusDays(i % 365))
+          .append('\n');
+    }
+    Path csv = dir.resolve("big.csv");
+    Files.writeString(csv, sb);
+
+    List<Long> progress = new ArrayList<>();
+    CsvImporter.ImportResult result;
+    try (ForkJoinPool pool = new ForkJoinPool(4)) {
+      result = new CsvImporter(service, pool, 256).importFile(ivan, csv, progress::add);
+    }
+
+    assertEquals(rows, result.rows());
+    assertEquals(rows - 1, result.imported());
+    assertEquals(List.of("Строка 4323: Категория не найдена: Нет"), result.errors());
+    assertEquals(rows, progress.get(progress.size() - 1));
+    assertTrue(progress.size() > 1);
+
+    List<Transaction> txs = service.getWallet(ivan).getTransactions();
+    assertEquals(1.0, txs.get(0).getAmount());
+    assertEquals((double) rows, txs.get(rows - 2).getAmount());
+  }
+}
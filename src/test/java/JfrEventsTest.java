@@ -0,0 +1,87 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.metrics.AggregationEvent;
+import org.com.financeApp.metrics.ReportEvent;
+import org.com.financeApp.metrics.StorageEvent;
+import org.com.financeApp.services.ReportService;
+import org.com.financeApp.services.StatsService;
+import org.com.financeApp.services.WalletFileStorage;
+import org.junit.jupiter.api.Test;
+
+class JfrEventsTest {
+
+  @Test
+  void statsStorageAndReport_shouldEmitJfrEvents() throws Exception {
+    Wallet wallet = new Wallet("ivan");
+    wallet.addCategory("Еда");
+    wallet.addCategory("Зарплата");
+    wallet.addTransaction(
+        new Transaction(TransactionType.INCOME, "Зарплата", 20000, LocalDate.of(2025, 11, 30), ""));
+    wallet.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 300, LocalDate.of(2025, 12, 1), ""));
+    wallet.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 500, LocalDate.of(2025, 12, 20), ""));
+
+    StatsService stats = new StatsService();
+    ReportService reports = new ReportService(stats, 16);
+    WalletFileStorage storage = new WalletFileStorage(Files.createTempDirectory("pfm-jfr-"));
+    Path dump = Files.createTempFile("pfm-", ".jfr");
+
+    try (Recording recording = new Recording()) {
+      recording.enable(AggregationEvent.class).withoutThreshold();
+      recording.enable(StorageEvent.class).withoutThreshold();
+      recording.enable(ReportEvent.class).withoutThreshold();
+      recording.start();
+
+      stats.expenseByCategory(wallet, LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 10));
+      storage.save("ivan", wallet);
+      reports.buildReport(wallet);
+      reports.buildReport(wallet);
+
+      recording.stop();
+      recording.dump(dump);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+    RecordedEvent query = single(events, "finance.StatsAggregation", "query", "by_category");
+    assertEquals("ivan", query.getString("login"));
+    assertEquals(3, query.getLong("transactions"));
+    // Декабрь — крайний месяц периода: его строки просматриваются, ноябрь не трогается
+    assertEquals(2, query.getLong("rowsScanned"));
+    assertEquals("2025-12-01", query.getString("from"));
+
+    RecordedEvent save = single(events, "finance.WalletStorage", "operation", "save");
+    assertEquals("json", save.getString("format"));
+    assertEquals(3, save.getLong("transactions"));
+    assertTrue(save.getLong("bytes") > 0);
+
+    List<RecordedEvent> built =
+        events.stream().filter(e -> e.getEventType().getName().equals("finance.Report")).toList();
+    assertEquals(2, built.size());
+    assertFalse(built.get(0).getBoolean("cached"));
+    assertTrue(built.get(1).getBoolean("cached"));
+    assertEquals(built.get(0).getLong("characters"), built.get(1).getLong("characters"));
+  }
+
+  private static RecordedEvent single(
+      List<RecordedEvent> events, String type, String field, String value) {
+    List<RecordedEvent> matching =
+        events.stream()
+            .filter(e -> e.getEventType().getName().equals(type))
+            .filter(e -> value.equals(e.getString(field)))
+            .toList();
+    assertEquals(1, matching.size(), type + " " + value);
+    return matching.get(0);
+  }
+}
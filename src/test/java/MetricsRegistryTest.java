@@ -0,0 +1,86 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.com.financeApp.metrics.LatencyHistogram;
+import org.com.financeApp.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+
+  @Test
+  void histogram_shouldReportPercentilesWithinBucketPrecision() {
+    LatencyHistogram h = new MetricsRegistry().timer("test_seconds");
+    for (int i = 1; i <= 1000; i++) h.record(i, TimeUnit.MICROSECONDS);
+
+    LatencyHistogram.Snapshot s = h.snapshot();
+    assertEquals(1000, s.count());
+    assertEquals(1_000_000, s.maxNanos());
+    assertEquals(500_000, s.p50Nanos(), 500_000 * 0.07);
+    assertEquals(990_000, s.p99Nanos(), 990_000 * 0.07);
+    assertTrue(s.p50Nanos() >= 500_000, "перцентиль — верхняя граница корзины");
+  }
+
+  @Test
+  void histogram_shouldCountConcurrentRecordsExactly() throws Exception {
+    LatencyHistogram h = new MetricsRegistry().timer("test_seconds");
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(
+          Thread.ofPlatform()
+              .start(
+                  () -> {
+                    for (int i = 0; i < 10_000; i++) h.record(i);
+                  }));
+    }
+    for (Thread t : threads) t.join();
+
+    assertEquals(40_000, h.snapshot().count());
+    assertEquals(9_999, h.snapshot().maxNanos());
+  }
+
+  @Test
+  void prometheusExport_shouldGroupFamiliesAndWriteFile() throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+    registry.timer("command_seconds", "command", "stats").record(2, TimeUnit.MILLISECONDS);
+    registry.timer("command_seconds", "command", "balance").record(1, TimeUnit.MILLISECONDS);
+    registry.timer("command_seconds_extra").record(1);
+    registry.counter("written_bytes_total", "format", "json").add(42);
+    AtomicLong size = new AtomicLong(7);
+    registry.gauge("wallet_transactions", size::get);
+
+    assertSame(
+        registry.timer("command_seconds", "command", "stats"),
+        registry.timer("command_seconds", "command", "stats"));
+
+    String text = registry.renderPrometheus();
+    assertEquals(1, count(text, "# TYPE finance_command_seconds summary"));
+    assertTrue(text.contains("finance_command_seconds{command=\"stats\",quantile=\"0.99\"} 0.002"));
+    assertTrue(text.contains("finance_command_seconds_count{command=\"balance\"} 1"));
+    assertTrue(text.contains("finance_command_seconds_max{command=\"stats\"} 0.002"));
+    assertTrue(text.contains("# TYPE finance_written_bytes_total counter"));
+    assertTrue(text.contains("finance_written_bytes_total{format=\"json\"} 42"));
+    assertTrue(text.contains("finance_wallet_transactions 7"));
+
+    // Строки одного семейства идут подряд
+    int stats = text.indexOf("finance_command_seconds{command=\"stats\",quantile=\"0.5\"}");
+    int balance = text.indexOf("finance_command_seconds{command=\"balance\",quantile=\"0.5\"}");
+    int extra = text.indexOf("# TYPE finance_command_seconds_extra summary");
+    assertTrue(balance < stats && stats < extra);
+
+    size.set(9);
+    Path file = Files.createTempDirectory("pfm-metrics-").resolve("metrics.prom");
+    registry.writePrometheus(file);
+    assertTrue(Files.readString(file).contains("finance_wallet_transactions 9"));
+  }
+
+  private static int count(String text, String needle) {
+    int n = 0;
+    for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + 1)) n++;
+    return n;
+  }
+}
@@ -68,6 +68,55 @@ class ReportServiceTest {
     assertEquals(text, read);
   }
 
+  @Test
+  void buildReport_shouldReuseCachedReportUntilWalletChanges() {
+    Wallet wallet = new Wallet("ivan");
+    wallet.addCategory("Еда");
+    wallet.addTransaction(tx(TransactionType.EXPENSE, "Еда", 300, LocalDate.of(2025, 12, 1)));
+
+    ReportService reportService = new ReportService(new StatsService());
+
+    String first = reportService.buildReport(wallet);
+    assertSame(first, reportService.buildReport(wallet));
+
+    wallet.addTransaction(tx(TransactionType.EXPENSE, "Еда", 200, LocalDate.of(2025, 12, 2)));
+    String changed = reportService.buildReport(wallet);
+    assertNotSame(first, changed);
+    assertTrue(changed.contains("Общие расходы: 500.0"));
+
+    // Кошелёк с тем же логином и версией, но другой объект — промах
+    Wallet reloaded = new Wallet("ivan");
+    reloaded.addCategory("Еда");
+    reloaded.addTransaction(tx(TransactionType.EXPENSE, "Еда", 300, LocalDate.of(2025, 12, 1)));
+    assertNotSame(first, reportService.buildReport(reloaded));
+
+    var cacheStats = reportService.getCacheStats();
+    assertEquals(1, cacheStats.hits());
+    assertEquals(3, cacheStats.misses());
+    assertEquals(0.25, cacheStats.hitRate(), 1e-9);
+  }
+
+  @Test
+  void reportCache_shouldStayBounded() {
+    Wallet wallet = new Wallet("ivan");
+    ReportService reportService = new ReportService(new StatsService(), 2);
+
+    LocalDate day = LocalDate.of(2025, 1, 1);
+    for (int i = 0; i < 5; i++) reportService.aggregate(wallet, day.plusDays(i), null);
+    assertEquals(2, reportService.getCacheStats().size());
+
+    // Последние два периода ещё в кэше, первый вытеснен
+    reportService.aggregate(wallet, day.plusDays(4), null);
+    reportService.aggregate(wallet, day, null);
+    assertEquals(1, reportService.getCacheStats().hits());
+
+    ReportService uncached = new ReportService(new StatsService(), 0);
+    uncached.buildReport(wallet);
+    uncached.buildReport(wallet);
+    assertEquals(0, uncached.getCacheStats().hits());
+    assertEquals(0, uncached.getCacheStats().size());
+  }
+
   private static Transaction tx(
       TransactionType type, String category, double amount, LocalDate date) {
     return new Transaction(type, category, amount, date, null);
@@ -1,11 +1,21 @@
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import org.com.financeApp.core.models.CategoryDictionary;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.ScanKernels;
 import org.com.financeApp.core.models.Transaction;
 import org.com.financeApp.core.models.TransactionType;
 import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.core.models.WalletView;
 import org.com.financeApp.services.StatsService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -52,6 +62,19 @@ class StatsServiceTest {
     assertEquals(54700.0, stats.balance(wallet));
   }
 
+  @Test
+  void totals_shouldFollowIncrementalInsertsAndRebuild() {
+    wallet.addTransaction(tx(TransactionType.EXPENSE, "Еда", 200, LocalDate.of(2025, 12, 6)));
+
+    assertEquals(8500.0, stats.totalExpense(wallet));
+    assertEquals(1000.0, stats.budgetStatus(wallet).get("Еда").spent());
+
+    wallet.rebuildAggregates();
+
+    assertEquals(8500.0, stats.totalExpense(wallet));
+    assertEquals(54500.0, stats.balance(wallet));
+  }
+
   @Test
   void incomeByCategory_shouldGroupCorrectly() {
     Map<String, Double> byCat = stats.incomeByCategory(wallet);
@@ -103,6 +126,7 @@ class StatsServiceTest {
     assertEquals(2500.0, bs.get("Коммунальные услуги").limit());
     assertEquals(3000.0, bs.get("Коммунальные услуги").spent());
     assertEquals(-500.0, bs.get("Коммунальные услуги").remaining());
+    assertEquals(bs.get("Еда"), new StatsService.BudgetStatus(4000.0, 800.0, 3200.0));
   }
 
   @Test
@@ -114,6 +138,68 @@ class StatsServiceTest {
     assertEquals(8300.0, decExpense);
   }
 
+  @Test
+  void periodTotals_shouldHandleBackDatedInserts() {
+    wallet.addTransaction(tx(TransactionType.INCOME, "Бонус", 1000, LocalDate.of(2026, 3, 1)));
+    wallet.addTransaction(tx(TransactionType.EXPENSE, "Еда", 100, LocalDate.of(2024, 1, 10)));
+    wallet.addTransaction(tx(TransactionType.EXPENSE, "Еда", 50, LocalDate.of(2025, 12, 2)));
+
+    assertEquals(
+        8350.0, stats.totalExpense(wallet, LocalDate.of(2025, 12, 1), LocalDate.of(2025, 12, 31)));
+    assertEquals(100.0, stats.totalExpense(wallet, null, LocalDate.of(2025, 11, 30)));
+    assertEquals(1000.0, stats.totalIncome(wallet, LocalDate.of(2026, 1, 1), null));
+    assertEquals(
+        0.0, stats.totalIncome(wallet, LocalDate.of(2030, 1, 1), LocalDate.of(2030, 12, 31)));
+  }
+
+  @Test
+  void balanceAsOf_shouldIncludeOnlyOperationsUpToDate() {
+    wallet.addTransaction(tx(TransactionType.EXPENSE, "Такси", 700, LocalDate.of(2025, 11, 1)));
+
+    assertEquals(-700.0, stats.balanceAsOf(wallet, LocalDate.of(2025, 11, 30)));
+    assertEquals(20000.0 - 700 - 300, stats.balanceAsOf(wallet, LocalDate.of(2025, 12, 1)));
+    assertEquals(stats.balance(wallet), stats.balanceAsOf(wallet, LocalDate.of(2025, 12, 31)));
+    assertEquals(0.0, stats.balanceAsOf(wallet, LocalDate.of(2020, 1, 1)));
+  }
+
+  @Test
+  void aggregate_shouldMatchIndividualQueriesForPeriod() {
+    wallet.addTransaction(tx(TransactionType.EXPENSE, "Еда", 100, LocalDate.of(2025, 11, 30)));
+    LocalDate from = LocalDate.of(2025, 12, 2);
+    LocalDate to = LocalDate.of(2025, 12, 15);
+
+    StatsService.ReportData data = stats.aggregate(wallet, from, to);
+
+    assertEquals(stats.totalIncome(wallet, from, to), Money.toMajor(data.totalIncomeMinor()));
+    assertEquals(stats.totalExpense(wallet, from, to), Money.toMajor(data.totalExpenseMinor()));
+    CategoryDictionary categories = data.categories();
+    assertEquals(40000_00L, data.incomeByCategory().get(categories.find("Зарплата")));
+    assertEquals(500_00L, data.expenseByCategory().get(categories.find("Еда")));
+    assertEquals(
+        stats.expenseByCategory(wallet, from, to).keySet(),
+        data.expenseByCategory().ids().mapToObj(categories::name).collect(Collectors.toSet()));
+    stats
+        .budgetStatus(wallet, from, to)
+        .forEach((name, st) -> assertEquals(st, data.budgetStatus(categories.find(name))));
+    assertEquals(stats.balance(wallet), Money.toMajor(data.balanceMinor()));
+  }
+
+  @Test
+  void totals_shouldBeExactForDecimalAmounts() {
+    Wallet w = new Wallet("anna");
+    w.addCategory("Кофе");
+    w.setBudget("Кофе", 1200);
+    for (int i = 0; i < 10; i++) {
+      w.addTransaction(tx(TransactionType.EXPENSE, "Кофе", 0.1, LocalDate.of(2025, 12, 1)));
+    }
+    w.addTransaction(tx(TransactionType.EXPENSE, "Кофе", 0.2, LocalDate.of(2025, 12, 2)));
+
+    assertEquals(1.2, stats.totalExpense(w));
+    assertEquals(1.2, stats.totalExpense(w, LocalDate.of(2025, 12, 1), null));
+    assertEquals(120L, stats.budgetStatus(w).get("Кофе").spentMinor());
+    assertEquals(1198.8, stats.budgetStatus(w).get("Кофе").remaining());
+  }
+
   @Test
   void invalidDateRange_shouldThrow() {
     IllegalArgumentException ex =
@@ -124,6 +210,178 @@ class StatsServiceTest {
     assertTrue(ex.getMessage().toLowerCase().contains("некорректный период"));
   }
 
+  @Test
+  void snapshot_shouldNotSeeLaterWritesAcrossChunkBoundaries() {
+    Wallet wallet = new Wallet("anna");
+    LocalDate day = LocalDate.of(2025, 12, 1);
+    for (int i = 0; i < 5000; i++) {
+      wallet.addTransaction(tx(TransactionType.INCOME, "Зарплата", 1, day));
+    }
+    long version = wallet.getVersion();
+    WalletView view = wallet.snapshot();
+
+    for (int i = 0; i < 5000; i++) {
+      wallet.addTransaction(
+          new Transaction(TransactionType.EXPENSE, "Еда", 1, day.plusDays(1), "после"));
+    }
+    wallet.addCategory("Новая");
+    wallet.setBudget("Новая", 10);
+
+    assertEquals(version, view.getVersion());
+    assertTrue(wallet.getVersion() > version);
+    assertEquals(5000, view.getTransactions().size());
+    assertNull(view.getTransactions().get(4999).getComment());
+    assertFalse(view.hasCategory("Новая"));
+    assertTrue(view.getBudgetsByCategory().isEmpty());
+
+    var report = stats.aggregate(view, day, day.plusDays(1));
+    assertEquals(500000L, report.totalIncomeMinor());
+    assertEquals(0L, report.totalExpenseMinor());
+    assertEquals(500000L, report.balanceMinor());
+
+    assertEquals(10000, wallet.getTransactions().size());
+    assertEquals("после", wallet.getTransactions().get(9999).getComment());
+    assertEquals(0L, wallet.getBalanceMinor());
+  }
+
+  @Test
+  void periodAggregates_fromMonthlyRollups_shouldMatchFullScan() {
+    Wallet wallet = new Wallet("anna");
+    wallet.addCategory("Еда");
+    Random random = new Random(7);
+    LocalDate start = LocalDate.of(2024, 11, 20);
+    for (int i = 0; i < 400; i++) {
+      TransactionType type =
+          random.nextBoolean() ? TransactionType.INCOME : TransactionType.EXPENSE;
+      String category = type == TransactionType.INCOME ? "Зарплата" : "Еда";
+      wallet.addTransaction(
+          tx(type, category, 1 + random.nextInt(1000), start.plusDays(random.nextInt(200))));
+    }
+    WalletView before = wallet.snapshot();
+    wallet.addTransaction(tx(TransactionType.EXPENSE, "Еда", 777, LocalDate.of(2025, 1, 15)));
+
+    for (WalletView view : List.of(before, wallet.snapshot())) {
+      for (int k = 0; k < 50; k++) {
+        LocalDate from = start.plusDays(random.nextInt(200));
+        LocalDate to = from.plusDays(random.nextInt(120));
+
+        long income = 0;
+        long expense = 0;
+        for (Transaction t : view.getTransactions()) {
+          if (t.getDate().isBefore(from) || t.getDate().isAfter(to)) continue;
+          if (t.getType() == TransactionType.INCOME) income += t.getAmountMinor();
+          else expense += t.getAmountMinor();
+        }
+
+        var report = stats.aggregate(view, from, to);
+        assertEquals(income, report.totalIncomeMinor(), from + " — " + to);
+        assertEquals(expense, report.totalExpenseMinor(), from + " — " + to);
+      }
+    }
+  }
+
+  @Test
+  void monthly_shouldGroupByMonthAndFilterByYear() {
+    wallet.addTransaction(tx(TransactionType.EXPENSE, "Еда", 100, LocalDate.of(2025, 11, 30)));
+    wallet.addTransaction(tx(TransactionType.INCOME, "Бонус", 50, LocalDate.of(2026, 1, 1)));
+
+    var months = stats.monthly(wallet, null);
+    assertEquals(3, months.size());
+    assertEquals(YearMonth.of(2025, 11), months.get(0).month());
+    assertEquals(10000, months.get(0).totalExpenseMinor());
+
+    var december = months.get(1);
+    assertEquals(6300000, december.totalIncomeMinor());
+    assertEquals(830000, december.totalExpenseMinor());
+    int food = wallet.getCategoryDictionary().find("Еда");
+    assertEquals(80000, december.expenseByCategory().get(food));
+
+    var only2026 = stats.monthly(wallet, 2026);
+    assertEquals(1, only2026.size());
+    assertEquals(5000, only2026.get(0).totalIncomeMinor());
+  }
+
+  @Test
+  void parallelAggregation_shouldMatchSequentialExactly() {
+    Wallet big = new Wallet("big");
+    String[] categories = {"Еда", "Такси", "Кино", "Зарплата", "Бонус"};
+    Random random = new Random(7);
+    List<Transaction> txs = new ArrayList<>();
+    for (int i = 0; i < 40_000; i++) {
+      TransactionType type =
+          random.nextInt(4) == 0 ? TransactionType.INCOME : TransactionType.EXPENSE;
+      txs.add(
+          new Transaction(
+              type,
+              categories[random.nextInt(categories.length)],
+              random.nextInt(1_000_000) / 100.0 + 0.01,
+              LocalDate.of(2025, 3, 1).plusDays(random.nextInt(61)),
+              ""));
+    }
+    big.restoreTransactions(txs);
+
+    // Свой пул на 4 потока: параллельная ветка проверяется и на машине с одним ядром
+    ForkJoinPool pool = new ForkJoinPool(4);
+    StatsService sequential = new StatsService(0);
+    StatsService parallel = new StatsService(1, pool);
+    try {
+      for (int i = 0; i < 20; i++) {
+        LocalDate from = LocalDate.of(2025, 3, 1).plusDays(random.nextInt(30));
+        LocalDate to = from.plusDays(random.nextInt(40));
+
+        StatsService.ReportData expected = sequential.aggregate(big, from, to);
+        StatsService.ReportData actual = parallel.aggregate(big, from, to);
+        assertEquals(expected.totalIncomeMinor(), actual.totalIncomeMinor());
+        assertEquals(expected.totalExpenseMinor(), actual.totalExpenseMinor());
+        for (int id = 0; id < categories.length; id++) {
+          assertEquals(expected.incomeByCategory().get(id), actual.incomeByCategory().get(id));
+          assertEquals(expected.expenseByCategory().get(id), actual.expenseByCategory().get(id));
+        }
+        assertEquals(
+            sequential.expenseByCategory(big, from, to), parallel.expenseByCategory(big, from, to));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void columnKernels_shouldMatchBruteForceForContiguousRows() {
+    // Операции по порядку дат: строки каждого месяца идут подряд и попадают в ScanKernels
+    assumeTrue(ScanKernels.isVectorized(), "нужен модуль jdk.incubator.vector");
+    Wallet sorted = new Wallet("sorted");
+    String[] categories = {"Еда", "Такси", "Зарплата"};
+    Random random = new Random(11);
+    List<Transaction> txs = new ArrayList<>();
+    LocalDate day = LocalDate.of(2025, 1, 1);
+    for (int i = 0; i < 20_000; i++) {
+      if (random.nextInt(200) == 0) day = day.plusDays(1);
+      TransactionType type =
+          random.nextBoolean() ? TransactionType.INCOME : TransactionType.EXPENSE;
+      txs.add(
+          new Transaction(
+              type, categories[random.nextInt(3)], random.nextInt(100_000) / 100.0, day, ""));
+    }
+    sorted.restoreTransactions(txs);
+
+    for (int q = 0; q < 30; q++) {
+      LocalDate from = LocalDate.of(2025, 1, 1).plusDays(random.nextInt(100));
+      LocalDate to = from.plusDays(random.nextInt(60));
+      Map<String, Long> expected =
+          txs.stream()
+              .filter(t -> t.getType() == TransactionType.EXPENSE)
+              .filter(t -> !t.getDate().isBefore(from) && !t.getDate().isAfter(to))
+              .collect(
+                  Collectors.groupingBy(
+                      Transaction::getCategory,
+                      Collectors.summingLong(Transaction::getAmountMinor)));
+      Map<String, Double> actual = stats.expenseByCategory(sorted, from, to);
+      for (String c : categories) {
+        assertEquals(Money.toMajor(expected.getOrDefault(c, 0L)), actual.getOrDefault(c, 0.0), c);
+      }
+    }
+  }
+
   private static Transaction tx(
       TransactionType type, String category, double amount, LocalDate date) {
     return new Transaction(type, category, amount, date, null);
@@ -1,12 +1,26 @@
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 import org.com.financeApp.core.models.Transaction;
 import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.User;
 import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.infra.InMemoryWalletRepository;
+import org.com.financeApp.services.SnapshotFormat;
 import org.com.financeApp.services.WalletFileStorage;
+import org.com.financeApp.services.WalletService;
+import org.com.financeApp.services.WriteBehindFlusher;
 import org.junit.jupiter.api.Test;
 
 class WalletFileStorageTest {
@@ -73,4 +87,435 @@ class WalletFileStorageTest {
     assertEquals(100.0, imported.getBudget("Еда"));
     assertEquals(1, imported.getTransactions().size());
   }
+
+  @Test
+  void loadOrCreate_shouldReadLegacyDecimalAmountsExactly() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-data-");
+    Files.writeString(
+        dir.resolve("ivan.json"),
+        """
+        {
+          "ownerLogin" : "ivan",
+          "categories" : [ "Еда" ],
+          "budgetsByCategory" : { "Еда" : 0.3 },
+          "transactions" : [
+            { "type" : "EXPENSE", "category" : "Еда", "amount" : 0.1, "date" : "2025-12-01" },
+            { "type" : "EXPENSE", "category" : "Еда", "amount" : 0.2, "date" : "2025-12-02" }
+          ]
+        }
+        """);
+
+    Wallet loaded = new WalletFileStorage(dir).loadOrCreate("ivan");
+
+    assertEquals(30L, loaded.getBudgetMinor("Еда"));
+    assertEquals(30L, loaded.getTotalMinor(TransactionType.EXPENSE));
+    assertEquals(-0.3, loaded.getBalance());
+  }
+
+  @Test
+  void loadOrCreate_shouldStreamFieldsInAnyOrderAndSkipUnknown() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-data-");
+    Files.writeString(
+        dir.resolve("ivan.json"),
+        """
+        {
+          "transactions" : [
+            { "date" : "2025-12-01", "amount" : 100.5, "extra" : { "a" : [ 1, 2 ] },
+              "category" : "Еда", "type" : "EXPENSE", "comment" : "обед" },
+            { "type" : "INCOME", "category" : "Зарплата", "amount" : 1000, "date" : [ 2025, 12, 5 ],
+              "comment" : null },
+            { "type" : null, "category" : "Еда", "amount" : 7, "date" : "2025-12-06" }
+          ],
+          "meta" : { "version" : 2 },
+          "budgetsByCategory" : { "Еда" : 500, " " : 1, "Такси" : null },
+          "categories" : [ "Еда", null, " " ],
+          "ownerLogin" : "someone-else"
+        }
+        """);
+
+    Wallet loaded = new WalletFileStorage(dir).loadOrCreate("ivan");
+
+    assertEquals("ivan", loaded.getOwnerLogin());
+    assertEquals(2, loaded.getTransactions().size());
+    assertEquals("обед", loaded.getTransactions().get(0).getComment());
+    assertEquals(LocalDate.of(2025, 12, 5), loaded.getTransactions().get(1).getDate());
+    assertEquals(1, loaded.getCategories().size());
+    assertEquals(1, loaded.getBudgetsByCategory().size());
+    assertEquals(500.0, loaded.getBudget("Еда"));
+    assertEquals(10050L, loaded.getCategoryTotalMinor(TransactionType.EXPENSE, "Еда"));
+    assertEquals(899.5, loaded.getBalance());
+    assertEquals(89950L, loaded.getBalanceAsOfMinor(LocalDate.of(2025, 12, 31)));
+  }
+
+  @Test
+  void save_shouldStreamJsonReadableAsWalletSnapshot() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-data-");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+
+    Wallet w = new Wallet("ivan");
+    w.addCategory("Еда");
+    w.setBudget("Еда", 4000);
+    w.registerCategory("Старая");
+    w.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 0.1, LocalDate.of(2025, 12, 1), null));
+    w.addTransaction(
+        new Transaction(TransactionType.INCOME, "Старая", 250, LocalDate.of(2025, 12, 2), "x"));
+    storage.save("ivan", w);
+
+    WalletFileStorage.WalletSnapshot snapshot =
+        new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .readValue(dir.resolve("ivan.json").toFile(), WalletFileStorage.WalletSnapshot.class);
+
+    assertEquals("ivan", snapshot.ownerLogin);
+    assertEquals(List.of("Еда"), snapshot.categories);
+    assertEquals(4000.0, snapshot.budgetsByCategory.get("Еда"));
+    assertEquals(2, snapshot.transactions.size());
+    assertEquals(0.1, snapshot.transactions.get(0).amount);
+    assertNull(snapshot.transactions.get(0).comment);
+    assertEquals("Старая", snapshot.transactions.get(1).category);
+    assertEquals(LocalDate.of(2025, 12, 2), snapshot.transactions.get(1).date);
+    assertEquals(0, snapshot.journalSeq);
+  }
+
+  @Test
+  void binarySnapshot_shouldRoundTripWallet() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-binary-");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+
+    Wallet w = new Wallet("ivan");
+    w.addCategory("Еда");
+    w.addCategory("Пустая");
+    w.setBudget("Еда", 1000.10);
+    w.setBudget("Такси", 300);
+    w.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 250.5, LocalDate.of(2025, 12, 1), "обед"));
+    w.addTransaction(
+        new Transaction(TransactionType.INCOME, "Зарплата", 5000, LocalDate.of(2025, 12, 5), null));
+    w.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Такси", 0.01, LocalDate.of(1999, 1, 1), "ночь"));
+
+    Path file = dir.resolve("ivan.pfm");
+    storage.exportSnapshot(file, w);
+    Wallet loaded = storage.importSnapshot(file, "petr");
+
+    assertEquals(w.getCategories(), loaded.getCategories());
+    assertEquals(w.getBudgetsByCategory(), loaded.getBudgetsByCategory());
+    assertEquals(3, loaded.getTransactions().size());
+    for (int i = 0; i < 3; i++) {
+      Transaction expected = w.getTransactions().get(i);
+      Transaction actual = loaded.getTransactions().get(i);
+      assertEquals(expected.getType(), actual.getType());
+      assertEquals(expected.getCategory(), actual.getCategory());
+      assertEquals(expected.getAmountMinor(), actual.getAmountMinor());
+      assertEquals(expected.getDate(), actual.getDate());
+      assertEquals(expected.getComment(), actual.getComment());
+    }
+    assertEquals(w.getBalanceMinor(), loaded.getBalanceMinor());
+    assertEquals(-1L, loaded.getBalanceAsOfMinor(LocalDate.of(2000, 1, 1)));
+  }
+
+  @Test
+  void binarySnapshot_shouldRejectCorruptedBlock() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-binary-");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+
+    Wallet w = new Wallet("ivan");
+    w.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 250.5, LocalDate.of(2025, 12, 1), null));
+    Path file = dir.resolve("ivan.pfm");
+    storage.exportSnapshot(file, w);
+
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length - 6] ^= 0x55;
+    Files.write(file, bytes);
+
+    IOException e = assertThrows(IOException.class, () -> storage.importSnapshot(file, "ivan"));
+    assertTrue(e.getMessage().contains("Повреждён"));
+  }
+
+  @Test
+  void binarySnapshot_shouldRejectOutOfRangeValuesWithValidChecksum() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-binary-");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+
+    Wallet w = new Wallet("ivan");
+    w.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 250.5, LocalDate.of(2025, 12, 1), null));
+    Path file = dir.resolve("ivan.pfm");
+    storage.exportSnapshot(file, w);
+    byte[] original = Files.readAllBytes(file);
+
+    // Тег 4 — колонка типов (1 байт на операцию), тег 7 — id категорий (int на операцию)
+    for (int tag : new int[] {4, 7}) {
+      byte[] bytes = original.clone();
+      ByteBuffer buf = ByteBuffer.wrap(bytes);
+      int pos = 8;
+      while (bytes[pos] != tag) pos += 1 + 4 + buf.getInt(pos + 1) + 4;
+      int length = buf.getInt(pos + 1);
+      bytes[pos + 5] = 9;
+      CRC32 crc = new CRC32();
+      crc.update(bytes, pos + 5, length);
+      buf.putInt(pos + 5 + length, (int) crc.getValue());
+      Files.write(file, bytes);
+
+      IOException e = assertThrows(IOException.class, () -> storage.importSnapshot(file, "ivan"));
+      assertTrue(e.getMessage().contains("Повреждён"), e.getMessage());
+    }
+  }
+
+  @Test
+  void binaryStorageFormat_shouldMigrateExistingJsonSnapshot() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-binary-");
+    Wallet w = new Wallet("ivan");
+    w.addCategory("Еда");
+    w.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 100, LocalDate.of(2025, 12, 1), null));
+    new WalletFileStorage(dir).save("ivan", w);
+
+    WalletFileStorage binary = new WalletFileStorage(dir, SnapshotFormat.BINARY, false, 1000);
+    Wallet loaded = binary.loadOrCreate("ivan");
+    assertEquals(10000L, loaded.getTotalMinor(TransactionType.EXPENSE));
+
+    binary.save("ivan", loaded);
+    assertTrue(Files.exists(dir.resolve("ivan.pfm")));
+    assertFalse(Files.exists(dir.resolve("ivan.json")));
+    assertTrue(binary.loadOrCreate("ivan").hasCategory("Еда"));
+  }
+
+  @Test
+  void mappedStorage_shouldReadThroughMappingAndFlushTailOnSave() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-mapped-");
+    WalletFileStorage storage = new WalletFileStorage(dir, SnapshotFormat.MAPPED, false, 1000);
+
+    Wallet w = new Wallet("ivan");
+    w.addCategory("Еда");
+    w.setBudget("Еда", 500);
+    w.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 100, LocalDate.of(2025, 12, 1), "обед"));
+    w.addTransaction(
+        new Transaction(TransactionType.INCOME, "Зарплата", 1000, LocalDate.of(2025, 12, 2), null));
+    storage.save("ivan", w);
+    assertEquals(2, w.getTransactionStore().mappedSize());
+
+    Wallet loaded = storage.loadOrCreate("ivan");
+    assertEquals(2, loaded.getTransactionStore().mappedSize());
+    assertEquals(90000L, loaded.getBalanceMinor());
+    assertEquals("обед", loaded.getTransactions().get(0).getComment());
+    assertEquals(500.0, loaded.getBudget("Еда"));
+
+    loaded.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Такси", 50, LocalDate.of(2025, 11, 30), "ночь"));
+    assertEquals(2, loaded.getTransactionStore().mappedSize());
+    assertEquals("ночь", loaded.getTransactions().get(2).getComment());
+    assertEquals(-5000L, loaded.getBalanceAsOfMinor(LocalDate.of(2025, 11, 30)));
+
+    storage.save("ivan", loaded);
+    assertEquals(3, loaded.getTransactionStore().mappedSize());
+    assertEquals("Такси", loaded.getTransactions().get(2).getCategory());
+
+    Wallet reloaded = storage.loadOrCreate("ivan");
+    assertEquals(3, reloaded.getTransactions().size());
+    assertEquals(85000L, reloaded.getBalanceMinor());
+    assertEquals("ночь", reloaded.getTransactions().get(2).getComment());
+    assertNull(reloaded.getTransactions().get(1).getComment());
+  }
+
+  @Test
+  void journaledMode_shouldReplayMutationsOnTopOfSnapshot() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-journal-");
+    WalletFileStorage storage = new WalletFileStorage(dir, true);
+    WalletService service = new WalletService(new InMemoryWalletRepository());
+    service.addListener(storage.getJournal());
+    User ivan = new User("ivan", "1234");
+
+    service.addCategory(ivan, "Еда");
+    storage.save("ivan", service.getWallet(ivan));
+    service.setBudget(ivan, "Еда", 1000);
+    service.addExpense(ivan, "Еда", 250.5, LocalDate.of(2025, 12, 2), "обед");
+    storage.checkpoint("ivan", service.getWallet(ivan));
+
+    assertTrue(Files.exists(dir.resolve("ivan.journal")));
+
+    Wallet loaded = new WalletFileStorage(dir, true).loadOrCreate("ivan");
+
+    assertTrue(loaded.hasCategory("Еда"));
+    assertEquals(1000.0, loaded.getBudget("Еда"));
+    assertEquals(1, loaded.getTransactions().size());
+    assertEquals("обед", loaded.getTransactions().get(0).getComment());
+    assertEquals(25050L, loaded.getTotalMinor(TransactionType.EXPENSE));
+  }
+
+  @Test
+  void journaledMode_shouldCompactAndSkipAlreadyFoldedRecords() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-journal-");
+    WalletFileStorage storage = new WalletFileStorage(dir, true, 3);
+    WalletService service = new WalletService(new InMemoryWalletRepository());
+    service.addListener(storage.getJournal());
+    User ivan = new User("ivan", "1234");
+
+    service.addCategory(ivan, "Еда");
+    service.addExpense(ivan, "Еда", 100, LocalDate.of(2025, 12, 1), null);
+    String journalBeforeCompaction = Files.readString(dir.resolve("ivan.journal"));
+    service.addExpense(ivan, "Еда", 200, LocalDate.of(2025, 12, 2), null);
+
+    assertFalse(Files.exists(dir.resolve("ivan.journal")));
+
+    // Сбой между записью snapshot и удалением журнала: старые записи не должны примениться повторно
+    Files.writeString(dir.resolve("ivan.journal"), journalBeforeCompaction);
+    Wallet loaded = new WalletFileStorage(dir, true, 3).loadOrCreate("ivan");
+
+    assertEquals(2, loaded.getTransactions().size());
+    assertEquals(30000L, loaded.getTotalMinor(TransactionType.EXPENSE));
+  }
+
+  @Test
+  void journaledMode_tornTailThenAppends_shouldStayLoadable() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-journal-");
+    WalletFileStorage storage = new WalletFileStorage(dir, true);
+    WalletService service = new WalletService(new InMemoryWalletRepository());
+    service.addListener(storage.getJournal());
+    User ivan = new User("ivan", "1234");
+
+    service.addCategory(ivan, "Еда");
+    service.addExpense(ivan, "Еда", 100, LocalDate.of(2025, 12, 1), null);
+    // Сбой во время записи: последняя строка журнала оборвана
+    Files.writeString(
+        dir.resolve("ivan.journal"), "{\"seq\":3,\"op\":\"TRANS", StandardOpenOption.APPEND);
+
+    // Перезапуск и ещё две записи после обрывка
+    WalletFileStorage restarted = new WalletFileStorage(dir, true);
+    InMemoryWalletRepository repo = new InMemoryWalletRepository();
+    repo.save(restarted.loadOrCreate("ivan"));
+    WalletService after = new WalletService(repo);
+    after.addListener(restarted.getJournal());
+    after.addExpense(ivan, "Еда", 200, LocalDate.of(2025, 12, 2), null);
+    after.addExpense(ivan, "Еда", 300, LocalDate.of(2025, 12, 3), null);
+
+    Wallet loaded = new WalletFileStorage(dir, true).loadOrCreate("ivan");
+    assertEquals(3, loaded.getTransactions().size());
+    assertEquals(60000L, loaded.getTotalMinor(TransactionType.EXPENSE));
+  }
+
+  @Test
+  void journaledMode_replaceDuringAppends_shouldKeepDiskEqualToMemory() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-journal-");
+    WalletFileStorage storage = new WalletFileStorage(dir, true);
+    WalletService service = new WalletService(new InMemoryWalletRepository());
+    service.addListener(storage.getJournal());
+    User ivan = new User("ivan", "1234");
+
+    Wallet seed = new Wallet("ivan");
+    seed.addCategory("Еда");
+    seed.addTransaction(
+        new Transaction(TransactionType.EXPENSE, "Еда", 1, LocalDate.of(2025, 12, 1), null));
+    Path exported = dir.resolve("seed").resolve("ivan.json");
+    storage.exportSnapshot(exported, seed);
+    service.replaceWallet(ivan, storage.importSnapshot(exported, "ivan"));
+
+    Thread writer =
+        new Thread(
+            () -> {
+              for (int i = 0; i < 2000; i++) {
+                service.addExpense(ivan, "Еда", 10, LocalDate.of(2025, 12, 2), null);
+              }
+            });
+    writer.start();
+    // Замена с компактизацией идёт вперемешку с дописыванием журнала; записи, дописанные во
+    // время компактизации, не должны пропасть или примениться повторно
+    for (int i = 0; writer.isAlive(); i++) {
+      service.replaceWallet(ivan, storage.importSnapshot(exported, "ivan"));
+    }
+    writer.join();
+
+    Wallet memory = service.getWallet(ivan);
+    Wallet disk = new WalletFileStorage(dir, true).loadOrCreate("ivan");
+    assertEquals(memory.getTransactions().size(), disk.getTransactions().size());
+    assertEquals(
+        memory.getTotalMinor(TransactionType.EXPENSE), disk.getTotalMinor(TransactionType.EXPENSE));
+  }
+
+  @Test
+  void storage_shouldRejectLoginsOutsideDataDirectory() throws Exception {
+    Path root = Files.createTempDirectory("pfm-root-");
+    Path dir = Files.createDirectories(root.resolve("data"));
+    WalletFileStorage storage = new WalletFileStorage(dir, true);
+
+    for (String login : List.of("../ivan", "/tmp/ivan", "x/../../ivan")) {
+      assertThrows(IllegalArgumentException.class, () -> storage.save(login, new Wallet("ivan")));
+      assertThrows(IllegalArgumentException.class, () -> storage.loadOrCreate(login));
+    }
+    try (var files = Files.list(root)) {
+      assertEquals(1, files.count());
+    }
+  }
+
+  @Test
+  void checkpoint_shouldSkipUnchangedWallet() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-data-");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+
+    Wallet w = storage.loadOrCreate("ivan");
+    assertFalse(storage.saveIfChanged("ivan", w));
+    assertFalse(Files.exists(dir.resolve("ivan.json")));
+
+    w.addCategory("Еда");
+    assertTrue(storage.saveIfChanged("ivan", w));
+    assertFalse(storage.saveIfChanged("ivan", w));
+    try (var files = Files.list(dir)) {
+      assertEquals(1, files.count(), "временный файл не должен оставаться");
+    }
+  }
+
+  @Test
+  void writeBehindFlusher_shouldPersistCoalescedChangesInBackground() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-data-");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+    WalletService service = new WalletService(new InMemoryWalletRepository());
+    User ivan = new User("ivan", "1234");
+
+    try (WriteBehindFlusher flusher = new WriteBehindFlusher(storage, Duration.ofMinutes(10), 5)) {
+      service.addListener(flusher);
+      service.addCategory(ivan, "Еда");
+      for (int i = 0; i < 4; i++) {
+        service.addExpense(ivan, "Еда", 10, LocalDate.of(2025, 12, 1), null);
+      }
+
+      // Порог в 5 изменений запускает сброс, не дожидаясь интервала
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      Path file = dir.resolve("ivan.json");
+      while (!Files.exists(file) && System.nanoTime() < deadline) Thread.sleep(10);
+      assertEquals(4, new WalletFileStorage(dir).loadOrCreate("ivan").getTransactions().size());
+
+      service.addExpense(ivan, "Еда", 10, LocalDate.of(2025, 12, 2), null);
+      assertEquals(1, flusher.dirtyCount());
+    }
+
+    // close() сохраняет оставшееся
+    assertEquals(5, new WalletFileStorage(dir).loadOrCreate("ivan").getTransactions().size());
+  }
+
+  @Test
+  void writeBehindFlusher_shouldPersistReplacedWallet() throws Exception {
+    Path dir = Files.createTempDirectory("pfm-data-");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+    WalletService service = new WalletService(new InMemoryWalletRepository());
+    User ivan = new User("ivan", "1234");
+
+    Wallet imported = new Wallet("ivan");
+    imported.addCategory("Импорт");
+    imported.addTransaction(
+        new Transaction(TransactionType.INCOME, "Импорт", 42, LocalDate.of(2025, 12, 1), null));
+
+    try (WriteBehindFlusher flusher = new WriteBehindFlusher(storage, Duration.ofMinutes(10), 50)) {
+      service.addListener(flusher);
+      service.replaceWallet(ivan, imported);
+      assertEquals(1, flusher.dirtyCount());
+      assertEquals(1, flusher.flush());
+    }
+
+    Wallet loaded = new WalletFileStorage(dir).loadOrCreate("ivan");
+    assertTrue(loaded.hasCategory("Импорт"));
+    assertEquals(4200L, loaded.getTotalMinor(TransactionType.INCOME));
+  }
 }
@@ -0,0 +1,115 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+import org.com.financeApp.core.models.Money;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.TransactionType;
+import org.com.financeApp.core.models.Wallet;
+import org.com.financeApp.services.SnapshotFormat;
+import org.com.financeApp.services.WalletFileStorage;
+
+// Грубый замер сохранения и загрузки большого кошелька: JSON (ObjectMapper + WalletSnapshot
+// и потоковое чтение) против бинарного .pfm (в кучу и с отображением в память).
+// Это не JMH: простой цикл с System.nanoTime, без отдельных прогревов и форков, цифры
+// ориентировочные. Сравнимые результаты даёт StorageBenchmark (профиль benchmarks).
+// Не тест (surefire его не запускает), запуск вручную:
+// java -cp target/classes:target/test-classes:<deps> WalletLoadTiming [rows]
+public class WalletLoadTiming {
+  public static void main(String[] args) throws Exception {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+    Path dir = Files.createTempDirectory("pfm-bench-");
+    Path file = dir.resolve("bench.json");
+    Path binaryFile = dir.resolve("bench.pfm");
+    WalletFileStorage storage = new WalletFileStorage(dir);
+    saveAll(storage, generate(rows), file, binaryFile);
+    System.out.printf(
+        "rows=%d json=%d MB binary=%d MB%n",
+        rows, Files.size(file) >> 20, Files.size(binaryFile) >> 20);
+
+    ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    WalletFileStorage mapped = new WalletFileStorage(dir, SnapshotFormat.MAPPED, false, 1000);
+
+    for (int round = 0; round < 3; round++) {
+      measure(
+          "databind ",
+          () ->
+              mapper
+                  .readValue(file.toFile(), WalletFileStorage.WalletSnapshot.class)
+                  .toWallet("bench"));
+      measure("streaming", () -> storage.importSnapshot(file, "bench"));
+      measure("binary   ", () -> storage.importSnapshot(binaryFile, "bench"));
+      measure("mapped   ", () -> mapped.loadOrCreate("bench"));
+    }
+  }
+
+  private static void saveAll(WalletFileStorage storage, Wallet wallet, Path json, Path binary)
+      throws Exception {
+    for (int round = 0; round < 3; round++) {
+      measureSave("save json  ", () -> storage.exportSnapshot(json, wallet));
+      measureSave("save binary", () -> storage.exportSnapshot(binary, wallet));
+    }
+  }
+
+  private static Wallet generate(int rows) {
+    String[] categories = {"Еда", "Транспорт", "Развлечения", "Коммуналка", "Зарплата"};
+    Random random = new Random(42);
+    LocalDate start = LocalDate.of(2020, 1, 1);
+
+    Wallet wallet = new Wallet("bench");
+    for (String c : categories) wallet.addCategory(c);
+    wallet.setBudget("Еда", 30000);
+
+    for (int i = 0; i < rows; i++) {
+      boolean income = random.nextInt(10) == 0;
+      wallet.addTransaction(
+          new Transaction(
+              income ? TransactionType.INCOME : TransactionType.EXPENSE,
+              income ? "Зарплата" : categories[random.nextInt(4)],
+              Money.ofMinor(1 + random.nextInt(1_000_000)),
+              start.plusDays(random.nextInt(2000)),
+              random.nextInt(4) == 0 ? "комментарий " + i : null));
+    }
+    return wallet;
+  }
+
+  private interface Saver {
+    void save() throws Exception;
+  }
+
+  private static void measureSave(String name, Saver saver) throws Exception {
+    long start = System.nanoTime();
+    saver.save();
+    System.out.printf("%s: %5d ms%n", name, (System.nanoTime() - start) / 1_000_000);
+  }
+
+  private interface Loader {
+    Wallet load() throws Exception;
+  }
+
+  private static void measure(String name, Loader loader) throws Exception {
+    System.gc();
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+    }
+
+    long start = System.nanoTime();
+    Wallet wallet = loader.load();
+    long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+    }
+
+    System.out.printf(
+        "%s: %5d ms, peak heap %4d MB, balance %s%n",
+        name, elapsedMs, peak >> 20, Money.format(wallet.getBalanceMinor()));
+  }
+}
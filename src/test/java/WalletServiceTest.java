@@ -2,6 +2,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.LocalDate;
 import java.util.List;
+import org.com.financeApp.core.models.Transaction;
+import org.com.financeApp.core.models.TransactionType;
 import org.com.financeApp.core.models.User;
 import org.com.financeApp.core.models.Wallet;
 import org.com.financeApp.core.repository.WalletRepository;
@@ -91,6 +93,23 @@ class WalletServiceTest {
     assertTrue(warnings.isEmpty());
   }
 
+  @Test
+  void getTransactions_shouldMaterializeSameRowFromColumns() {
+    walletService.addCategory(ivan, "Salary");
+    walletService.addIncome(ivan, "Salary", 20000, LocalDate.of(2025, 12, 1), "payday");
+    walletService.addIncome(ivan, "Salary", 500, LocalDate.of(2025, 12, 3), null);
+
+    Wallet w = walletService.getWallet(ivan);
+    Transaction first = w.getTransactions().get(0);
+
+    assertEquals(first.getId(), w.getTransactions().get(0).getId());
+    assertEquals("Salary", first.getCategory());
+    assertEquals(20000.0, first.getAmount());
+    assertEquals(LocalDate.of(2025, 12, 1), first.getDate());
+    assertEquals("payday", first.getComment());
+    assertNull(w.getTransactions().get(1).getComment());
+  }
+
   @Test
   void addExpense_unknownCategory_shouldThrow() {
     IllegalArgumentException ex =
@@ -161,4 +180,76 @@ class WalletServiceTest {
     assertTrue(wAnna.getBudgetsByCategory().isEmpty());
     assertTrue(wAnna.getCategories().isEmpty());
   }
+
+  @Test
+  void addOperations_shouldApplyBatchAndDeduplicateWarnings() {
+    walletService.addCategory(ivan, "Food");
+    walletService.setBudget(ivan, "Food", 100);
+    LocalDate date = LocalDate.of(2025, 12, 2);
+
+    List<String> warnings =
+        walletService.addOperations(
+            ivan,
+            List.of(
+                new WalletService.OperationRequest(
+                    TransactionType.INCOME, "Salary", 50, date, null),
+                new WalletService.OperationRequest(TransactionType.EXPENSE, "Food", 70, date, null),
+                new WalletService.OperationRequest(
+                    TransactionType.EXPENSE, "Food", 60, date, "кофе")));
+
+    Wallet w = walletService.getWallet(ivan);
+    assertEquals(3, w.getTransactions().size());
+    assertTrue(w.hasCategory("Salary"));
+    assertEquals(13_000, w.getCategoryTotalMinor(TransactionType.EXPENSE, "Food"));
+    assertEquals(2, warnings.size());
+    assertEquals(1, warnings.stream().filter(s -> s.contains("'Food'")).count());
+  }
+
+  @Test
+  void addOperations_invalidOperation_shouldRejectWholeBatch() {
+    walletService.addCategory(ivan, "Food");
+    LocalDate date = LocalDate.of(2025, 12, 2);
+
+    IllegalArgumentException ex =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                walletService.addOperations(
+                    ivan,
+                    List.of(
+                        new WalletService.OperationRequest(
+                            TransactionType.EXPENSE, "Food", 10, date, null),
+                        new WalletService.OperationRequest(
+                            TransactionType.EXPENSE, "Taxi", 10, date, null))));
+
+    assertTrue(ex.getMessage().contains("#2"));
+    assertTrue(walletService.getWallet(ivan).getTransactions().isEmpty());
+  }
+
+  @Test
+  void addExpense_dateOutsideSupportedRange_shouldThrowWithoutGrowingIndex() {
+    walletService.addCategory(ivan, "Food");
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> walletService.addExpense(ivan, "Food", 10, LocalDate.of(1, 1, 1), null));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> walletService.addExpense(ivan, "Food", 10, LocalDate.of(9999, 12, 31), null));
+    Wallet w = walletService.getWallet(ivan);
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            w.restoreTransaction(
+                TransactionType.EXPENSE,
+                "Food",
+                100,
+                (int) LocalDate.of(9999, 1, 1).toEpochDay(),
+                null));
+
+    walletService.addExpense(ivan, "Food", 10, Transaction.MIN_DATE, null);
+    walletService.addExpense(ivan, "Food", 10, Transaction.MAX_DATE, null);
+    assertEquals(2, w.getTransactions().size());
+    assertEquals(2_000, w.getCategoryTotalMinor(TransactionType.EXPENSE, "Food"));
+  }
 }
@@ -0,0 +1,100 @@
+package org.com.financeApp.core.models;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Ядра пакетно-приватные, поэтому тест лежит в их пакете
+class ScanKernelsTest {
+  private static final int CATEGORIES = 5;
+
+  @Test
+  void vectorKernel_shouldMatchScalarOnSameColumns() {
+    assumeTrue(ScanKernels.isVectorized(), "нужен модуль jdk.incubator.vector");
+    ScanKernels.Kernel vector = new VectorScanKernel();
+    ScanKernels.Kernel scalar = new ScanKernels.Scalar();
+    Random random = new Random(3);
+
+    // Длины от 0 до 70 дают любые хвосты для 2..8 дорожек; массивы ровно по длине,
+    // чтобы последний вектор типов читался у самой границы
+    for (int n = 0; n <= 70; n++) {
+      for (int variant = 0; variant < 3; variant++) {
+        long[] amounts = new long[n];
+        int[] days = new int[n];
+        byte[] types = new byte[n];
+        int[] categories = new int[n];
+        int category = random.nextInt(CATEGORIES);
+        for (int i = 0; i < n; i++) {
+          amounts[i] = 1 + random.nextInt(1_000_000);
+          days[i] = 20_000 + random.nextInt(30);
+          types[i] = (byte) random.nextInt(2);
+          // 0 — случайные категории, 1 — участки одной категории, 2 — одна на все строки
+          if (variant == 0 || (variant == 1 && random.nextInt(8) == 0)) {
+            category = random.nextInt(CATEGORIES);
+          }
+          categories[i] = category;
+        }
+
+        int start = n == 0 ? 0 : random.nextInt(Math.min(n, 5));
+        int fromDay = 20_000 + random.nextInt(15);
+        int toDay = fromDay + random.nextInt(15);
+        assertSameSums(vector, scalar, amounts, days, types, categories, start, n, fromDay, toDay);
+        assertSameSums(vector, scalar, amounts, days, types, categories, 0, n, 20_000, 20_029);
+        assertSameSums(vector, scalar, amounts, days, types, categories, 0, n, 30_000, 30_001);
+      }
+    }
+  }
+
+  @Test
+  void kernels_shouldAddToExistingSumsOnlyRowsInPeriod() {
+    long[] amounts = {100, 200, 300, 400};
+    int[] days = {10, 11, 12, 13};
+    byte[] types = {ScanKernels.INCOME, 1, 1, ScanKernels.INCOME};
+    int[] categories = {0, 1, 1, 0};
+
+    long[] income = {5, 0};
+    long[] expense = {0, 7};
+    new ScanKernels.Scalar()
+        .accumulate(amounts, days, types, categories, 0, 4, 11, 13, income, expense);
+
+    assertArrayEquals(new long[] {405, 0}, income);
+    assertArrayEquals(new long[] {0, 507}, expense);
+  }
+
+  private static void assertSameSums(
+      ScanKernels.Kernel vector,
+      ScanKernels.Kernel scalar,
+      long[] amounts,
+      int[] days,
+      byte[] types,
+      int[] categories,
+      int start,
+      int end,
+      int fromDay,
+      int toDay) {
+    long[] expectedIncome = new long[CATEGORIES];
+    long[] expectedExpense = new long[CATEGORIES];
+    scalar.accumulate(
+        amounts,
+        days,
+        types,
+        categories,
+        start,
+        end,
+        fromDay,
+        toDay,
+        expectedIncome,
+        expectedExpense);
+
+    long[] income = new long[CATEGORIES];
+    long[] expense = new long[CATEGORIES];
+    vector.accumulate(
+        amounts, days, types, categories, start, end, fromDay, toDay, income, expense);
+
+    String at = "n=" + end + " start=" + start + " [" + fromDay + "; " + toDay + "]";
+    assertArrayEquals(expectedIncome, income, at);
+    assertArrayEquals(expectedExpense, expense, at);
+  }
+}